@@ -41,6 +41,26 @@ public final class Config {
      */
     public static final String ACCESS_TOKEN_EXPIRES_IN = "ACCESS_TOKEN_EXPIRES_IN";
 
+    /**
+     * The optional ENV property for the private key that access tokens are signed with, as a Base64-encoded PKCS #8
+     * P-256 key. If unset, access tokens aren't signed.
+     */
+    public static final String ACCESS_TOKEN_SIGNING_KEY = "ACCESS_TOKEN_SIGNING_KEY";
+
+    /**
+     * The ENV property for the public key that access tokens can be verified with, as a Base64-encoded X.509 P-256
+     * key. It's required if {@link #ACCESS_TOKEN_SIGNING_KEY} is set.
+     */
+    public static final String ACCESS_TOKEN_VERIFICATION_KEY = "ACCESS_TOKEN_VERIFICATION_KEY";
+
+    /**
+     * The optional ENV property for the number of seconds that HTTP caches may reuse an item access mode response for
+     * without revalidating it.
+     * <p>
+     * If unset or zero, responses must be revalidated every time, which can be done cheaply with the entity tag.
+     */
+    public static final String ACCESS_MODE_MAX_AGE = "ACCESS_MODE_MAX_AGE";
+
     /**
      * The ENV property for the location of the application's OpenAPI specification.
      */
@@ -91,6 +111,27 @@ public final class Config {
      */
     public static final String DB_RECONNECT_INTERVAL = "DB_RECONNECT_INTERVAL";
 
+    /**
+     * The optional ENV property for the number of milliseconds during which item access mode lookups that miss the
+     * caches are collected, so that they can be sent to the database as a single query.
+     * <p>
+     * If set to zero (the default), each lookup is sent to the database on its own.
+     */
+    public static final String DB_BATCH_WINDOW = "DB_BATCH_WINDOW";
+
+    /**
+     * The optional ENV property for the maximum number of items whose access modes are looked up in a single query,
+     * when {@link #DB_BATCH_WINDOW} is set. A batch that reaches this size is sent without waiting for its window to
+     * elapse.
+     */
+    public static final String DB_BATCH_MAX_SIZE = "DB_BATCH_MAX_SIZE";
+
+    /**
+     * The optional ENV property for the number of items above which a list of items is set in the database with a
+     * single statement, rather than as a batch of statements (one per item).
+     */
+    public static final String DB_BULK_LOAD_THRESHOLD = "DB_BULK_LOAD_THRESHOLD";
+
     /**
      * The ENV property for the database cache host.
      */
@@ -101,14 +142,163 @@ public final class Config {
      */
     public static final String DB_CACHE_PORT = "DB_CACHE_PORT";
 
+    /**
+     * The optional ENV property for the number of seconds that an item access mode is kept in the database cache, which
+     * is shared by all instances of the application.
+     * <p>
+     * If set to zero, the database cache is not used.
+     */
+    public static final String DB_CACHE_TTL = "DB_CACHE_TTL";
+
+    /**
+     * The optional ENV property for the maximum number of item access modes to keep in the database service's
+     * in-process cache.
+     * <p>
+     * If set to zero, the in-process cache is disabled.
+     */
+    public static final String ACCESS_MODE_CACHE_MAX_SIZE = "ACCESS_MODE_CACHE_MAX_SIZE";
+
+    /**
+     * The optional ENV property for the number of seconds that an item access mode is kept in the database service's
+     * in-process cache.
+     * <p>
+     * If set to zero, the in-process cache is disabled.
+     */
+    public static final String ACCESS_MODE_CACHE_TTL = "ACCESS_MODE_CACHE_TTL";
+
+    /**
+     * The optional ENV property for the maximum number of items that the database service remembers were looked up and
+     * not found.
+     * <p>
+     * If set to zero, the cache of items that weren't found is disabled.
+     */
+    public static final String NOT_FOUND_CACHE_MAX_SIZE = "NOT_FOUND_CACHE_MAX_SIZE";
+
+    /**
+     * The optional ENV property for the number of seconds that the database service remembers that an item was looked
+     * up and not found.
+     * <p>
+     * If set to zero, the cache of items that weren't found is disabled.
+     */
+    public static final String NOT_FOUND_CACHE_TTL = "NOT_FOUND_CACHE_TTL";
+
+    /**
+     * The optional ENV property for whether the database service keeps a Bloom filter of the items table, with which it
+     * answers lookups of items that definitely don't exist without going to the database. This has no effect when
+     * {@link #DB_REPLICA_ENABLED} is set.
+     */
+    public static final String ITEM_FILTER_ENABLED = "ITEM_FILTER_ENABLED";
+
+    /**
+     * The optional ENV property for the false positive rate that the Bloom filter of the items table is sized for; that
+     * is, the proportion of lookups of items that don't exist that still go to the database.
+     */
+    public static final String ITEM_FILTER_FALSE_POSITIVE_RATE = "ITEM_FILTER_FALSE_POSITIVE_RATE";
+
+    /**
+     * The optional ENV property for the number of items that are set at once when items are streamed to
+     * <code>/items/stream</code>; reading from the request is paused while each chunk is being set.
+     */
+    public static final String ITEMS_STREAM_CHUNK_SIZE = "ITEMS_STREAM_CHUNK_SIZE";
+
+    /**
+     * The optional ENV property for the number of items that an items job submitted to <code>/items/jobs</code> sets
+     * at once.
+     */
+    public static final String ITEMS_JOB_CHUNK_SIZE = "ITEMS_JOB_CHUNK_SIZE";
+
+    /**
+     * The optional ENV property for the maximum number of items jobs that run at once; the rest wait in line. Each
+     * running job holds one database connection, so this should be kept below DB_CONNECTION_POOL_MAX_SIZE.
+     */
+    public static final String ITEMS_JOB_CONCURRENCY = "ITEMS_JOB_CONCURRENCY";
+
+    /**
+     * The optional ENV property for the number of seconds that the status of a finished items job can still be checked.
+     */
+    public static final String ITEMS_JOB_RETENTION = "ITEMS_JOB_RETENTION";
+
+    /**
+     * The optional ENV property for whether the database service keeps a full in-memory replica of the items table, in
+     * which case item access modes are always read from memory.
+     */
+    public static final String DB_REPLICA_ENABLED = "DB_REPLICA_ENABLED";
+
+    /**
+     * The optional ENV property for the number of seconds between full reloads of the in-memory replica of the items
+     * table. Changes are applied to the replica as they happen, so this is mostly a safeguard, but it's also how items
+     * that are deleted from the table are dropped from the replica.
+     * <p>
+     * If set to zero, the replica is only reloaded after the database connection has been lost, or once it has
+     * {@link #DB_REPLICA_MAX_CHANGES} changes.
+     */
+    public static final String DB_REPLICA_REFRESH_INTERVAL = "DB_REPLICA_REFRESH_INTERVAL";
+
+    /**
+     * The optional ENV property for the number of changed items that the in-memory replica of the items table keeps on
+     * top of its last full load; once there are that many, it's reloaded, which folds them into the compact store.
+     */
+    public static final String DB_REPLICA_MAX_CHANGES = "DB_REPLICA_MAX_CHANGES";
+
+    /**
+     * The optional ENV property for the number of instances of the HTTP server to run, each on its own event loop.
+     * <p>
+     * If unset, one instance is run for each available processor.
+     */
+    public static final String HTTP_SERVER_INSTANCES = "HTTP_SERVER_INSTANCES";
+
+    /**
+     * The optional ENV property for the maximum number of decrypted access cookies to keep in the access cookie
+     * service's cache, so that clients that present the same cookie again and again don't need it decrypted every time.
+     * <p>
+     * If set to zero, the cache is disabled.
+     */
+    public static final String ACCESS_COOKIE_CACHE_MAX_SIZE = "ACCESS_COOKIE_CACHE_MAX_SIZE";
+
+    /**
+     * The optional ENV property for the number of seconds that a decrypted access cookie is kept in the access cookie
+     * service's cache.
+     * <p>
+     * If set to zero, the cache is disabled.
+     */
+    public static final String ACCESS_COOKIE_CACHE_TTL = "ACCESS_COOKIE_CACHE_TTL";
+
+    /**
+     * The optional ENV property for the number of instances of the access cookie service to run, each on a worker
+     * thread.
+     * <p>
+     * If unset, one instance is run for each available processor.
+     */
+    public static final String ACCESS_COOKIE_SERVICE_INSTANCES = "ACCESS_COOKIE_SERVICE_INSTANCES";
+
+    /**
+     * The optional ENV property for whether the HTTP handlers call the services directly, instead of through service
+     * proxies that send each call over the event bus. The services are registered on the event bus either way.
+     */
+    public static final String DIRECT_SERVICE_CALLS = "DIRECT_SERVICE_CALLS";
+
     /**
      * The ENV property for the list of Campus Network subnets, separated by commas, in CIDR notation.
      */
     public static final String CAMPUS_NETWORK_SUBNETS = "CAMPUS_NETWORK_SUBNETS";
 
     /**
-     * The ENV property for the password used to generate the secret key, which is used for creating and validating
-     * access cookies.
+     * The optional ENV property for the ID of the secret key that new access cookies are encrypted with. It defaults to
+     * the first key in {@link #SECRET_KEYS}, or to the key derived from {@link #SECRET_KEY_PASSWORD} if there are none.
+     */
+    public static final String SECRET_KEY_ID = "SECRET_KEY_ID";
+
+    /**
+     * The optional ENV property for the secret keys used for creating and validating access cookies, as a
+     * comma-separated list of entries like <code>1:Base64-encoded key</code>. Each key is a 128, 192, or 256-bit AES
+     * key, and its ID is a number from 0 to 255. A key with the ID 0 takes the place of the key derived from
+     * {@link #SECRET_KEY_PASSWORD}.
+     */
+    public static final String SECRET_KEYS = "SECRET_KEYS";
+
+    /**
+     * The ENV property for the password used to generate the secret key with the ID 0, which is used for creating and
+     * validating access cookies. It's optional if {@link #SECRET_KEYS} is set.
      */
     public static final String SECRET_KEY_PASSWORD = "SECRET_KEY_PASSWORD";
 
@@ -118,6 +308,15 @@ public final class Config {
      */
     public static final String SECRET_KEY_SALT = "SECRET_KEY_SALT";
 
+    /**
+     * The optional ENV property for the maximum number of validated Sinai cookies to keep in the access cookie
+     * service's cache. A cached cookie is still checked against its own date every time, so it stops being accepted
+     * when it expires.
+     * <p>
+     * If set to zero, the cache is disabled.
+     */
+    public static final String SINAI_COOKIE_CACHE_MAX_SIZE = "SINAI_COOKIE_CACHE_MAX_SIZE";
+
     /**
      * The ENV property for the password used to derive the secret key for validating Sinai cookies. This value must be
      * the same as the {@code CIPHER_KEY} configuration option of the Sinai application, which is used to generate its
@@ -125,6 +324,13 @@ public final class Config {
      */
     public static final String SINAI_COOKIE_SECRET_KEY_PASSWORD = "SINAI_COOKIE_SECRET_KEY_PASSWORD";
 
+    /**
+     * The optional ENV property for the time zone that the Sinai application writes the dates in its text cookies in,
+     * as an ID like <code>America/Los_Angeles</code>. It defaults to the system time zone. Binary cookies carry an
+     * exact issue time, so they don't depend on it.
+     */
+    public static final String SINAI_COOKIE_TIME_ZONE = "SINAI_COOKIE_TIME_ZONE";
+
     /**
      * The ENV property for the prefix that we'll use to validate decrypted Sinai cookies. This value be consistent with
      * the Sinai application.
@@ -4,17 +4,20 @@ package edu.ucla.library.iiif.auth;
 /**
  * A constants class for keys used in the JSON for representing access cookies.
  * <p>
- * Cookies are stored on the client machine as base64-encoded JSON. Decoded, they look like this:
+ * Cookies in the legacy format are stored on the client machine as base64-encoded JSON. (Newer cookies use the compact
+ * binary format that is described in {@code AccessCookieServiceImpl}.) Decoded, they look like this:
  *
  * <pre>
  * {
  *   "version": 0.0.0-SNAPSHOT,
  *   "secret": [encrypted],
- *   "nonce": "0123456789ABCDEF0123456789ABCDEF"
+ *   "nonce": "0123456789ABCDEF0123456789ABCDEF",
+ *   "keyId": 1
  * }
  * </pre>
  *
- * Decrypted, the secret looks something like this:
+ * Decrypted, the secret looks something like this, which is also how the decrypted data of either format is
+ * represented:
  *
  * <pre>
  * {
@@ -40,6 +43,12 @@ public final class CookieJsonKeys {
      */
     public static final String NONCE = "nonce";
 
+    /**
+     * The JSON key for the ID of the secret key that the access cookie data was encrypted with. Cookies from before
+     * there were key IDs don't have it.
+     */
+    public static final String KEY_ID = "keyId";
+
     /**
      * The JSON key for the client IP address.
      */
@@ -16,6 +16,11 @@ public final class Op {
      */
     public static final String GET_ACCESS_MODE = "getAccessMode";
 
+    /**
+     * Gets the access modes of multiple items.
+     */
+    public static final String GET_ACCESS_MODES = "getAccessModes";
+
     /**
      * Gets an authentication cookie.
      */
@@ -31,11 +36,26 @@ public final class Op {
      */
     public static final String GET_TOKEN_SINAI = "getTokenSinai";
 
+    /**
+     * Gets the keys that signed authentication tokens can be verified with.
+     */
+    public static final String GET_TOKEN_KEYS = "getTokenKeys";
+
     /**
      * Sets items.
      */
     public static final String POST_ITEMS = "postItems";
 
+    /**
+     * Submits a job that sets items in the background.
+     */
+    public static final String POST_ITEMS_JOB = "postItemsJob";
+
+    /**
+     * Gets the status of a job that sets items in the background.
+     */
+    public static final String GET_ITEMS_JOB = "getItemsJob";
+
     /**
      * Constant class constructors should be private.
      */
@@ -41,6 +41,111 @@ public final class ResponseJsonKeys {
      */
     public static final String MESSAGE_ID = Param.MESSAGE_ID;
 
+    /**
+     * The metrics key.
+     */
+    public static final String METRICS = "metrics";
+
+    /**
+     * The coalesced lookups key.
+     */
+    public static final String COALESCED_LOOKUPS = "coalescedLookups";
+
+    /**
+     * The filtered lookups key.
+     */
+    public static final String FILTERED_LOOKUPS = "filteredLookups";
+
+    /**
+     * The filter false positives key.
+     */
+    public static final String FILTER_FALSE_POSITIVES = "filterFalsePositives";
+
+    /**
+     * The filter false positive rate key.
+     */
+    public static final String FILTER_FALSE_POSITIVE_RATE = "filterFalsePositiveRate";
+
+    /**
+     * The ID key.
+     */
+    public static final String ID = "id";
+
+    /**
+     * The total key.
+     */
+    public static final String TOTAL = "total";
+
+    /**
+     * The processed key.
+     */
+    public static final String PROCESSED = "processed";
+
+    /**
+     * The changed key.
+     */
+    public static final String CHANGED = "changed";
+
+    /**
+     * The failed key.
+     */
+    public static final String FAILED = "failed";
+
+    /**
+     * The items-per-second key.
+     */
+    public static final String ITEMS_PER_SECOND = "itemsPerSecond";
+
+    /**
+     * The submitted key.
+     */
+    public static final String SUBMITTED = "submitted";
+
+    /**
+     * The started key.
+     */
+    public static final String STARTED = "started";
+
+    /**
+     * The finished key.
+     */
+    public static final String FINISHED = "finished";
+
+    /**
+     * The errors key.
+     */
+    public static final String ERRORS = "errors";
+
+    /**
+     * The index key.
+     */
+    public static final String INDEX = "index";
+
+    /**
+     * The from key.
+     */
+    public static final String FROM = "from";
+
+    /**
+     * The to key.
+     */
+    public static final String TO = "to";
+
+    /**
+     * The inserted key.
+     */
+    public static final String INSERTED = "inserted";
+
+    /**
+     * The updated key.
+     */
+    public static final String UPDATED = "updated";
+
+    /**
+     * The unchanged key.
+     */
+    public static final String UNCHANGED = "unchanged";
+
     /**
      * Private constructor for utility class.
      */
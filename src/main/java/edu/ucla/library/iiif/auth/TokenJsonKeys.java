@@ -4,7 +4,7 @@ package edu.ucla.library.iiif.auth;
 /**
  * A constants class for keys used in the JSON for representing access tokens.
  * <p>
- * Tokens are passed around as base64-encoded JSON. Decoded, they look like this:
+ * Unless access tokens are signed, they're passed around as base64-encoded JSON. Decoded, they look like this:
  *
  * <pre>
  * {
@@ -12,6 +12,9 @@ package edu.ucla.library.iiif.auth;
  *   "campusNetwork": true
  * }
  * </pre>
+ *
+ * Signed tokens are JSON Web Tokens whose claims are the same, plus {@link #ISSUED_AT} and, if tokens expire,
+ * {@link #EXPIRATION_TIME}.
  */
 public final class TokenJsonKeys {
 
@@ -30,6 +33,21 @@ public final class TokenJsonKeys {
      */
     public static final String SINAI_AFFILIATE = "sinaiAffiliate";
 
+    /**
+     * The JSON key for the time at which a signed access token was issued, in seconds since the epoch.
+     */
+    public static final String ISSUED_AT = "iat";
+
+    /**
+     * The JSON key for the time after which a signed access token is no longer valid, in seconds since the epoch.
+     */
+    public static final String EXPIRATION_TIME = "exp";
+
+    /**
+     * The JSON key for the list of public keys that signed access tokens can be verified with.
+     */
+    public static final String KEYS = "keys";
+
     /**
      * Private constructor for utility class.
      */
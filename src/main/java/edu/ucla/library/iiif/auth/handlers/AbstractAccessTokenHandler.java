@@ -55,7 +55,7 @@ public abstract class AbstractAccessTokenHandler implements Handler<RoutingConte
     protected final Optional<Integer> myExpiresIn;
 
     /**
-     * The service proxy for accessing the secret key.
+     * The service for accessing the secret key.
      */
     protected final AccessCookieService myAccessCookieService;
 
@@ -71,9 +71,21 @@ public abstract class AbstractAccessTokenHandler implements Handler<RoutingConte
      * @param aConfig A configuration
      */
     public AbstractAccessTokenHandler(final Vertx aVertx, final JsonObject aConfig) {
+        this(aVertx, aConfig, AccessCookieService.createProxy(aVertx));
+    }
+
+    /**
+     * Creates a handler that exchanges access cookies for access tokens.
+     *
+     * @param aVertx The Vert.x instance
+     * @param aConfig A configuration
+     * @param aAccessCookieService An access cookie service, either a proxy or a local instance
+     */
+    public AbstractAccessTokenHandler(final Vertx aVertx, final JsonObject aConfig,
+            final AccessCookieService aAccessCookieService) {
         myConfig = aConfig;
         myExpiresIn = Optional.ofNullable(aConfig.getInteger(Config.ACCESS_TOKEN_EXPIRES_IN));
-        myAccessCookieService = AccessCookieService.createProxy(aVertx);
+        myAccessCookieService = aAccessCookieService;
         myHtmlTemplateEngine = HandlebarsTemplateEngine.create(aVertx);
     }
 
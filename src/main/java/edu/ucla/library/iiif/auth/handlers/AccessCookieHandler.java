@@ -86,10 +86,22 @@ public class AccessCookieHandler implements Handler<RoutingContext> {
      * @param aConfig A configuration
      */
     public AccessCookieHandler(final Vertx aVertx, final JsonObject aConfig) {
+        this(aVertx, aConfig, AccessCookieService.createProxy(aVertx));
+    }
+
+    /**
+     * Creates a handler that retrieves an access cookie for the client.
+     *
+     * @param aVertx The Vert.x instance
+     * @param aConfig A configuration
+     * @param aAccessCookieService An access cookie service, either a proxy or a local instance
+     */
+    public AccessCookieHandler(final Vertx aVertx, final JsonObject aConfig,
+            final AccessCookieService aAccessCookieService) {
         myConfig = aConfig;
         myHtmlTemplateEngine = HandlebarsTemplateEngine.create(aVertx);
         myCampusNetworkSubnets = new Cidr4Trie<>();
-        myAccessCookieService = AccessCookieService.createProxy(aVertx);
+        myAccessCookieService = aAccessCookieService;
         myWindowCloseDelay = Optional.ofNullable(aConfig.getInteger(Config.ACCESS_COOKIE_WINDOW_CLOSE_DELAY));
         myCookieDomain = Optional.ofNullable(aConfig.getString(Config.ACCESS_COOKIE_DOMAIN));
 
@@ -5,6 +5,7 @@ import info.freelibrary.util.HTTP;
 import info.freelibrary.util.Logger;
 import info.freelibrary.util.LoggerFactory;
 
+import edu.ucla.library.iiif.auth.Config;
 import edu.ucla.library.iiif.auth.Error;
 import edu.ucla.library.iiif.auth.MessageCodes;
 import edu.ucla.library.iiif.auth.Param;
@@ -12,12 +13,16 @@ import edu.ucla.library.iiif.auth.ResponseJsonKeys;
 import edu.ucla.library.iiif.auth.services.DatabaseService;
 import edu.ucla.library.iiif.auth.utils.MediaType;
 
+import io.netty.handler.codec.http.HttpResponseStatus;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.http.HttpHeaders;
 import io.vertx.core.http.HttpServerRequest;
 import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.Json;
 import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.MIMEHeader;
 import io.vertx.ext.web.RoutingContext;
 import io.vertx.serviceproxy.ServiceException;
 
@@ -32,59 +37,204 @@ public class AccessModeHandler implements Handler<RoutingContext> {
     private static final Logger LOGGER = LoggerFactory.getLogger(AccessModeHandler.class, MessageCodes.BUNDLE);
 
     /**
-     * The service proxy for accessing the database.
+     * The value of the Cache-Control header when responses may not be reused without revalidation.
      */
-    private final DatabaseService myDatabaseServiceProxy;
+    private static final String NO_CACHE = "no-cache";
+
+    /**
+     * A placeholder for the item identifier in the body of the not-found response.
+     */
+    private static final String ID_PLACEHOLDER = "${id}";
+
+    /**
+     * The JSON response bodies, indexed by access mode.
+     */
+    private static final Buffer[] JSON_BODIES = new Buffer[AccessMode.values().length];
+
+    /**
+     * The plain text response bodies, indexed by access mode.
+     */
+    private static final Buffer[] TEXT_BODIES = new Buffer[AccessMode.values().length];
+
+    /**
+     * The entity tags of the JSON response bodies, indexed by access mode.
+     */
+    private static final String[] JSON_ETAGS = new String[AccessMode.values().length];
+
+    /**
+     * The entity tags of the plain text response bodies, indexed by access mode.
+     */
+    private static final String[] TEXT_ETAGS = new String[AccessMode.values().length];
+
+    /**
+     * The error response bodies, indexed by error; the one for {@link Error#NOT_FOUND} is a template.
+     */
+    private static final String[] ERROR_BODIES = new String[Error.values().length];
+
+    static {
+        for (final AccessMode mode : AccessMode.values()) {
+            final int index = mode.ordinal();
+
+            final JsonObject json = new JsonObject().put(ResponseJsonKeys.ACCESS_MODE, mode);
+
+            JSON_BODIES[index] = Buffer.buffer(json.encodePrettily());
+            TEXT_BODIES[index] = Buffer.buffer(mode.name());
+            // Each representation needs its own tag, since a strong tag identifies exactly one sequence of bytes
+            JSON_ETAGS[index] = '"' + mode.name() + '"';
+            TEXT_ETAGS[index] = '"' + mode.name() + ".txt" + '"';
+        }
+
+        for (final Error error : Error.values()) {
+            final String message = error == Error.NOT_FOUND ? LOGGER.getMessage(MessageCodes.AUTH_004, ID_PLACEHOLDER)
+                    : LOGGER.getMessage(MessageCodes.AUTH_005);
+
+            ERROR_BODIES[error.ordinal()] = new JsonObject().put(ResponseJsonKeys.ERROR, error)
+                    .put(ResponseJsonKeys.MESSAGE, message).encodePrettily();
+        }
+    }
+
+    /**
+     * The service for accessing the database.
+     */
+    private final DatabaseService myDatabaseService;
+
+    /**
+     * The value of the Cache-Control header for successful responses.
+     */
+    private final String myCacheControl;
 
     /**
      * Creates a handler that checks the access mode of an ID.
      *
      * @param aVertx The Vert.x instance
+     * @param aConfig A configuration
+     */
+    public AccessModeHandler(final Vertx aVertx, final JsonObject aConfig) {
+        this(aConfig, DatabaseService.createProxy(aVertx));
+    }
+
+    /**
+     * Creates a handler that checks the access mode of an ID.
+     *
+     * @param aConfig A configuration
+     * @param aDatabaseService A database service, either a proxy or a local instance
      */
-    public AccessModeHandler(final Vertx aVertx) {
-        myDatabaseServiceProxy = DatabaseService.createProxy(aVertx);
+    public AccessModeHandler(final JsonObject aConfig, final DatabaseService aDatabaseService) {
+        final long maxAge = aConfig.getLong(Config.ACCESS_MODE_MAX_AGE, 0L);
+
+        myDatabaseService = aDatabaseService;
+        myCacheControl = maxAge > 0 ? "public, max-age=" + maxAge : NO_CACHE;
     }
 
     @Override
     public void handle(final RoutingContext aContext) {
         final HttpServerRequest request = aContext.request();
         final String id = request.getParam(Param.ID);
-        final HttpServerResponse response = aContext.response() //
-                .putHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON.toString());
+        final HttpServerResponse response = aContext.response();
 
-        myDatabaseServiceProxy.getAccessMode(id).onSuccess(accessMode -> {
-            final JsonObject responseData = new JsonObject() //
-                    .put(ResponseJsonKeys.ACCESS_MODE, AccessMode.values()[accessMode]);
+        myDatabaseService.getAccessMode(id).onSuccess(accessMode -> {
+            final boolean isText = prefersText(aContext);
+            final String eTag = isText ? TEXT_ETAGS[accessMode] : JSON_ETAGS[accessMode];
 
-            response.setStatusCode(HTTP.OK).end(responseData.encodePrettily());
+            response.putHeader(HttpHeaders.ETAG, eTag).putHeader(HttpHeaders.CACHE_CONTROL, myCacheControl)
+                    .putHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+
+            if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), eTag)) {
+                response.setStatusCode(HttpResponseStatus.NOT_MODIFIED.code()).end();
+            } else if (isText) {
+                response.putHeader(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_PLAIN.toString()).setStatusCode(HTTP.OK)
+                        .end(TEXT_BODIES[accessMode]);
+            } else {
+                response.putHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON.toString())
+                        .setStatusCode(HTTP.OK).end(JSON_BODIES[accessMode]);
+            }
         }).onFailure(error -> {
             if (error instanceof ServiceException) {
                 final ServiceException details = (ServiceException) error;
+                final String errorBody = ERROR_BODIES[details.failureCode()];
                 final int statusCode;
-                final String errorMessage;
-                final JsonObject errorData;
 
                 if (details.failureCode() == Error.NOT_FOUND.ordinal()) {
                     statusCode = HTTP.NOT_FOUND;
-                    errorMessage = LOGGER.getMessage(MessageCodes.AUTH_004, id);
                     LOGGER.info(MessageCodes.AUTH_006, request.method(), request.absoluteURI(), statusCode);
                 } else {
                     statusCode = HTTP.INTERNAL_SERVER_ERROR;
-                    errorMessage = LOGGER.getMessage(MessageCodes.AUTH_005);
                     LOGGER.error(MessageCodes.AUTH_006, request.method(), request.absoluteURI(), details.getMessage());
                 }
 
-                errorData = new JsonObject() //
-                        .put(ResponseJsonKeys.ERROR, Error.values()[details.failureCode()]) //
-                        .put(ResponseJsonKeys.MESSAGE, errorMessage);
-
-                response.setStatusCode(statusCode).end(errorData.encodePrettily());
+                response.putHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON.toString())
+                        .setStatusCode(statusCode).end(statusCode == HTTP.NOT_FOUND
+                                ? errorBody.replace(ID_PLACEHOLDER, getJsonStringContent(id)) : errorBody);
             } else {
                 aContext.fail(error);
             }
         });
     }
 
+    /**
+     * Checks whether the client prefers the plain text representation of an access mode to the JSON one.
+     *
+     * @param aContext A routing context
+     * @return Whether the plain text representation should be sent
+     */
+    private static boolean prefersText(final RoutingContext aContext) {
+        // The accepted media types are sorted by preference
+        for (final MIMEHeader accept : aContext.parsedHeaders().accept()) {
+            final String type = accept.component();
+            final String subtype = accept.subComponent();
+
+            if (accept.weight() <= 0) {
+                continue;
+            }
+
+            if ("text".equals(type) && ("plain".equals(subtype) || "*".equals(subtype))) {
+                return true;
+            }
+
+            if ("application".equals(type) && ("json".equals(subtype) || "*".equals(subtype)) || "*".equals(type)) {
+                return false;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Encodes a string for inclusion between the quotation marks of a JSON string.
+     *
+     * @param aString A string
+     * @return The encoded string
+     */
+    private static String getJsonStringContent(final String aString) {
+        final String jsonString = Json.encode(aString);
+
+        return jsonString.substring(1, jsonString.length() - 1);
+    }
+
+    /**
+     * Checks whether an If-None-Match header matches an entity tag, using the weak comparison that RFC 9110 requires.
+     *
+     * @param aIfNoneMatch The value of an If-None-Match header, which may be null
+     * @param aETag An entity tag
+     * @return Whether the header matches the entity tag
+     */
+    private static boolean matches(final String aIfNoneMatch, final String aETag) {
+        if (aIfNoneMatch == null) {
+            return false;
+        }
+
+        for (final String eTag : aIfNoneMatch.split(",")) {
+            final String trimmedETag = eTag.trim();
+
+            if ("*".equals(trimmedETag) || aETag.equals(trimmedETag) || trimmedETag.startsWith("W/") &&
+                    aETag.equals(trimmedETag.substring(2))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
     /**
      * Expected access mode values: OPEN, TIERED, or ALL_OR_NOTHING. These determine the level of access a requested
      * item is allowed.
@@ -0,0 +1,110 @@
+
+package edu.ucla.library.iiif.auth.handlers;
+
+import info.freelibrary.util.HTTP;
+import info.freelibrary.util.Logger;
+import info.freelibrary.util.LoggerFactory;
+
+import edu.ucla.library.iiif.auth.Error;
+import edu.ucla.library.iiif.auth.MessageCodes;
+import edu.ucla.library.iiif.auth.ResponseJsonKeys;
+import edu.ucla.library.iiif.auth.handlers.AccessModeHandler.AccessMode;
+import edu.ucla.library.iiif.auth.services.DatabaseService;
+import edu.ucla.library.iiif.auth.utils.MediaType;
+
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+import io.vertx.serviceproxy.ServiceException;
+
+/**
+ * Handler that handles requests for the access modes of multiple items at once.
+ */
+public class AccessModesHandler implements Handler<RoutingContext> {
+
+    /**
+     * The handler's logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(AccessModesHandler.class, MessageCodes.BUNDLE);
+
+    /**
+     * The service for accessing the database.
+     */
+    private final DatabaseService myDatabaseService;
+
+    /**
+     * Creates a handler that checks the access modes of multiple IDs.
+     *
+     * @param aVertx The Vert.x instance
+     */
+    public AccessModesHandler(final Vertx aVertx) {
+        this(DatabaseService.createProxy(aVertx));
+    }
+
+    /**
+     * Creates a handler that checks the access modes of multiple IDs.
+     *
+     * @param aDatabaseService A database service, either a proxy or a local instance
+     */
+    public AccessModesHandler(final DatabaseService aDatabaseService) {
+        myDatabaseService = aDatabaseService;
+    }
+
+    @Override
+    public void handle(final RoutingContext aContext) {
+        final HttpServerRequest request = aContext.request();
+        final HttpServerResponse response = aContext.response() //
+                .putHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON.toString());
+
+        myDatabaseService.getAccessModes(aContext.body().asJsonArray()).onSuccess(accessModes -> {
+            final JsonObject responseData = new JsonObject();
+
+            for (final String id : accessModes.fieldNames()) {
+                final Integer accessMode = accessModes.getInteger(id);
+
+                if (accessMode != null) {
+                    responseData.put(id, new JsonObject().put(ResponseJsonKeys.ACCESS_MODE,
+                            AccessMode.values()[accessMode]));
+                } else {
+                    responseData.put(id, new JsonObject().put(ResponseJsonKeys.ERROR, Error.NOT_FOUND));
+                }
+            }
+
+            response.setStatusCode(HTTP.OK).end(responseData.encodePrettily());
+        }).onFailure(error -> {
+            if (error instanceof ServiceException) {
+                final ServiceException details = (ServiceException) error;
+                final int statusCode;
+                final String errorMessage;
+                final JsonObject errorData;
+
+                if (details.failureCode() == Error.MALFORMED_INPUT_DATA.ordinal()) {
+                    statusCode = HTTP.BAD_REQUEST;
+                    errorMessage = LOGGER.getMessage(MessageCodes.AUTH_014, error.getMessage());
+                } else {
+                    statusCode = HTTP.INTERNAL_SERVER_ERROR;
+                    errorMessage = LOGGER.getMessage(MessageCodes.AUTH_005);
+                }
+
+                errorData = new JsonObject() //
+                        .put(ResponseJsonKeys.ERROR, Error.values()[details.failureCode()]) //
+                        .put(ResponseJsonKeys.MESSAGE, errorMessage);
+
+                response.setStatusCode(statusCode).end(errorData.encodePrettily());
+
+                // A bad list of IDs is the client's problem, not ours
+                if (statusCode == HTTP.BAD_REQUEST) {
+                    LOGGER.debug(MessageCodes.AUTH_006, request.method(), request.absoluteURI(), details.getMessage());
+                } else {
+                    LOGGER.error(MessageCodes.AUTH_006, request.method(), request.absoluteURI(), details.getMessage());
+                }
+            } else {
+                aContext.fail(error);
+            }
+        });
+    }
+}
@@ -1,12 +1,11 @@
 
 package edu.ucla.library.iiif.auth.handlers;
 
-import java.util.Base64;
-
 import edu.ucla.library.iiif.auth.Config;
 import edu.ucla.library.iiif.auth.CookieJsonKeys;
 import edu.ucla.library.iiif.auth.CookieNames;
 import edu.ucla.library.iiif.auth.TokenJsonKeys;
+import edu.ucla.library.iiif.auth.services.AccessCookieService;
 
 import io.vertx.core.Future;
 import io.vertx.core.Vertx;
@@ -29,6 +28,18 @@ public final class AccessTokenHandler extends AbstractAccessTokenHandler {
         super(aVertx, aConfig);
     }
 
+    /**
+     * Creates a handler that exchanges access cookies for access tokens.
+     *
+     * @param aVertx The Vert.x instance
+     * @param aConfig A configuration
+     * @param aAccessCookieService An access cookie service, either a proxy or a local instance
+     */
+    public AccessTokenHandler(final Vertx aVertx, final JsonObject aConfig,
+            final AccessCookieService aAccessCookieService) {
+        super(aVertx, aConfig, aAccessCookieService);
+    }
+
     @Override
     public Future<String> createAccessToken(final RoutingContext aContext) {
         final String clientIpAddress = aContext.request().remoteAddress().hostAddress();
@@ -36,12 +47,11 @@ public final class AccessTokenHandler extends AbstractAccessTokenHandler {
         final String cookieValue = cookie.getValue();
 
         return getAccessCookieService().decryptCookie(cookieValue, clientIpAddress).compose(cookieData -> {
-            final JsonObject unencodedAccessToken =
+            final JsonObject claims =
                     new JsonObject().put(TokenJsonKeys.VERSION, getConfig().getString(Config.HAUTH_VERSION))
                             .put(TokenJsonKeys.CAMPUS_NETWORK, cookieData.getBoolean(CookieJsonKeys.CAMPUS_NETWORK));
-            final String accessToken = Base64.getEncoder().encodeToString(unencodedAccessToken.encode().getBytes());
 
-            return Future.succeededFuture(accessToken);
+            return getAccessCookieService().createAccessToken(claims);
         });
     }
 }
@@ -0,0 +1,65 @@
+
+package edu.ucla.library.iiif.auth.handlers;
+
+import edu.ucla.library.iiif.auth.MessageCodes;
+import edu.ucla.library.iiif.auth.services.AccessCookieService;
+import edu.ucla.library.iiif.auth.utils.MediaType;
+
+import info.freelibrary.util.HTTP;
+import info.freelibrary.util.Logger;
+import info.freelibrary.util.LoggerFactory;
+
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.ext.web.RoutingContext;
+
+/**
+ * A handler that publishes the public keys that signed access tokens can be verified with, as a JSON Web Key Set.
+ */
+public class AccessTokenKeysHandler implements Handler<RoutingContext> {
+
+    /**
+     * The handler's logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(AccessTokenKeysHandler.class, MessageCodes.BUNDLE);
+
+    /**
+     * The value of the Cache-Control header; the keys only change when Hauth is reconfigured.
+     */
+    private static final String CACHE_CONTROL = "public, max-age=3600";
+
+    /**
+     * The service that signs access tokens.
+     */
+    private final AccessCookieService myAccessCookieService;
+
+    /**
+     * Creates a handler that publishes the access token verification keys.
+     *
+     * @param aVertx A Vert.x instance
+     */
+    public AccessTokenKeysHandler(final Vertx aVertx) {
+        this(AccessCookieService.createProxy(aVertx));
+    }
+
+    /**
+     * Creates a handler that publishes the access token verification keys.
+     *
+     * @param aAccessCookieService An access cookie service, either a proxy or a local instance
+     */
+    public AccessTokenKeysHandler(final AccessCookieService aAccessCookieService) {
+        myAccessCookieService = aAccessCookieService;
+    }
+
+    @Override
+    public void handle(final RoutingContext aContext) {
+        LOGGER.debug(MessageCodes.AUTH_021, aContext.request().headers().entries());
+
+        myAccessCookieService.getAccessTokenKeys().onSuccess(keys -> {
+            aContext.response().putHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON.toString())
+                    .putHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL).setStatusCode(HTTP.OK)
+                    .end(keys.encodePrettily());
+        }).onFailure(aContext::fail);
+    }
+}
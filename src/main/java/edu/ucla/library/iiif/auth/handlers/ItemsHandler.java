@@ -35,9 +35,9 @@ public class ItemsHandler implements Handler<RoutingContext> {
     private static final Logger LOGGER = LoggerFactory.getLogger(ItemsHandler.class, MessageCodes.BUNDLE);
 
     /**
-     * The service proxy for accessing the database.
+     * The service for accessing the database.
      */
-    private final DatabaseService myDatabaseServiceProxy;
+    private final DatabaseService myDatabaseService;
 
     /**
      * Creates a handler that adds items to the database.
@@ -45,7 +45,16 @@ public class ItemsHandler implements Handler<RoutingContext> {
      * @param aVertx The Vert.x instance
      */
     public ItemsHandler(final Vertx aVertx) {
-        myDatabaseServiceProxy = DatabaseService.createProxy(aVertx);
+        this(DatabaseService.createProxy(aVertx));
+    }
+
+    /**
+     * Creates a handler that adds items to the database.
+     *
+     * @param aDatabaseService A database service, either a proxy or a local instance
+     */
+    public ItemsHandler(final DatabaseService aDatabaseService) {
+        myDatabaseService = aDatabaseService;
     }
 
     @Override
@@ -56,8 +65,8 @@ public class ItemsHandler implements Handler<RoutingContext> {
 
         LOGGER.debug(MessageCodes.AUTH_021, request.headers().entries());
 
-        myDatabaseServiceProxy.setItems(aContext.body().asJsonArray()).onSuccess(result -> {
-            response.setStatusCode(HTTP.CREATED).end();
+        myDatabaseService.setItems(aContext.body().asJsonArray()).onSuccess(counts -> {
+            response.setStatusCode(HTTP.CREATED).end(counts.encodePrettily());
         }).onFailure(error -> {
             if (error instanceof ServiceException) {
                 final ServiceException details = (ServiceException) error;
@@ -77,6 +86,12 @@ public class ItemsHandler implements Handler<RoutingContext> {
                         .put(ResponseJsonKeys.ERROR, Error.values()[details.failureCode()]) //
                         .put(ResponseJsonKeys.MESSAGE, errorMessage);
 
+                // Malformed items are listed by their positions in the request body
+                if (details.getDebugInfo() != null && details.getDebugInfo().containsKey(ResponseJsonKeys.ERRORS)) {
+                    errorData.put(ResponseJsonKeys.ERRORS,
+                            details.getDebugInfo().getJsonArray(ResponseJsonKeys.ERRORS));
+                }
+
                 response.setStatusCode(statusCode).end(errorData.encodePrettily());
 
                 LOGGER.error(MessageCodes.AUTH_006, request.method(), request.absoluteURI(), details.getMessage());
@@ -107,7 +122,7 @@ public class ItemsHandler implements Handler<RoutingContext> {
             aContext.response().putHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON.toString())
                     .setStatusCode(HTTP.BAD_REQUEST).end(responseData.encodePrettily());
 
-            LOGGER.error(MessageCodes.AUTH_006, request.method(), request.absoluteURI(), errorMessage);
+            LOGGER.debug(MessageCodes.AUTH_006, request.method(), request.absoluteURI(), errorMessage);
         } else {
             aContext.next();
             LOGGER.error(MessageCodes.AUTH_010, error.toString());
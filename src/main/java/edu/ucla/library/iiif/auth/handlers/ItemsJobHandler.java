@@ -0,0 +1,77 @@
+
+package edu.ucla.library.iiif.auth.handlers;
+
+import info.freelibrary.util.HTTP;
+import info.freelibrary.util.Logger;
+import info.freelibrary.util.LoggerFactory;
+
+import edu.ucla.library.iiif.auth.Error;
+import edu.ucla.library.iiif.auth.MessageCodes;
+import edu.ucla.library.iiif.auth.Param;
+import edu.ucla.library.iiif.auth.ResponseJsonKeys;
+import edu.ucla.library.iiif.auth.services.DatabaseService;
+import edu.ucla.library.iiif.auth.utils.MediaType;
+
+import io.vertx.core.Handler;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+import io.vertx.serviceproxy.ServiceException;
+
+/**
+ * Handler that reports the status of a job that adds items to the database in the background.
+ */
+public class ItemsJobHandler implements Handler<RoutingContext> {
+
+    /**
+     * The handler's logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ItemsJobHandler.class, MessageCodes.BUNDLE);
+
+    /**
+     * The service for accessing the database.
+     */
+    private final DatabaseService myDatabaseService;
+
+    /**
+     * Creates a handler that reports the status of a job that adds items to the database.
+     *
+     * @param aDatabaseService A database service, either a proxy or a local instance
+     */
+    public ItemsJobHandler(final DatabaseService aDatabaseService) {
+        myDatabaseService = aDatabaseService;
+    }
+
+    @Override
+    public void handle(final RoutingContext aContext) {
+        final HttpServerRequest request = aContext.request();
+        final HttpServerResponse response = aContext.response() //
+                .putHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON.toString());
+        final String id = request.getParam(Param.ID);
+
+        myDatabaseService.getItemsJob(id).onSuccess(status -> {
+            // A running job's status changes from one request to the next
+            response.putHeader(HttpHeaders.CACHE_CONTROL, "no-store").setStatusCode(HTTP.OK)
+                    .end(status.encodePrettily());
+        }).onFailure(error -> {
+            final boolean isNotFound = error instanceof ServiceException &&
+                    ((ServiceException) error).failureCode() == Error.NOT_FOUND.ordinal();
+            final JsonObject errorData;
+
+            if (isNotFound) {
+                errorData = new JsonObject().put(ResponseJsonKeys.ERROR, Error.NOT_FOUND)
+                        .put(ResponseJsonKeys.MESSAGE, LOGGER.getMessage(MessageCodes.AUTH_052, id));
+            } else {
+                errorData = new JsonObject().put(ResponseJsonKeys.ERROR, Error.INTERNAL_ERROR)
+                        .put(ResponseJsonKeys.MESSAGE, LOGGER.getMessage(MessageCodes.AUTH_005));
+            }
+
+            response.setStatusCode(isNotFound ? HTTP.NOT_FOUND : HTTP.INTERNAL_SERVER_ERROR)
+                    .end(errorData.encodePrettily());
+
+            LOGGER.error(MessageCodes.AUTH_006, request.method(), request.absoluteURI(), error.getMessage());
+        });
+    }
+}
@@ -0,0 +1,71 @@
+
+package edu.ucla.library.iiif.auth.handlers;
+
+import info.freelibrary.util.HTTP;
+import info.freelibrary.util.Logger;
+import info.freelibrary.util.LoggerFactory;
+
+import edu.ucla.library.iiif.auth.Error;
+import edu.ucla.library.iiif.auth.MessageCodes;
+import edu.ucla.library.iiif.auth.ResponseJsonKeys;
+import edu.ucla.library.iiif.auth.services.DatabaseService;
+import edu.ucla.library.iiif.auth.utils.MediaType;
+
+import io.vertx.core.Handler;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+
+/**
+ * Handler that submits jobs that add items to the database in the background.
+ */
+public class ItemsJobsHandler implements Handler<RoutingContext> {
+
+    /**
+     * The path under which the status of each job can be found, by job ID.
+     */
+    static final String ITEMS_JOBS_PATH = "/items/jobs/";
+
+    /**
+     * The handler's logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ItemsJobsHandler.class, MessageCodes.BUNDLE);
+
+    /**
+     * The service for accessing the database.
+     */
+    private final DatabaseService myDatabaseService;
+
+    /**
+     * Creates a handler that submits jobs that add items to the database.
+     *
+     * @param aDatabaseService A database service, either a proxy or a local instance
+     */
+    public ItemsJobsHandler(final DatabaseService aDatabaseService) {
+        myDatabaseService = aDatabaseService;
+    }
+
+    @Override
+    public void handle(final RoutingContext aContext) {
+        final HttpServerRequest request = aContext.request();
+        final HttpServerResponse response = aContext.response() //
+                .putHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON.toString());
+
+        LOGGER.debug(MessageCodes.AUTH_021, request.headers().entries());
+
+        myDatabaseService.submitItemsJob(aContext.body().asJsonArray()).onSuccess(id -> {
+            response.setStatusCode(HTTP.ACCEPTED).putHeader(HttpHeaders.LOCATION, ITEMS_JOBS_PATH + id)
+                    .end(new JsonObject().put(ResponseJsonKeys.ID, id).encodePrettily());
+        }).onFailure(error -> {
+            final JsonObject errorData = new JsonObject() //
+                    .put(ResponseJsonKeys.ERROR, Error.INTERNAL_ERROR) //
+                    .put(ResponseJsonKeys.MESSAGE, LOGGER.getMessage(MessageCodes.AUTH_005));
+
+            response.setStatusCode(HTTP.INTERNAL_SERVER_ERROR).end(errorData.encodePrettily());
+
+            LOGGER.error(MessageCodes.AUTH_006, request.method(), request.absoluteURI(), error.getMessage());
+        });
+    }
+}
@@ -0,0 +1,311 @@
+
+package edu.ucla.library.iiif.auth.handlers;
+
+import info.freelibrary.util.HTTP;
+import info.freelibrary.util.Logger;
+import info.freelibrary.util.LoggerFactory;
+
+import edu.ucla.library.iiif.auth.Config;
+import edu.ucla.library.iiif.auth.Error;
+import edu.ucla.library.iiif.auth.MessageCodes;
+import edu.ucla.library.iiif.auth.ResponseJsonKeys;
+import edu.ucla.library.iiif.auth.services.DatabaseService;
+import edu.ucla.library.iiif.auth.utils.MediaType;
+
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.parsetools.JsonEvent;
+import io.vertx.core.parsetools.JsonEventType;
+import io.vertx.core.parsetools.JsonParser;
+import io.vertx.ext.web.RoutingContext;
+import io.vertx.serviceproxy.ServiceException;
+
+/**
+ * Handler that adds items to the database as the request body arrives, rather than after all of it has been read.
+ * <p>
+ * The request body has the same shape as that of the "postItems" operation, but it's parsed incrementally and the
+ * items are set in chunks of {@link Config#ITEMS_STREAM_CHUNK_SIZE}. Reading from the request is paused while a chunk
+ * is being set, so no more than one chunk is held in memory however large the request is. Each chunk is set on its
+ * own, so if one fails, the chunks before it have already been set.
+ */
+public class ItemsStreamHandler implements Handler<RoutingContext> {
+
+    /**
+     * The handler's logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ItemsStreamHandler.class, MessageCodes.BUNDLE);
+
+    /**
+     * The default number of items to set at once.
+     */
+    private static final int DEFAULT_CHUNK_SIZE = 1000;
+
+    /**
+     * The service for accessing the database.
+     */
+    private final DatabaseService myDatabaseService;
+
+    /**
+     * The number of items to set at once.
+     */
+    private final int myChunkSize;
+
+    /**
+     * Creates a handler that adds items to the database as they arrive.
+     *
+     * @param aConfig A configuration
+     * @param aDatabaseService A database service, either a proxy or a local instance
+     */
+    public ItemsStreamHandler(final JsonObject aConfig, final DatabaseService aDatabaseService) {
+        myDatabaseService = aDatabaseService;
+        myChunkSize = Math.max(1, aConfig.getInteger(Config.ITEMS_STREAM_CHUNK_SIZE, DEFAULT_CHUNK_SIZE));
+    }
+
+    @Override
+    public void handle(final RoutingContext aContext) {
+        LOGGER.debug(MessageCodes.AUTH_021, aContext.request().headers().entries());
+
+        new Upload(aContext).start();
+    }
+
+    /**
+     * The state of a single request.
+     */
+    private final class Upload {
+
+        /**
+         * The routing context of the request.
+         */
+        private final RoutingContext myContext;
+
+        /**
+         * The parser of the request body.
+         */
+        private final JsonParser myParser;
+
+        /**
+         * The items that have been read but not yet set.
+         */
+        private JsonArray myChunk = new JsonArray();
+
+        /**
+         * The number of items that have been set.
+         */
+        private long myCount;
+
+        /**
+         * The numbers of items that have been inserted, updated, and left unchanged.
+         */
+        private final JsonObject myCounts = new JsonObject().put(ResponseJsonKeys.INSERTED, 0L)
+                .put(ResponseJsonKeys.UPDATED, 0L).put(ResponseJsonKeys.UNCHANGED, 0L);
+
+        /**
+         * Whether the start of the array has been read.
+         */
+        private boolean isStarted;
+
+        /**
+         * Whether the request has already been answered with an error.
+         */
+        private boolean isFailed;
+
+        /**
+         * Creates the state of a request.
+         *
+         * @param aContext The routing context of the request
+         */
+        private Upload(final RoutingContext aContext) {
+            myContext = aContext;
+            myParser = JsonParser.newParser(aContext.request()).objectValueMode();
+        }
+
+        /**
+         * Starts reading the request body.
+         */
+        private void start() {
+            myParser.handler(this::handleEvent).exceptionHandler(this::handleParseError).endHandler(unused -> {
+                if (!isFailed && !isStarted) {
+                    fail(HTTP.BAD_REQUEST, Error.INVALID_JSONARRAY, LOGGER.getMessage(MessageCodes.AUTH_045));
+                } else if (!isFailed) {
+                    setChunk().onSuccess(result -> {
+                        // A parse error can still be reported after the end of the body, while the last chunk is set
+                        if (isFailed) {
+                            return;
+                        }
+
+                        myContext.response().putHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON.toString())
+                                .setStatusCode(HTTP.CREATED).end(myCounts.encodePrettily());
+                        LOGGER.debug(MessageCodes.AUTH_046, myCount);
+                    });
+                }
+            });
+
+            // The request may have been paused while its API key was being checked
+            myParser.resume();
+        }
+
+        /**
+         * Handles a part of the request body.
+         *
+         * @param aEvent A parse event
+         */
+        private void handleEvent(final JsonEvent aEvent) {
+            final JsonEventType type = aEvent.type();
+
+            if (isFailed) {
+                return;
+            }
+
+            if (!isStarted) {
+                // The body must be an array
+                if (type == JsonEventType.START_ARRAY) {
+                    isStarted = true;
+                } else {
+                    fail(HTTP.BAD_REQUEST, Error.INVALID_JSONARRAY, LOGGER.getMessage(MessageCodes.AUTH_045));
+                }
+            } else if (type == JsonEventType.VALUE && aEvent.value() instanceof JsonObject) {
+                myChunk.add(aEvent.value());
+
+                if (myChunk.size() >= myChunkSize) {
+                    // Stop reading until the database has caught up
+                    myParser.pause();
+                    setChunk().onSuccess(result -> {
+                        if (!isFailed) {
+                            myParser.resume();
+                        }
+                    });
+                }
+            } else if (type != JsonEventType.END_ARRAY) {
+                fail(HTTP.BAD_REQUEST, Error.INVALID_JSONARRAY, LOGGER.getMessage(MessageCodes.AUTH_045));
+            }
+        }
+
+        /**
+         * Sets the items that have been read but not yet set.
+         *
+         * @return A Future that succeeds once the items have been set, or fails once the request has been answered with
+         *         an error
+         */
+        private Future<Void> setChunk() {
+            final JsonArray chunk = myChunk;
+
+            if (chunk.isEmpty()) {
+                return Future.succeededFuture();
+            }
+
+            myChunk = new JsonArray();
+
+            return myDatabaseService.setItems(chunk).onSuccess(counts -> {
+                myCount += chunk.size();
+
+                for (final String key : myCounts.fieldNames()) {
+                    myCounts.put(key, myCounts.getLong(key) + counts.getLong(key));
+                }
+            }).<Void>mapEmpty().onFailure(error -> {
+                final Error errorCode;
+
+                // The request may have been answered with an error, such as a parse error, while the chunk was set
+                if (isFailed) {
+                    return;
+                }
+
+                errorCode = error instanceof ServiceException
+                        ? Error.values()[((ServiceException) error).failureCode()] : Error.INTERNAL_ERROR;
+
+                if (errorCode == Error.MALFORMED_INPUT_DATA) {
+                    fail(HTTP.BAD_REQUEST, errorCode, LOGGER.getMessage(MessageCodes.AUTH_014, error.getMessage()),
+                            getItemErrors((ServiceException) error));
+                } else {
+                    fail(HTTP.INTERNAL_SERVER_ERROR, errorCode, LOGGER.getMessage(MessageCodes.AUTH_005));
+                }
+            });
+        }
+
+        /**
+         * Gets the malformed items in the chunk that was just set, if any, by their positions in the request body.
+         *
+         * @param anError The error that setting the chunk failed with
+         * @return The malformed items, or null if the error doesn't list them
+         */
+        private JsonArray getItemErrors(final ServiceException anError) {
+            final JsonObject debugInfo = anError.getDebugInfo();
+            final JsonArray errors;
+
+            if (debugInfo == null || !debugInfo.containsKey(ResponseJsonKeys.ERRORS)) {
+                return null;
+            }
+
+            errors = new JsonArray();
+
+            // The positions are within the chunk, which starts after the items that have already been set
+            for (final Object error : debugInfo.getJsonArray(ResponseJsonKeys.ERRORS)) {
+                final JsonObject itemError = ((JsonObject) error).copy();
+                final int index = itemError.getInteger(ResponseJsonKeys.INDEX);
+
+                errors.add(itemError.put(ResponseJsonKeys.INDEX, myCount + index));
+            }
+
+            return errors;
+        }
+
+        /**
+         * Handles a request body that isn't JSON.
+         *
+         * @param aError The parse error
+         */
+        private void handleParseError(final Throwable aError) {
+            if (!isFailed) {
+                fail(HTTP.BAD_REQUEST, Error.INVALID_JSONARRAY, aError.getMessage());
+            }
+        }
+
+        /**
+         * Answers the request with an error. Since the rest of the request body won't be read, the connection is closed
+         * once the response has been sent.
+         *
+         * @param aStatusCode The status code of the response
+         * @param aError The error
+         * @param aMessage A message describing the error
+         */
+        private void fail(final int aStatusCode, final Error aError, final String aMessage) {
+            fail(aStatusCode, aError, aMessage, null);
+        }
+
+        /**
+         * Answers the request with an error that lists the malformed items in the request body. Since the rest of the
+         * request body won't be read, the connection is closed once the response has been sent.
+         *
+         * @param aStatusCode The status code of the response
+         * @param aError The error
+         * @param aMessage A message describing the error
+         * @param anItemErrors The malformed items, by their positions in the request body, or null if there are none
+         */
+        private void fail(final int aStatusCode, final Error aError, final String aMessage,
+                final JsonArray anItemErrors) {
+            final HttpServerRequest request = myContext.request();
+            final JsonObject errorData = new JsonObject() //
+                    .put(ResponseJsonKeys.ERROR, aError) //
+                    .put(ResponseJsonKeys.MESSAGE, LOGGER.getMessage(MessageCodes.AUTH_047, myCount, aMessage));
+
+            if (anItemErrors != null) {
+                errorData.put(ResponseJsonKeys.ERRORS, anItemErrors);
+            }
+
+            isFailed = true;
+            myChunk = new JsonArray();
+            myParser.pause();
+
+            myContext.response() //
+                    .putHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON.toString()) //
+                    .putHeader(HttpHeaders.CONNECTION, HttpHeaders.CLOSE) //
+                    .setStatusCode(aStatusCode) //
+                    .end(errorData.encodePrettily());
+
+            LOGGER.error(MessageCodes.AUTH_006, request.method(), request.absoluteURI(), aMessage);
+        }
+    }
+}
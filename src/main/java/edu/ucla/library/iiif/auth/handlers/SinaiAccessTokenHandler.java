@@ -1,11 +1,10 @@
 
 package edu.ucla.library.iiif.auth.handlers;
 
-import java.util.Base64;
-
 import edu.ucla.library.iiif.auth.Config;
 import edu.ucla.library.iiif.auth.CookieNames;
 import edu.ucla.library.iiif.auth.TokenJsonKeys;
+import edu.ucla.library.iiif.auth.services.AccessCookieService;
 
 import io.vertx.core.Future;
 import io.vertx.core.Vertx;
@@ -27,6 +26,18 @@ public class SinaiAccessTokenHandler extends AbstractAccessTokenHandler {
         super(aVertx, aConfig);
     }
 
+    /**
+     * Creates a handler that exchanges access cookies for access tokens.
+     *
+     * @param aVertx The Vert.x instance
+     * @param aConfig A configuration
+     * @param aAccessCookieService An access cookie service, either a proxy or a local instance
+     */
+    public SinaiAccessTokenHandler(final Vertx aVertx, final JsonObject aConfig,
+            final AccessCookieService aAccessCookieService) {
+        super(aVertx, aConfig, aAccessCookieService);
+    }
+
     @Override
     public Future<String> createAccessToken(final RoutingContext aContext) {
         // The latter cookie stores the initialization vector for decrypting the former
@@ -34,12 +45,11 @@ public class SinaiAccessTokenHandler extends AbstractAccessTokenHandler {
         final String ivCookie = aContext.request().getCookie(CookieNames.SINAI_IV).getValue();
 
         return getAccessCookieService().validateSinaiCookie(authCookie, ivCookie).compose(unused -> {
-            final JsonObject unencodedAccessToken =
+            final JsonObject claims =
                     new JsonObject().put(TokenJsonKeys.VERSION, getConfig().getString(Config.HAUTH_VERSION))
                             .put(TokenJsonKeys.SINAI_AFFILIATE, true);
-            final String accessToken = Base64.getEncoder().encodeToString(unencodedAccessToken.encode().getBytes());
 
-            return Future.succeededFuture(accessToken);
+            return getAccessCookieService().createAccessToken(claims);
         });
     }
 }
@@ -3,6 +3,7 @@ package edu.ucla.library.iiif.auth.handlers;
 
 import edu.ucla.library.iiif.auth.MessageCodes;
 import edu.ucla.library.iiif.auth.ResponseJsonKeys;
+import edu.ucla.library.iiif.auth.services.DatabaseService;
 import edu.ucla.library.iiif.auth.utils.MediaType;
 
 import info.freelibrary.util.HTTP;
@@ -30,13 +31,29 @@ public class StatusHandler implements Handler<RoutingContext> {
      */
     private final Vertx myVertx;
 
+    /**
+     * The service for accessing the database.
+     */
+    private final DatabaseService myDatabaseService;
+
     /**
      * Creates a handler that returns the status of the application.
      *
      * @param aVertx A Vert.x instance
      */
     public StatusHandler(final Vertx aVertx) {
+        this(aVertx, DatabaseService.createProxy(aVertx));
+    }
+
+    /**
+     * Creates a handler that returns the status of the application.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aDatabaseService A database service, either a proxy or a local instance
+     */
+    public StatusHandler(final Vertx aVertx, final DatabaseService aDatabaseService) {
         myVertx = aVertx;
+        myDatabaseService = aDatabaseService;
     }
 
     @Override
@@ -47,8 +64,12 @@ public class StatusHandler implements Handler<RoutingContext> {
 
         status.put(ResponseJsonKeys.STATUS, "ok");
 
-        aContext.response().putHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON.toString())
-                .setStatusCode(HTTP.OK).end(status.encodePrettily());
+        // The metrics are informational, so the status is still reported if they can't be retrieved
+        myDatabaseService.getMetrics().onSuccess(metrics -> status.put(ResponseJsonKeys.METRICS, metrics))
+                .onComplete(metrics -> {
+                    aContext.response().putHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON.toString())
+                            .setStatusCode(HTTP.OK).end(status.encodePrettily());
+                });
     }
 
     /**
@@ -13,7 +13,8 @@ import io.vertx.core.json.JsonObject;
 import io.vertx.serviceproxy.ServiceProxyBuilder;
 
 /**
- * A service for generating and decrypting encrypted access cookies.
+ * A service for generating and decrypting encrypted access cookies, and for creating the access tokens that they're
+ * exchanged for.
  */
 @ProxyGen
 @VertxGen
@@ -83,4 +84,22 @@ public interface AccessCookieService {
      * @return A Future that succeeds if the cookie is valid and not expired, and fails otherwise
      */
     Future<Void> validateSinaiCookie(String aCipherText, String anInitializationVector);
+
+    /**
+     * Creates an access token. If {@link edu.ucla.library.iiif.auth.Config#ACCESS_TOKEN_SIGNING_KEY} is set, the
+     * token is a signed JSON Web Token that expires after
+     * {@link edu.ucla.library.iiif.auth.Config#ACCESS_TOKEN_EXPIRES_IN} seconds; otherwise, it's the Base64-encoded
+     * JSON of the claims.
+     *
+     * @param aClaims The claims that the token makes about the client
+     * @return A Future that resolves to the access token
+     */
+    Future<String> createAccessToken(JsonObject aClaims);
+
+    /**
+     * Gets the public keys that signed access tokens can be verified with.
+     *
+     * @return A Future that resolves to a JSON Web Key Set, which has no keys if access tokens aren't signed
+     */
+    Future<JsonObject> getAccessTokenKeys();
 }
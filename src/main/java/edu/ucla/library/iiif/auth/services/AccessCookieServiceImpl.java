@@ -1,32 +1,31 @@
 
 package edu.ucla.library.iiif.auth.services;
 
-import static info.freelibrary.util.Constants.SPACE;
-
+import java.nio.charset.StandardCharsets;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.Key;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.security.SignatureException;
 import java.security.spec.InvalidKeySpecException;
-import java.security.spec.KeySpec;
-import java.time.DateTimeException;
+import java.time.Instant;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
+import java.time.ZoneId;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.concurrent.TimeUnit;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
 import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.NoSuchPaddingException;
-import javax.crypto.SecretKeyFactory;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.IvParameterSpec;
-import javax.crypto.spec.PBEKeySpec;
 import javax.crypto.spec.SecretKeySpec;
 
-import org.apache.commons.codec.DecoderException;
-import org.apache.commons.codec.binary.Hex;
-
 import info.freelibrary.util.Logger;
 import info.freelibrary.util.LoggerFactory;
 
@@ -34,14 +33,30 @@ import edu.ucla.library.iiif.auth.Config;
 import edu.ucla.library.iiif.auth.CookieJsonKeys;
 import edu.ucla.library.iiif.auth.Error;
 import edu.ucla.library.iiif.auth.MessageCodes;
+import edu.ucla.library.iiif.auth.TokenJsonKeys;
 
+import io.netty.util.NetUtil;
 import io.vertx.core.Future;
 import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.serviceproxy.ServiceException;
 
 /**
- * The implementation of AccessCookieService.
+ * The implementation of AccessCookieService. It is thread-safe, so one instance can be shared by any number of event
+ * loops or worker threads; each thread gets its own {@link Cipher}.
+ * <p>
+ * Access cookies are generated in a compact binary format, encoded as unpadded URL-safe Base64:
+ *
+ * <pre>
+ * version (1 byte) | key ID (1 byte) | nonce (12 bytes) | ciphertext of: flags (1 byte), IP address (4 or 16 bytes) |
+ * tag (16 bytes)
+ * </pre>
+ *
+ * The only flag is whether the client is on the campus network. The version and the key ID are authenticated along
+ * with the ciphertext. The key ID says which key on the {@link SecretKeyRing} the cookie was encrypted with.
+ * Cookies in the legacy format, which is described in {@link CookieJsonKeys}, can still be decrypted, and are still
+ * generated for clients whose address isn't an IP address literal.
  * <p>
  * Standard algorithm names are defined in Java's
  * <a href="https://docs.oracle.com/en/java/javase/11/docs/specs/security/standard-names.html">documentation</a>.
@@ -64,6 +79,11 @@ public class AccessCookieServiceImpl implements AccessCookieService {
      */
     public static final String CIPHER_TRANSFORMATION = "AES/CBC/PKCS5Padding";
 
+    /**
+     * The name of the authenticated cipher transformation, which is used for compact access cookies.
+     */
+    public static final String AUTHENTICATED_CIPHER_TRANSFORMATION = "AES/GCM/NoPadding";
+
     /**
      * The date format used in Sinai cookies.
      */
@@ -84,20 +104,101 @@ public class AccessCookieServiceImpl implements AccessCookieService {
      */
     private static final int INVALID_COOKIE_ERROR = Error.INVALID_COOKIE.ordinal();
 
+    /**
+     * The version of the compact access cookie format.
+     */
+    private static final byte COMPACT_COOKIE_VERSION = 2;
+
+    /**
+     * The length in bytes of a compact access cookie's nonce.
+     */
+    private static final int NONCE_LENGTH = 12;
+
+    /**
+     * The length in bytes of a compact access cookie's authentication tag.
+     */
+    private static final int TAG_LENGTH = 16;
+
+    /**
+     * The length in bytes of the part of a compact access cookie's unencrypted header that comes before the nonce: the
+     * version and the key ID.
+     */
+    private static final int PREFIX_LENGTH = 2;
+
+    /**
+     * The flag that is set in a compact access cookie if the client is on the campus network.
+     */
+    private static final byte CAMPUS_NETWORK_FLAG = 0x01;
+
+    /**
+     * The prefix of every access cookie in the legacy format, which is the Base64 encoding of <code>{"</code>.
+     */
+    private static final String LEGACY_COOKIE_PREFIX = "ey";
+
+    /**
+     * The length in bytes of a Sinai cookie's initialization vector, which is one AES block.
+     */
+    private static final int SINAI_IV_LENGTH = 16;
+
+    /**
+     * The largest encrypted Sinai cookie, in bytes, that we'll try to decrypt; real ones are two AES blocks.
+     */
+    private static final int MAX_SINAI_COOKIE_LENGTH = 256;
+
+    /**
+     * The number of days after the date in a text Sinai cookie that the cookie is still valid.
+     */
+    private static final int SINAI_COOKIE_VALID_DAYS = 3;
+
+    /**
+     * The number of seconds after it was issued that a binary Sinai cookie is valid.
+     */
+    private static final long SINAI_COOKIE_LIFETIME = TimeUnit.HOURS.toSeconds(72);
+
+    /**
+     * The number of seconds that the Sinai application's clock is allowed to be ahead of ours.
+     */
+    private static final long SINAI_COOKIE_CLOCK_SKEW = TimeUnit.MINUTES.toSeconds(5);
+
+    /**
+     * The number of seconds that a validated Sinai cookie is cached for at most. Since a cookie can't be valid for
+     * longer than this, the expiration time that is cached with it is what actually decides when it's dropped.
+     */
+    private static final long SINAI_COOKIE_CACHE_TTL = TimeUnit.DAYS.toSeconds(SINAI_COOKIE_VALID_DAYS + 2);
+
+    /**
+     * The hash function for the keys of the cache of decrypted cookies, confined to the thread that uses it.
+     */
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException details) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(details);
+        }
+    });
+
     /**
      * A reference to the configuration.
      */
     private final JsonObject myConfig;
 
     /**
-     * The cryptographic function to use.
+     * The cryptographic function to use, confined to the thread that uses it since a cipher keeps state between calls.
      */
-    private final Cipher myCipher;
+    private final ThreadLocal<Cipher> myCipher =
+            ThreadLocal.withInitial(() -> createCipher(CIPHER_TRANSFORMATION));
 
     /**
-     * The secret key used for encryption and decryption of cookies created by this application.
+     * The authenticated cryptographic function to use for compact access cookies, confined to the thread that uses it.
      */
-    private final Key mySecretKey;
+    private final ThreadLocal<Cipher> myAuthenticatedCipher =
+            ThreadLocal.withInitial(() -> createCipher(AUTHENTICATED_CIPHER_TRANSFORMATION));
+
+    /**
+     * The secret keys used for encryption and decryption of cookies created by this application.
+     */
+    private final SecretKeyRing mySecretKeys;
 
     /**
      * The RNG used for generating initialization vectors for encryption.
@@ -115,38 +216,63 @@ public class AccessCookieServiceImpl implements AccessCookieService {
     private final String mySinaiCookieValidPrefix;
 
     /**
-     * A formatter for the date in a Sinai cookie.
+     * The signer of access tokens, or null if they aren't signed.
+     */
+    private final AccessTokenSigner myAccessTokenSigner;
+
+    /**
+     * The recently decrypted cookies, keyed by the hashes of their values. Since a cookie's key ID is part of its
+     * value, an entry is tied to the key that the cookie was encrypted with.
      */
-    private final DateTimeFormatter mySinaiCookieDateFormatter;
+    private final LocalCache<DecryptedCookie> myDecryptedCookieCache;
 
     /**
-     * Creates an instance of the service. For reference material on the key derivation crypto, see RFC 8018:
-     * <ul>
-     * <li><a href="https://datatracker.ietf.org/doc/html/rfc8018#section-4.1">Salt</a>
-     * <li><a href="https://datatracker.ietf.org/doc/html/rfc8018#section-4.2">Iteration count</a>
-     * <li><a href="https://datatracker.ietf.org/doc/html/rfc8018#section-5.2">PBKDF2</a>
-     * </ul>
+     * The bytes that must prefix each decrypted Sinai cookie value.
+     */
+    private final byte[] mySinaiCookieValidPrefixBytes;
+
+    /**
+     * The header that each decrypted binary Sinai cookie must start with.
+     */
+    private final byte[] mySinaiCookieHeader;
+
+    /**
+     * The time zone that the dates in text Sinai cookies are in.
+     */
+    private final ZoneId mySinaiCookieTimeZone;
+
+    /**
+     * The buffers used to decode and decrypt Sinai cookies, confined to the thread that uses them.
+     */
+    private final ThreadLocal<SinaiCookieBuffers> mySinaiCookieBuffers =
+            ThreadLocal.withInitial(SinaiCookieBuffers::new);
+
+    /**
+     * The recently validated Sinai cookies, keyed by the hashes of their values and initialization vectors, with the
+     * time, in epoch seconds, at which each expires.
+     */
+    private final LocalCache<Long> mySinaiCookieCache;
+
+    /**
+     * Creates an instance of the service.
      *
      * @param aConfig A configuration
-     * @throws InvalidKeySpecException if the {@link KeySpec} was not instantiated correctly
+     * @throws InvalidKeyException if the access token signing keys are not valid
+     * @throws InvalidKeySpecException if the secret keys are not configured properly
      * @throws NoSuchAlgorithmException if either {@link KEY_DERIVATION_FUNCTION} or {@link CIPHER_TRANSFORMATION} are
      *         not valid algorithms
      * @throws NoSuchPaddingException if {@link CIPHER_TRANSFORMATION} contains a padding scheme that is not available
      */
     AccessCookieServiceImpl(final JsonObject aConfig)
-            throws InvalidKeySpecException, NoSuchAlgorithmException, NoSuchPaddingException {
-        final String password = aConfig.getString(Config.SECRET_KEY_PASSWORD);
-        final String salt = aConfig.getString(Config.SECRET_KEY_SALT);
-        final int iterationCount = 65_536;
-        final int keyLength = 256;
-
+            throws InvalidKeyException, InvalidKeySpecException, NoSuchAlgorithmException, NoSuchPaddingException {
         try {
-            final SecretKeyFactory factory = SecretKeyFactory.getInstance(KEY_DERIVATION_FUNCTION);
-            final KeySpec spec = new PBEKeySpec(password.toCharArray(), salt.getBytes(), iterationCount, keyLength);
-
-            mySecretKey = new SecretKeySpec(factory.generateSecret(spec).getEncoded(), KEY_ALGORITHM);
-            myCipher = Cipher.getInstance(CIPHER_TRANSFORMATION);
-        } catch (final InvalidKeySpecException | NoSuchAlgorithmException | NoSuchPaddingException details) {
+            mySecretKeys = SecretKeyRing.fromConfig(aConfig);
+            myAccessTokenSigner = AccessTokenSigner.fromConfig(aConfig);
+            // Make sure that the ciphers are available before any thread needs one
+            myCipher.set(Cipher.getInstance(CIPHER_TRANSFORMATION));
+            myAuthenticatedCipher.set(Cipher.getInstance(AUTHENTICATED_CIPHER_TRANSFORMATION));
+        } catch (final InvalidKeyException | InvalidKeySpecException | NoSuchAlgorithmException |
+                NoSuchPaddingException details) {
             LOGGER.error(MessageCodes.AUTH_010, details.getMessage());
 
             throw details;
@@ -154,10 +280,17 @@ public class AccessCookieServiceImpl implements AccessCookieService {
 
         myConfig = aConfig;
         myInitializationVectorRng = new SecureRandom();
+        myDecryptedCookieCache = new LocalCache<>(aConfig.getInteger(Config.ACCESS_COOKIE_CACHE_MAX_SIZE, 10_000),
+                aConfig.getLong(Config.ACCESS_COOKIE_CACHE_TTL, 300L));
         mySecretKeySinai =
                 new SecretKeySpec(aConfig.getString(Config.SINAI_COOKIE_SECRET_KEY_PASSWORD).getBytes(), KEY_ALGORITHM);
         mySinaiCookieValidPrefix = aConfig.getString(Config.SINAI_COOKIE_VALID_PREFIX);
-        mySinaiCookieDateFormatter = DateTimeFormatter.ofPattern(SINAI_COOKIE_DATE_FORMAT);
+        mySinaiCookieValidPrefixBytes = mySinaiCookieValidPrefix.getBytes(StandardCharsets.UTF_8);
+        mySinaiCookieHeader = SinaiCookieParser.createHeader(mySinaiCookieValidPrefixBytes);
+        mySinaiCookieTimeZone =
+                ZoneId.of(aConfig.getString(Config.SINAI_COOKIE_TIME_ZONE, ZoneId.systemDefault().getId()));
+        mySinaiCookieCache = new LocalCache<>(aConfig.getInteger(Config.SINAI_COOKIE_CACHE_MAX_SIZE, 10_000),
+                SINAI_COOKIE_CACHE_TTL);
     }
 
     @Override
@@ -167,22 +300,68 @@ public class AccessCookieServiceImpl implements AccessCookieService {
 
     @Override
     public Future<String> generateCookie(final String aClientIpAddress, final boolean aIsOnCampusNetwork) {
+        final byte[] address = NetUtil.createByteArrayFromIpAddressString(aClientIpAddress);
+        final byte[] nonce = new byte[NONCE_LENGTH];
+        final byte[] cookie;
+        final Cipher cipher;
+
+        if (address == null) {
+            return generateLegacyCookie(aClientIpAddress, aIsOnCampusNetwork);
+        }
+
+        cookie = new byte[PREFIX_LENGTH + NONCE_LENGTH + 1 + address.length + TAG_LENGTH];
+        cipher = myAuthenticatedCipher.get();
+
+        // A random nonce is safe for far more cookies than one key will ever be used for
+        myInitializationVectorRng.nextBytes(nonce);
+        cookie[0] = COMPACT_COOKIE_VERSION;
+        cookie[1] = (byte) mySecretKeys.getActiveKeyID();
+        System.arraycopy(nonce, 0, cookie, PREFIX_LENGTH, NONCE_LENGTH);
+
+        try {
+            final byte[] cookieData = new byte[1 + address.length];
+
+            cookieData[0] = aIsOnCampusNetwork ? CAMPUS_NETWORK_FLAG : 0;
+            System.arraycopy(address, 0, cookieData, 1, address.length);
+
+            cipher.init(Cipher.ENCRYPT_MODE, mySecretKeys.getActiveKey(),
+                    new GCMParameterSpec(TAG_LENGTH * Byte.SIZE, cookie, PREFIX_LENGTH, NONCE_LENGTH));
+            cipher.updateAAD(cookie, 0, PREFIX_LENGTH);
+            cipher.doFinal(cookieData, 0, cookieData.length, cookie, PREFIX_LENGTH + NONCE_LENGTH);
+        } catch (final BadPaddingException | IllegalBlockSizeException | InvalidAlgorithmParameterException |
+                InvalidKeyException | ShortBufferException details) {
+            return Future.failedFuture(new ServiceException(CONFIGURATION_ERROR, details.getMessage()));
+        }
+
+        return Future.succeededFuture(Base64.getUrlEncoder().withoutPadding().encodeToString(cookie));
+    }
+
+    /**
+     * Creates an encrypted access cookie value in the legacy format.
+     *
+     * @param aClientIpAddress The IP address of the client
+     * @param aIsOnCampusNetwork If the client is on a campus network subnet
+     * @return A Future that resolves to the cookie value
+     */
+    Future<String> generateLegacyCookie(final String aClientIpAddress, final boolean aIsOnCampusNetwork) {
         final JsonObject cookieData = new JsonObject().put(CookieJsonKeys.CLIENT_IP_ADDRESS, aClientIpAddress)
                 .put(CookieJsonKeys.CAMPUS_NETWORK, aIsOnCampusNetwork);
         final byte[] encryptedCookieData;
         final JsonObject unencodedCookie;
+        final Cipher cipher = myCipher.get();
         final String cookie;
 
         try {
-            myCipher.init(Cipher.ENCRYPT_MODE, mySecretKey, myInitializationVectorRng);
-            encryptedCookieData = myCipher.doFinal(cookieData.encode().getBytes());
+            cipher.init(Cipher.ENCRYPT_MODE, mySecretKeys.getActiveKey(), myInitializationVectorRng);
+            encryptedCookieData = cipher.doFinal(cookieData.encode().getBytes());
         } catch (final BadPaddingException | IllegalBlockSizeException | InvalidKeyException details) {
             return Future.failedFuture(new ServiceException(CONFIGURATION_ERROR, details.getMessage()));
         }
 
         // Vert.x JsonObject knows how to encode/decode byte arrays, so we can use them as-is
         unencodedCookie = new JsonObject().put(CookieJsonKeys.VERSION, myConfig.getString(Config.HAUTH_VERSION))
-                .put(CookieJsonKeys.SECRET, encryptedCookieData).put(CookieJsonKeys.NONCE, myCipher.getIV());
+                .put(CookieJsonKeys.SECRET, encryptedCookieData).put(CookieJsonKeys.NONCE, cipher.getIV())
+                .put(CookieJsonKeys.KEY_ID, mySecretKeys.getActiveKeyID());
         cookie = Base64.getEncoder().encodeToString(unencodedCookie.encode().getBytes());
 
         return Future.succeededFuture(cookie);
@@ -190,71 +369,405 @@ public class AccessCookieServiceImpl implements AccessCookieService {
 
     @Override
     public Future<JsonObject> decryptCookie(final String aCookieValue, final String aClientIpAddress) {
-        final JsonObject cookieData;
-        final String expectedClientIpAddress;
-
-        try {
-            final JsonObject decodedCookie = new JsonObject(new String(Base64.getDecoder().decode(aCookieValue)));
-            final byte[] encryptedCookieData = decodedCookie.getBinary(CookieJsonKeys.SECRET);
-            final byte[] nonce = decodedCookie.getBinary(CookieJsonKeys.NONCE);
-            final byte[] serializedCookieData;
-
-            myCipher.init(Cipher.DECRYPT_MODE, mySecretKey, new IvParameterSpec(nonce));
+        final String cacheKey = myDecryptedCookieCache.isEnabled() ? hash(aCookieValue) : null;
+        DecryptedCookie cookie = cacheKey != null ? myDecryptedCookieCache.get(cacheKey) : null;
+
+        if (cookie == null) {
+            try {
+                if (aCookieValue.startsWith(LEGACY_COOKIE_PREFIX)) {
+                    cookie = decryptLegacyCookie(aCookieValue);
+                } else {
+                    cookie = decryptCompactCookie(aCookieValue);
+                }
+            } catch (final IllegalBlockSizeException | InvalidAlgorithmParameterException |
+                    InvalidKeyException details) {
+                // This code should never be reached, since only we're doing the encryption
+                return Future.failedFuture(new ServiceException(CONFIGURATION_ERROR, details.getMessage()));
+            } catch (final BadPaddingException | ClassCastException | DecodeException |
+                    IllegalArgumentException details) {
+                // Cookie was tampered with, stolen, or is otherwise invalid
+                return Future.failedFuture(new ServiceException(INVALID_COOKIE_ERROR, details.getMessage()));
+            }
 
-            serializedCookieData = myCipher.doFinal(encryptedCookieData);
-            cookieData = new JsonObject(new String(serializedCookieData));
-        } catch (final IllegalBlockSizeException | InvalidAlgorithmParameterException | InvalidKeyException details) {
-            // This code should never be reached, since only we're doing the encryption
-            return Future.failedFuture(new ServiceException(CONFIGURATION_ERROR, details.getMessage()));
-        } catch (final BadPaddingException | ClassCastException | DecodeException | IllegalArgumentException details) {
-            // Cookie was tampered with, stolen, or is otherwise invalid
-            return Future.failedFuture(new ServiceException(INVALID_COOKIE_ERROR, details.getMessage()));
+            if (cacheKey != null) {
+                myDecryptedCookieCache.put(cacheKey, cookie);
+            }
         }
 
-        expectedClientIpAddress = cookieData.getString(CookieJsonKeys.CLIENT_IP_ADDRESS);
-
-        if (!aClientIpAddress.equals(expectedClientIpAddress)) {
+        // A cached cookie may still have been stolen, so this is checked every time
+        if (!cookie.isFrom(aClientIpAddress)) {
             // Cookie was stolen
-            LOGGER.error(MessageCodes.AUTH_013, aClientIpAddress, expectedClientIpAddress);
+            LOGGER.error(MessageCodes.AUTH_013, aClientIpAddress, cookie.getClientIpAddress());
             return Future
                     .failedFuture(new ServiceException(INVALID_COOKIE_ERROR, LOGGER.getMessage(MessageCodes.AUTH_011)));
         }
-        return Future.succeededFuture(cookieData);
+
+        return Future.succeededFuture(new JsonObject().put(CookieJsonKeys.CLIENT_IP_ADDRESS, aClientIpAddress)
+                .put(CookieJsonKeys.CAMPUS_NETWORK, cookie.isOnCampusNetwork()));
+    }
+
+    /**
+     * Decrypts an access cookie value in the compact format.
+     *
+     * @param aCookieValue The cookie value to decrypt
+     * @return The decrypted cookie
+     * @throws BadPaddingException If the cookie fails to authenticate
+     * @throws IllegalArgumentException If the cookie isn't in the compact format, or its key isn't on the key ring
+     * @throws IllegalBlockSizeException If the cipher is misconfigured
+     * @throws InvalidAlgorithmParameterException If the cipher is misconfigured
+     * @throws InvalidKeyException If the secret key is invalid
+     */
+    private DecryptedCookie decryptCompactCookie(final String aCookieValue) throws BadPaddingException,
+            IllegalBlockSizeException, InvalidAlgorithmParameterException, InvalidKeyException {
+        final byte[] cookie = Base64.getUrlDecoder().decode(aCookieValue);
+        final Cipher cipher = myAuthenticatedCipher.get();
+        final int headerLength = PREFIX_LENGTH + NONCE_LENGTH;
+        final byte[] cookieData;
+
+        if (cookie.length == 0 || cookie[0] != COMPACT_COOKIE_VERSION) {
+            throw new IllegalArgumentException(
+                    LOGGER.getMessage(MessageCodes.AUTH_035, cookie.length == 0 ? null : cookie[0]));
+        }
+
+        if (cookie.length < headerLength + 1 + TAG_LENGTH) {
+            throw new IllegalArgumentException(LOGGER.getMessage(MessageCodes.AUTH_036, cookie.length));
+        }
+
+        cipher.init(Cipher.DECRYPT_MODE, getKey(Byte.toUnsignedInt(cookie[1])),
+                new GCMParameterSpec(TAG_LENGTH * Byte.SIZE, cookie, PREFIX_LENGTH, NONCE_LENGTH));
+        cipher.updateAAD(cookie, 0, PREFIX_LENGTH);
+
+        // Any change to the cookie makes this fail to authenticate
+        cookieData = cipher.doFinal(cookie, headerLength, cookie.length - headerLength);
+
+        return new DecryptedCookie(Arrays.copyOfRange(cookieData, 1, cookieData.length),
+                (cookieData[0] & CAMPUS_NETWORK_FLAG) != 0);
+    }
+
+    /**
+     * Decrypts an access cookie value in the legacy format.
+     *
+     * @param aCookieValue The cookie value to decrypt
+     * @return The decrypted cookie
+     * @throws BadPaddingException If the cookie has been tampered with
+     * @throws ClassCastException If the cookie's JSON isn't structured as expected
+     * @throws DecodeException If the cookie isn't JSON
+     * @throws IllegalArgumentException If the cookie isn't Base64, or its key isn't on the key ring
+     * @throws IllegalBlockSizeException If the cipher is misconfigured
+     * @throws InvalidAlgorithmParameterException If the cipher is misconfigured
+     * @throws InvalidKeyException If the secret key is invalid
+     */
+    private DecryptedCookie decryptLegacyCookie(final String aCookieValue) throws BadPaddingException,
+            IllegalBlockSizeException, InvalidAlgorithmParameterException, InvalidKeyException {
+        final JsonObject decodedCookie = new JsonObject(new String(Base64.getDecoder().decode(aCookieValue)));
+        final byte[] encryptedCookieData = decodedCookie.getBinary(CookieJsonKeys.SECRET);
+        final byte[] nonce = decodedCookie.getBinary(CookieJsonKeys.NONCE);
+        final int keyID = decodedCookie.getInteger(CookieJsonKeys.KEY_ID, SecretKeyRing.LEGACY_KEY_ID);
+        final Cipher cipher = myCipher.get();
+        final JsonObject cookieData;
+
+        cipher.init(Cipher.DECRYPT_MODE, getKey(keyID), new IvParameterSpec(nonce));
+        cookieData = new JsonObject(new String(cipher.doFinal(encryptedCookieData)));
+
+        return new DecryptedCookie(cookieData.getString(CookieJsonKeys.CLIENT_IP_ADDRESS),
+                Boolean.TRUE.equals(cookieData.getBoolean(CookieJsonKeys.CAMPUS_NETWORK)));
+    }
+
+    /**
+     * Gets the key that a cookie was encrypted with.
+     *
+     * @param aKeyID The ID of the key
+     * @return The key
+     * @throws IllegalArgumentException If there is no key with that ID, for instance because it has been retired
+     */
+    private Key getKey(final int aKeyID) {
+        final Key key = mySecretKeys.getKey(aKeyID);
+
+        if (key == null) {
+            throw new IllegalArgumentException(LOGGER.getMessage(MessageCodes.AUTH_037, aKeyID));
+        }
+
+        return key;
+    }
+
+    /**
+     * Hashes a cookie value, so that it can be used as a cache key without keeping the cookie itself in memory.
+     *
+     * @param aCookieValue A cookie value
+     * @return The Base64-encoded SHA-256 hash of the cookie value
+     */
+    private static String hash(final String aCookieValue) {
+        final MessageDigest digest = SHA_256.get();
+
+        return Base64.getEncoder().encodeToString(digest.digest(aCookieValue.getBytes(StandardCharsets.UTF_8)));
     }
 
     @Override
     public Future<Void> validateSinaiCookie(final String aAuthCookieValue, final String aIvCookieValue) {
-        try {
-            final byte[] encryptedCookieData = Hex.decodeHex(aAuthCookieValue);
-            final byte[] nonce = Hex.decodeHex(aIvCookieValue);
-            final byte[] rawCookieData;
-            final String[] cookieData;
-            final String prefix;
-            final LocalDate lastValidDate;
-
-            myCipher.init(Cipher.DECRYPT_MODE, mySecretKeySinai, new IvParameterSpec(nonce));
-
-            rawCookieData = myCipher.doFinal(encryptedCookieData);
-            cookieData = new String(rawCookieData).split(SPACE, 2);
-
-            // The prefix must match exactly, and the date must not be more than three days ago
-            prefix = cookieData[0];
-            // TODO: the Sinai cookie should contain a more specific timestamp so that any given cookie is considered
-            // valid for exactly 72 hours after creation
-            lastValidDate = LocalDate.parse(cookieData[1], mySinaiCookieDateFormatter).plusDays(3);
-
-            if (prefix.equals(mySinaiCookieValidPrefix) && !LocalDate.now().isAfter(lastValidDate)) {
-                return Future.succeededFuture();
+        final long now = System.currentTimeMillis() / 1000;
+        final String cacheKey;
+        final long expirationTime;
+
+        if (mySinaiCookieCache.isEnabled()) {
+            final Long cachedExpirationTime;
+
+            cacheKey = hash(aAuthCookieValue + ' ' + aIvCookieValue);
+            cachedExpirationTime = mySinaiCookieCache.get(cacheKey);
+
+            if (cachedExpirationTime != null) {
+                if (now < cachedExpirationTime) {
+                    return Future.succeededFuture();
+                }
+
+                // The cookie has expired since it was cached, so check it again to get the right failure
+                mySinaiCookieCache.invalidate(cacheKey);
             }
-            return Future.failedFuture(new ServiceException(INVALID_COOKIE_ERROR,
-                    LOGGER.getMessage(MessageCodes.AUTH_012, lastValidDate.plusDays(1).toString())));
-        } catch (final IllegalBlockSizeException | InvalidAlgorithmParameterException | InvalidKeyException details) {
+        } else {
+            cacheKey = null;
+        }
+
+        try {
+            expirationTime = getExpirationTime(aAuthCookieValue, aIvCookieValue, now);
+        } catch (final IllegalBlockSizeException | InvalidAlgorithmParameterException | InvalidKeyException |
+                ShortBufferException details) {
             // This code should never be reached, assuming we've configured the application properly
             return Future.failedFuture(new ServiceException(CONFIGURATION_ERROR, details.getMessage()));
-        } catch (final BadPaddingException | ClassCastException | DateTimeException | DecoderException |
-                IllegalArgumentException | IndexOutOfBoundsException details) {
+        } catch (final BadPaddingException | IllegalArgumentException details) {
             // Cookie was tampered with or is otherwise invalid
             return Future.failedFuture(new ServiceException(INVALID_COOKIE_ERROR, details.getMessage()));
         }
+
+        if (now >= expirationTime) {
+            return Future.failedFuture(new ServiceException(INVALID_COOKIE_ERROR,
+                    LOGGER.getMessage(MessageCodes.AUTH_012, Instant.ofEpochSecond(expirationTime).toString())));
+        }
+
+        if (cacheKey != null) {
+            mySinaiCookieCache.put(cacheKey, expirationTime);
+        }
+
+        return Future.succeededFuture();
+    }
+
+    /**
+     * Decrypts a Sinai cookie and works out when it expires. This is done in buffers that are reused from one call to
+     * the next, rather than by creating strings, since it happens for every cookie that isn't in the cache.
+     * <p>
+     * A binary cookie expires exactly {@link #SINAI_COOKIE_LIFETIME} seconds after it was issued. A text cookie only
+     * has the date it was issued on, so it expires at the end of the third day after that date, in
+     * {@link #mySinaiCookieTimeZone}.
+     *
+     * @param aAuthCookieValue The hex-encoded encrypted cookie
+     * @param aIvCookieValue The hex-encoded initialization vector
+     * @param aNow The current time, in epoch seconds
+     * @return The time at which the cookie expires, in epoch seconds
+     * @throws BadPaddingException If the cookie wasn't encrypted with the Sinai key
+     * @throws IllegalArgumentException If the cookie is malformed, doesn't have the valid prefix, or was issued in the
+     *         future
+     * @throws IllegalBlockSizeException If the cookie isn't a whole number of AES blocks
+     * @throws InvalidAlgorithmParameterException If the initialization vector isn't valid
+     * @throws InvalidKeyException If the Sinai key isn't valid
+     * @throws ShortBufferException If the decrypted cookie doesn't fit in its buffer
+     */
+    private long getExpirationTime(final String aAuthCookieValue, final String aIvCookieValue, final long aNow)
+            throws BadPaddingException, IllegalBlockSizeException, InvalidAlgorithmParameterException,
+            InvalidKeyException, ShortBufferException {
+        final SinaiCookieBuffers buffers = mySinaiCookieBuffers.get();
+        final byte[] cookie = buffers.myDecryptedCookie;
+        final int encryptedLength = SinaiCookieParser.decodeHex(aAuthCookieValue, buffers.myEncryptedCookie);
+        final int dateOffset = mySinaiCookieValidPrefixBytes.length + 1;
+        final Cipher cipher = myCipher.get();
+        final int decryptedLength;
+        final long issueTime;
+        final long date;
+
+        if (encryptedLength <= 0 ||
+                SinaiCookieParser.decodeHex(aIvCookieValue, buffers.myInitializationVector) != SINAI_IV_LENGTH) {
+            throw new IllegalArgumentException(LOGGER.getMessage(MessageCodes.AUTH_043));
+        }
+
+        cipher.init(Cipher.DECRYPT_MODE, mySecretKeySinai,
+                new IvParameterSpec(buffers.myInitializationVector, 0, SINAI_IV_LENGTH));
+        decryptedLength = cipher.doFinal(buffers.myEncryptedCookie, 0, encryptedLength, cookie, 0);
+
+        if (decryptedLength > 0 && cookie[0] == SinaiCookieParser.VERSION_2) {
+            // The header must match exactly, and the issue time must be the rest of the cookie
+            if (!SinaiCookieParser.hasHeader(cookie, decryptedLength, mySinaiCookieHeader)) {
+                throw new IllegalArgumentException(LOGGER.getMessage(MessageCodes.AUTH_043));
+            }
+
+            issueTime = SinaiCookieParser.parseTimestamp(cookie, mySinaiCookieHeader.length);
+
+            if (issueTime > aNow + SINAI_COOKIE_CLOCK_SKEW) {
+                throw new IllegalArgumentException(
+                        LOGGER.getMessage(MessageCodes.AUTH_044, Instant.ofEpochSecond(issueTime).toString()));
+            }
+
+            return issueTime + SINAI_COOKIE_LIFETIME;
+        }
+
+        // The prefix must match exactly, and the date must be the rest of the cookie
+        if (!SinaiCookieParser.hasPrefix(cookie, decryptedLength, mySinaiCookieValidPrefixBytes)) {
+            throw new IllegalArgumentException(LOGGER.getMessage(MessageCodes.AUTH_043));
+        }
+
+        date = SinaiCookieParser.parseDate(cookie, dateOffset, decryptedLength - dateOffset);
+
+        if (date == SinaiCookieParser.INVALID_DATE) {
+            throw new IllegalArgumentException(LOGGER.getMessage(MessageCodes.AUTH_043));
+        }
+
+        return LocalDate.ofEpochDay(date + SINAI_COOKIE_VALID_DAYS + 1).atStartOfDay(mySinaiCookieTimeZone)
+                .toEpochSecond();
+    }
+
+    @Override
+    public Future<String> createAccessToken(final JsonObject aClaims) {
+        final Integer expiresIn = myConfig.getInteger(Config.ACCESS_TOKEN_EXPIRES_IN);
+        final JsonObject claims;
+        final long now;
+
+        if (myAccessTokenSigner == null) {
+            return Future.succeededFuture(Base64.getEncoder().encodeToString(aClaims.encode().getBytes()));
+        }
+
+        now = System.currentTimeMillis() / 1000;
+        claims = aClaims.copy().put(TokenJsonKeys.ISSUED_AT, now);
+
+        // Make the token expire when the client is told it does
+        if (expiresIn != null) {
+            claims.put(TokenJsonKeys.EXPIRATION_TIME, now + expiresIn);
+        }
+
+        try {
+            return Future.succeededFuture(myAccessTokenSigner.sign(claims));
+        } catch (final InvalidKeyException | SignatureException details) {
+            return Future.failedFuture(new ServiceException(CONFIGURATION_ERROR, details.getMessage()));
+        }
+    }
+
+    @Override
+    public Future<JsonObject> getAccessTokenKeys() {
+        final JsonArray keys = new JsonArray();
+
+        if (myAccessTokenSigner != null) {
+            keys.add(myAccessTokenSigner.getJwk());
+        }
+
+        return Future.succeededFuture(new JsonObject().put(TokenJsonKeys.KEYS, keys));
+    }
+
+    /**
+     * Creates a cipher for a thread.
+     *
+     * @param aTransformation The name of the cipher transformation
+     * @return A new cipher
+     * @throws IllegalStateException If the cipher isn't available, which the constructor has already ruled out
+     */
+    private static Cipher createCipher(final String aTransformation) {
+        try {
+            return Cipher.getInstance(aTransformation);
+        } catch (final NoSuchAlgorithmException | NoSuchPaddingException details) {
+            throw new IllegalStateException(details);
+        }
+    }
+
+    /**
+     * The buffers that a Sinai cookie is decoded and decrypted into.
+     */
+    private static final class SinaiCookieBuffers {
+
+        /**
+         * The encrypted cookie.
+         */
+        private final byte[] myEncryptedCookie = new byte[MAX_SINAI_COOKIE_LENGTH];
+
+        /**
+         * The initialization vector.
+         */
+        private final byte[] myInitializationVector = new byte[SINAI_IV_LENGTH];
+
+        /**
+         * The decrypted cookie, with room for the block that the cipher may hold back until the end.
+         */
+        private final byte[] myDecryptedCookie = new byte[MAX_SINAI_COOKIE_LENGTH + SINAI_IV_LENGTH];
+    }
+
+    /**
+     * The data in an access cookie, once it has been decrypted.
+     */
+    private static final class DecryptedCookie {
+
+        /**
+         * The IP address that the cookie was created for, if it's in the compact format.
+         */
+        private final byte[] myAddress;
+
+        /**
+         * The IP address that the cookie was created for, as written in the cookie if it's in the legacy format.
+         */
+        private final String myClientIpAddress;
+
+        /**
+         * Whether the client was on the campus network.
+         */
+        private final boolean isOnCampusNetwork;
+
+        /**
+         * Creates the data of a cookie in the compact format.
+         *
+         * @param aAddress The IP address that the cookie was created for
+         * @param aIsOnCampusNetwork Whether the client was on the campus network
+         */
+        DecryptedCookie(final byte[] aAddress, final boolean aIsOnCampusNetwork) {
+            myAddress = aAddress;
+            myClientIpAddress = NetUtil.bytesToIpAddress(aAddress);
+            isOnCampusNetwork = aIsOnCampusNetwork;
+        }
+
+        /**
+         * Creates the data of a cookie in the legacy format.
+         *
+         * @param aClientIpAddress The IP address that the cookie was created for
+         * @param aIsOnCampusNetwork Whether the client was on the campus network
+         */
+        DecryptedCookie(final String aClientIpAddress, final boolean aIsOnCampusNetwork) {
+            myAddress = null;
+            myClientIpAddress = aClientIpAddress;
+            isOnCampusNetwork = aIsOnCampusNetwork;
+        }
+
+        /**
+         * Checks whether a client is the one that the cookie was created for.
+         *
+         * @param aClientIpAddress The IP address of the client
+         * @return Whether the client has the same IP address
+         */
+        boolean isFrom(final String aClientIpAddress) {
+            if (myAddress != null) {
+                // Compare the addresses as bytes, so that different ways of writing the same address match
+                return Arrays.equals(myAddress, NetUtil.createByteArrayFromIpAddressString(aClientIpAddress));
+            }
+
+            return aClientIpAddress.equals(myClientIpAddress);
+        }
+
+        /**
+         * Gets the IP address that the cookie was created for.
+         *
+         * @return The IP address
+         */
+        String getClientIpAddress() {
+            return myClientIpAddress;
+        }
+
+        /**
+         * Gets whether the client was on the campus network.
+         *
+         * @return Whether the client was on the campus network
+         */
+        boolean isOnCampusNetwork() {
+            return isOnCampusNetwork;
+        }
     }
 }
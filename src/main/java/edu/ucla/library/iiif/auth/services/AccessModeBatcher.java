@@ -0,0 +1,143 @@
+
+package edu.ucla.library.iiif.auth.services;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+
+/**
+ * Collects the item access mode lookups that are requested within a short window, so that they can be made with a
+ * single database query.
+ * <p>
+ * A batch is sent once either its window has elapsed, measured from its first lookup, or it has reached its maximum
+ * size. Each lookup is then completed separately. All methods are thread-safe.
+ */
+final class AccessModeBatcher {
+
+    /**
+     * The Vert.x instance, used for timers.
+     */
+    private final Vertx myVertx;
+
+    /**
+     * The number of milliseconds that a batch stays open for.
+     */
+    private final long myWindow;
+
+    /**
+     * The maximum number of distinct items in a batch.
+     */
+    private final int myMaxSize;
+
+    /**
+     * The query that looks up a batch of items and resolves to a map of the ones that were found to their access
+     * modes.
+     */
+    private final Function<Collection<String>, Future<Map<String, Integer>>> myQuery;
+
+    /**
+     * The lookups in the current batch, by item identifier.
+     */
+    private Map<String, Promise<Integer>> myBatch = new LinkedHashMap<>();
+
+    /**
+     * The ID of the timer that sends the current batch, or -1 if there isn't one.
+     */
+    private long myTimer = -1;
+
+    /**
+     * Creates a batcher.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aWindow The number of milliseconds that a batch stays open for; if not positive, nothing is batched
+     * @param aMaxSize The maximum number of distinct items in a batch; if less than two, nothing is batched
+     * @param aQuery A query that looks up a batch of items and resolves to a map of the ones that were found to their
+     *        access modes
+     */
+    AccessModeBatcher(final Vertx aVertx, final long aWindow, final int aMaxSize,
+            final Function<Collection<String>, Future<Map<String, Integer>>> aQuery) {
+        myVertx = aVertx;
+        myWindow = aWindow;
+        myMaxSize = aMaxSize;
+        myQuery = aQuery;
+    }
+
+    /**
+     * Checks whether lookups are batched.
+     *
+     * @return Whether the batcher is enabled
+     */
+    boolean isEnabled() {
+        return myWindow > 0 && myMaxSize > 1;
+    }
+
+    /**
+     * Adds a lookup to the current batch.
+     *
+     * @param aID An item identifier
+     * @return A Future that resolves to the item's access mode, or to null if the item isn't in the database
+     */
+    Future<Integer> get(final String aID) {
+        final Map<String, Promise<Integer>> fullBatch;
+        final Future<Integer> lookup;
+
+        synchronized (this) {
+            lookup = myBatch.computeIfAbsent(aID, id -> Promise.promise()).future();
+
+            if (myBatch.size() >= myMaxSize) {
+                fullBatch = takeBatch();
+            } else {
+                fullBatch = null;
+
+                if (myTimer == -1) {
+                    myTimer = myVertx.setTimer(myWindow, timerID -> send(takeBatch()));
+                }
+            }
+        }
+
+        if (fullBatch != null) {
+            send(fullBatch);
+        }
+
+        return lookup;
+    }
+
+    /**
+     * Takes the current batch, leaving an empty one in its place.
+     *
+     * @return The lookups in the batch that was taken
+     */
+    private synchronized Map<String, Promise<Integer>> takeBatch() {
+        final Map<String, Promise<Integer>> batch = myBatch;
+
+        if (myTimer != -1) {
+            myVertx.cancelTimer(myTimer);
+            myTimer = -1;
+        }
+
+        myBatch = new LinkedHashMap<>();
+        return batch;
+    }
+
+    /**
+     * Sends a batch of lookups to the database and completes each of them with its result.
+     *
+     * @param aBatch A batch of lookups
+     */
+    private void send(final Map<String, Promise<Integer>> aBatch) {
+        if (aBatch.isEmpty()) {
+            return;
+        }
+
+        myQuery.apply(aBatch.keySet()).onSuccess(accessModes -> {
+            aBatch.forEach((id, promise) -> promise.complete(accessModes.get(id)));
+        }).onFailure(error -> {
+            aBatch.values().forEach(promise -> promise.fail(error));
+        });
+    }
+}
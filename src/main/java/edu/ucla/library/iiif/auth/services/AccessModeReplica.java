@@ -0,0 +1,150 @@
+
+package edu.ucla.library.iiif.auth.services;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An in-memory replica of the items table.
+ * <p>
+ * The replica consists of a read-only snapshot of the whole table, plus the changes that have been made since the
+ * snapshot was taken. Loading a new snapshot swaps it in atomically along with any changes that were made while it was
+ * being loaded, so readers never block and never see a partially loaded table. The changes are only folded into the
+ * snapshot when the next one is loaded, so the owner of the replica should reload it once there are too many of them.
+ * Rows that are deleted from the table stay in the replica until then, too.
+ */
+final class AccessModeReplica {
+
+    /**
+     * The current snapshot and the changes made since it was taken; null until the first snapshot has been loaded.
+     */
+    private volatile State myState;
+
+    /**
+     * The changes made since the snapshot that is currently being loaded was started; null unless a load is underway.
+     */
+    private Map<String, Integer> myPendingChanges;
+
+    /**
+     * Checks whether a snapshot has been loaded.
+     *
+     * @return Whether the replica can be read from
+     */
+    boolean isLoaded() {
+        return myState != null;
+    }
+
+    /**
+     * Gets the access mode of an item.
+     *
+     * @param aID An item identifier
+     * @return The item's access mode, or null if either the item or the replica doesn't exist
+     */
+    Integer get(final String aID) {
+        final State state = myState;
+        final Integer accessMode;
+        final int snapshotAccessMode;
+
+        if (state == null) {
+            return null;
+        }
+
+        accessMode = state.myChanges.get(aID);
+
+        if (accessMode != null) {
+            return accessMode;
+        }
+
+        snapshotAccessMode = state.mySnapshot.get(aID);
+
+        return snapshotAccessMode != CompactAccessModeStore.ABSENT ? snapshotAccessMode : null;
+    }
+
+    /**
+     * Gets the number of items that have changed since the current snapshot was taken.
+     *
+     * @return The number of changes kept on top of the snapshot
+     */
+    int getChangeCount() {
+        final State state = myState;
+
+        return state != null ? state.myChanges.size() : 0;
+    }
+
+    /**
+     * Records a change to the access mode of an item.
+     *
+     * @param aID An item identifier
+     * @param aAccessMode The item's new access mode
+     */
+    synchronized void put(final String aID, final int aAccessMode) {
+        final State state = myState;
+
+        if (state != null) {
+            state.myChanges.put(aID, aAccessMode);
+        }
+
+        if (myPendingChanges != null) {
+            myPendingChanges.put(aID, aAccessMode);
+        }
+    }
+
+    /**
+     * Starts recording changes for a snapshot that is about to be loaded. This must be called before the snapshot is
+     * read from the database.
+     *
+     * @return Whether a load may start; false if another load is already underway
+     */
+    synchronized boolean startLoad() {
+        if (myPendingChanges != null) {
+            return false;
+        }
+
+        myPendingChanges = new ConcurrentHashMap<>();
+        return true;
+    }
+
+    /**
+     * Swaps in a newly loaded snapshot.
+     *
+     * @param aSnapshot The access mode of every item in the items table
+     */
+    synchronized void finishLoad(final CompactAccessModeStore aSnapshot) {
+        myState = new State(aSnapshot, myPendingChanges);
+        myPendingChanges = null;
+    }
+
+    /**
+     * Abandons a snapshot that could not be loaded, keeping the current one.
+     */
+    synchronized void abortLoad() {
+        myPendingChanges = null;
+    }
+
+    /**
+     * A snapshot of the items table and the changes made since it was taken.
+     */
+    private static final class State {
+
+        /**
+         * The access mode of every item in the items table.
+         */
+        private final CompactAccessModeStore mySnapshot;
+
+        /**
+         * The changes made since the snapshot was taken.
+         */
+        private final Map<String, Integer> myChanges;
+
+        /**
+         * Creates a replica state.
+         *
+         * @param aSnapshot The access mode of every item in the items table
+         * @param aChanges The changes made since the snapshot was taken, which must be safe for concurrent use
+         */
+        private State(final CompactAccessModeStore aSnapshot, final Map<String, Integer> aChanges) {
+            mySnapshot = aSnapshot;
+            myChanges = aChanges;
+        }
+    }
+}
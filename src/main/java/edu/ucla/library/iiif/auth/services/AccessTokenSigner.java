@@ -0,0 +1,264 @@
+
+package edu.ucla.library.iiif.auth.services;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.KeyFactory;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.SignatureException;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.InvalidKeySpecException;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
+
+import info.freelibrary.util.Logger;
+import info.freelibrary.util.LoggerFactory;
+
+import edu.ucla.library.iiif.auth.Config;
+import edu.ucla.library.iiif.auth.MessageCodes;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Signs access tokens as compact JSON Web Signatures (<a href="https://datatracker.ietf.org/doc/html/rfc7515">RFC
+ * 7515</a>) with ES256, so that anyone with the public key, like an image server's delegate, can verify them without
+ * calling back to Hauth. The public key is published as a JSON Web Key (<a
+ * href="https://datatracker.ietf.org/doc/html/rfc7517">RFC 7517</a>) whose key ID is its thumbprint (<a
+ * href="https://datatracker.ietf.org/doc/html/rfc7638">RFC 7638</a>).
+ * <p>
+ * It is thread-safe; each thread gets its own {@link Signature}.
+ */
+final class AccessTokenSigner {
+
+    /**
+     * The JSON Web Algorithms name of the signature algorithm.
+     */
+    static final String JWS_ALGORITHM = "ES256";
+
+    /**
+     * The name of the signature algorithm, with the signature in the fixed-length format that JWS uses.
+     */
+    static final String SIGNATURE_ALGORITHM = "SHA256withECDSAinP1363Format";
+
+    /**
+     * The name of the key algorithm.
+     */
+    static final String KEY_ALGORITHM = "EC";
+
+    /**
+     * The access token signer's logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(AccessTokenSigner.class, MessageCodes.BUNDLE);
+
+    /**
+     * The JSON Web Key name of the curve.
+     */
+    private static final String CURVE = "P-256";
+
+    /**
+     * The length in bytes of a coordinate on the curve.
+     */
+    private static final int COORDINATE_LENGTH = 32;
+
+    /**
+     * The separator between the parts of a compact JWS.
+     */
+    private static final char SEPARATOR = '.';
+
+    /**
+     * The Base64 encoder that JWS uses.
+     */
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    /**
+     * The signing function, confined to the thread that uses it since it keeps state between calls.
+     */
+    private final ThreadLocal<Signature> mySignature = ThreadLocal.withInitial(() -> {
+        try {
+            return Signature.getInstance(SIGNATURE_ALGORITHM);
+        } catch (final NoSuchAlgorithmException details) {
+            // The constructor has already made sure that the algorithm is available
+            throw new IllegalStateException(details);
+        }
+    });
+
+    /**
+     * The key that tokens are signed with.
+     */
+    private final PrivateKey myPrivateKey;
+
+    /**
+     * The public key, as a JSON Web Key.
+     */
+    private final JsonObject myJwk;
+
+    /**
+     * The encoded JWS header, which is the same for every token.
+     */
+    private final String myEncodedHeader;
+
+    /**
+     * Creates an access token signer.
+     *
+     * @param aPrivateKey The key to sign tokens with
+     * @param aPublicKey The key to verify tokens with
+     * @throws InvalidKeyException If the keys aren't P-256 keys, or don't belong together
+     * @throws NoSuchAlgorithmException If {@link #SIGNATURE_ALGORITHM} isn't available
+     */
+    AccessTokenSigner(final PrivateKey aPrivateKey, final ECPublicKey aPublicKey)
+            throws InvalidKeyException, NoSuchAlgorithmException {
+        final byte[] test = JWS_ALGORITHM.getBytes(StandardCharsets.UTF_8);
+        final Signature verifier = Signature.getInstance(SIGNATURE_ALGORITHM);
+        final String x = encodeCoordinate(aPublicKey.getW().getAffineX());
+        final String y = encodeCoordinate(aPublicKey.getW().getAffineY());
+        final String kid;
+
+        if (aPublicKey.getParams().getCurve().getField().getFieldSize() != COORDINATE_LENGTH * Byte.SIZE) {
+            throw new InvalidKeyException(LOGGER.getMessage(MessageCodes.AUTH_042));
+        }
+
+        myPrivateKey = aPrivateKey;
+
+        // Make sure that tokens signed with the private key can be verified with the public key
+        try {
+            verifier.initVerify(aPublicKey);
+            verifier.update(test);
+
+            if (!verifier.verify(createSignature(test))) {
+                throw new InvalidKeyException(LOGGER.getMessage(MessageCodes.AUTH_042));
+            }
+        } catch (final SignatureException details) {
+            throw new InvalidKeyException(LOGGER.getMessage(MessageCodes.AUTH_042), details);
+        }
+
+        // The thumbprint is the hash of the required members, in lexicographic order and without whitespace
+        kid = ENCODER.encodeToString(MessageDigest.getInstance("SHA-256").digest(
+                new JsonObject().put("crv", CURVE).put("kty", KEY_ALGORITHM).put("x", x).put("y", y).encode()
+                        .getBytes(StandardCharsets.UTF_8)));
+        myJwk = new JsonObject().put("kty", KEY_ALGORITHM).put("crv", CURVE).put("x", x).put("y", y)
+                .put("use", "sig").put("alg", JWS_ALGORITHM).put("kid", kid);
+        myEncodedHeader = encode(new JsonObject().put("alg", JWS_ALGORITHM).put("typ", "JWT").put("kid", kid));
+    }
+
+    /**
+     * Creates an access token signer from a configuration.
+     *
+     * @param aConfig A configuration
+     * @return The access token signer, or null if {@link Config#ACCESS_TOKEN_SIGNING_KEY} isn't set
+     * @throws InvalidKeyException If the keys aren't P-256 keys, or don't belong together
+     * @throws InvalidKeySpecException If the keys can't be decoded
+     * @throws NoSuchAlgorithmException If {@link #SIGNATURE_ALGORITHM} isn't available
+     */
+    static AccessTokenSigner fromConfig(final JsonObject aConfig)
+            throws InvalidKeyException, InvalidKeySpecException, NoSuchAlgorithmException {
+        final String privateKey = aConfig.getString(Config.ACCESS_TOKEN_SIGNING_KEY);
+        final String publicKey = aConfig.getString(Config.ACCESS_TOKEN_VERIFICATION_KEY);
+        final KeyFactory factory;
+        final AccessTokenSigner signer;
+
+        if (privateKey == null || privateKey.isBlank()) {
+            return null;
+        }
+
+        if (publicKey == null || publicKey.isBlank()) {
+            throw new InvalidKeySpecException(LOGGER.getMessage(MessageCodes.AUTH_042));
+        }
+
+        factory = KeyFactory.getInstance(KEY_ALGORITHM);
+
+        try {
+            signer = new AccessTokenSigner(
+                    factory.generatePrivate(new PKCS8EncodedKeySpec(Base64.getMimeDecoder().decode(privateKey))),
+                    (ECPublicKey) factory.generatePublic(
+                            new X509EncodedKeySpec(Base64.getMimeDecoder().decode(publicKey))));
+        } catch (final ClassCastException | IllegalArgumentException details) {
+            throw new InvalidKeySpecException(LOGGER.getMessage(MessageCodes.AUTH_042), details);
+        }
+
+        LOGGER.info(MessageCodes.AUTH_041, signer.getKeyID());
+
+        return signer;
+    }
+
+    /**
+     * Signs an access token.
+     *
+     * @param aClaims The token's claims
+     * @return The token, as a compact JWS
+     * @throws InvalidKeyException If the signing key is invalid
+     * @throws SignatureException If the token can't be signed
+     */
+    String sign(final JsonObject aClaims) throws InvalidKeyException, SignatureException {
+        final String signingInput = myEncodedHeader + SEPARATOR + encode(aClaims);
+        final byte[] signature = createSignature(signingInput.getBytes(StandardCharsets.US_ASCII));
+
+        return signingInput + SEPARATOR + ENCODER.encodeToString(signature);
+    }
+
+    /**
+     * Gets the public key that tokens can be verified with.
+     *
+     * @return The public key, as a JSON Web Key
+     */
+    JsonObject getJwk() {
+        return myJwk.copy();
+    }
+
+    /**
+     * Gets the ID of the key that tokens are signed with.
+     *
+     * @return The key ID
+     */
+    String getKeyID() {
+        return myJwk.getString("kid");
+    }
+
+    /**
+     * Signs some data.
+     *
+     * @param aData The data to sign
+     * @return The signature
+     * @throws InvalidKeyException If the signing key is invalid
+     * @throws SignatureException If the data can't be signed
+     */
+    private byte[] createSignature(final byte[] aData) throws InvalidKeyException, SignatureException {
+        final Signature signature = mySignature.get();
+
+        signature.initSign(myPrivateKey);
+        signature.update(aData);
+
+        return signature.sign();
+    }
+
+    /**
+     * Encodes a JSON object as a part of a compact JWS.
+     *
+     * @param aJsonObject A JSON object
+     * @return The Base64url-encoded JSON
+     */
+    private static String encode(final JsonObject aJsonObject) {
+        return ENCODER.encodeToString(aJsonObject.encode().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Encodes a coordinate of the public key as a member of a JSON Web Key.
+     *
+     * @param aCoordinate A coordinate
+     * @return The Base64url encoding of the coordinate, as a fixed-length big-endian unsigned integer
+     */
+    private static String encodeCoordinate(final BigInteger aCoordinate) {
+        final byte[] bytes = aCoordinate.toByteArray();
+        final byte[] coordinate = new byte[COORDINATE_LENGTH];
+        final int length = Math.min(bytes.length, COORDINATE_LENGTH);
+
+        // Drop the sign byte, if there is one, and pad with leading zeros
+        System.arraycopy(bytes, bytes.length - length, coordinate, COORDINATE_LENGTH - length, length);
+
+        return ENCODER.encodeToString(coordinate);
+    }
+}
@@ -0,0 +1,154 @@
+
+package edu.ucla.library.iiif.auth.services;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A Bloom filter of strings: a set that may report false positives, but never false negatives.
+ * <p>
+ * The filter is sized for a given number of strings and false positive rate. Adding more strings than that is allowed,
+ * but raises the false positive rate; {@link #getFalsePositiveRate()} estimates the actual rate from the number of
+ * bits that are set. All methods are thread-safe.
+ */
+final class BloomFilter {
+
+    /**
+     * The number of bits in a word of the bit array.
+     */
+    private static final int WORD_SIZE = Long.SIZE;
+
+    /**
+     * The bit array.
+     */
+    private final AtomicLongArray myBits;
+
+    /**
+     * The number of bits in the bit array.
+     */
+    private final long myBitCount;
+
+    /**
+     * The number of bits that are set for each string.
+     */
+    private final int myHashCount;
+
+    /**
+     * The number of bits that have been set.
+     */
+    private final AtomicLong mySetBitCount = new AtomicLong();
+
+    /**
+     * Creates an empty Bloom filter.
+     *
+     * @param aExpectedSize The number of strings that the filter is expected to hold
+     * @param aFalsePositiveRate The desired false positive rate once the filter holds the expected number of strings,
+     *        greater than zero and less than one
+     * @throws IllegalArgumentException If the false positive rate isn't greater than zero and less than one
+     */
+    BloomFilter(final long aExpectedSize, final double aFalsePositiveRate) {
+        final long expectedSize = Math.max(1, aExpectedSize);
+        final long bitCount;
+
+        if (!(aFalsePositiveRate > 0 && aFalsePositiveRate < 1)) {
+            throw new IllegalArgumentException(Double.toString(aFalsePositiveRate));
+        }
+
+        // The optimal number of bits and hashes for the given size and false positive rate
+        bitCount = (long) Math.ceil(-expectedSize * Math.log(aFalsePositiveRate) / (Math.log(2) * Math.log(2)));
+
+        myBits = new AtomicLongArray(Math.toIntExact((bitCount + WORD_SIZE - 1) / WORD_SIZE));
+        myBitCount = (long) myBits.length() * WORD_SIZE;
+        myHashCount = Math.max(1, (int) Math.round((double) myBitCount / expectedSize * Math.log(2)));
+    }
+
+    /**
+     * Adds a string to the filter.
+     *
+     * @param aValue A string
+     */
+    void add(final String aValue) {
+        final long hash = hash(aValue);
+        final int hash1 = (int) hash;
+        final int hash2 = (int) (hash >>> 32);
+
+        for (int index = 1; index <= myHashCount; index++) {
+            final long bit = index(hash1, hash2, index);
+            final int word = (int) (bit / WORD_SIZE);
+            final long mask = 1L << bit % WORD_SIZE;
+            final long previous = myBits.getAndAccumulate(word, mask, (value, update) -> value | update);
+
+            if ((previous & mask) == 0) {
+                mySetBitCount.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Checks whether a string might have been added to the filter.
+     *
+     * @param aValue A string
+     * @return False if the string has definitely not been added; otherwise, true
+     */
+    boolean mightContain(final String aValue) {
+        final long hash = hash(aValue);
+        final int hash1 = (int) hash;
+        final int hash2 = (int) (hash >>> 32);
+
+        for (int index = 1; index <= myHashCount; index++) {
+            final long bit = index(hash1, hash2, index);
+
+            if ((myBits.get((int) (bit / WORD_SIZE)) & 1L << bit % WORD_SIZE) == 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Estimates the filter's current false positive rate, from the proportion of its bits that are set.
+     *
+     * @return The probability that {@link #mightContain(String)} returns true for a string that hasn't been added
+     */
+    double getFalsePositiveRate() {
+        return Math.pow((double) mySetBitCount.get() / myBitCount, myHashCount);
+    }
+
+    /**
+     * Gets the index of one of the bits for a string, using double hashing.
+     *
+     * @param aHash1 The first half of the string's hash
+     * @param aHash2 The second half of the string's hash
+     * @param aIndex Which of the string's bits to get
+     * @return The index of the bit
+     */
+    private long index(final int aHash1, final int aHash2, final int aIndex) {
+        final long combinedHash = aHash1 + (long) aIndex * aHash2;
+
+        return (combinedHash & Long.MAX_VALUE) % myBitCount;
+    }
+
+    /**
+     * Hashes a string to 64 bits, with FNV-1a followed by MurmurHash3's finalizer so that every bit is well mixed.
+     *
+     * @param aValue A string
+     * @return The hash
+     */
+    private static long hash(final String aValue) {
+        long hash = 0xcbf29ce484222325L;
+
+        for (int index = 0; index < aValue.length(); index++) {
+            hash ^= aValue.charAt(index);
+            hash *= 0x100000001b3L;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+
+        return hash;
+    }
+}
@@ -0,0 +1,480 @@
+
+package edu.ucla.library.iiif.auth.services;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.ucla.library.iiif.auth.handlers.AccessModeHandler.AccessMode;
+
+/**
+ * A compact, read-only map of item identifiers to {@link AccessMode} ordinals.
+ * <p>
+ * Item identifiers are almost always ARKs that share a handful of prefixes (e.g., {@code ark:/21198/}), so each one is
+ * split at its last slash: the prefix is replaced by an index into a small dictionary of prefixes, and the remainder is
+ * stored as UTF-8 in a single contiguous byte array. An open-addressing hash table of {@code long}s indexes the items;
+ * each slot packs the offset and length of the item's suffix bytes, its prefix index, and its two-bit access mode:
+ *
+ * <pre>
+ * | 63 ... 32 | 31 ... 18 | 17 ... 2 | 1 0  |
+ * |  offset   |  prefix   |  length  | mode |
+ * </pre>
+ *
+ * With the ARKs that we mint, this comes to roughly 23 to 30 bytes per item, depending on the number of items (since
+ * the hash table and the suffix array grow in steps), compared to more than 100 for a {@code HashMap<String, Integer>}.
+ * Lookups don't allocate.
+ */
+final class CompactAccessModeStore {
+
+    /**
+     * The value returned by {@link #get(String)} for items that aren't in the store.
+     */
+    static final int ABSENT = -1;
+
+    /**
+     * The maximum number of distinct prefixes; items with any other prefix are stored whole.
+     */
+    static final int MAX_PREFIXES = 1 << 14;
+
+    /**
+     * The maximum length of an item identifier's suffix, in UTF-8 bytes.
+     */
+    static final int MAX_SUFFIX_LENGTH = (1 << 16) - 1;
+
+    /**
+     * The value of an unused hash table slot; never a valid slot, since offsets are non-negative.
+     */
+    private static final long EMPTY = -1L;
+
+    /**
+     * The bits that mark the first byte of a UTF-8 sequence, indexed by the length of the sequence.
+     */
+    private static final int[] LEADING_BITS = { 0, 0, 0xC0, 0xE0, 0xF0 };
+
+    /**
+     * The character at which item identifiers are split into a prefix and a suffix.
+     */
+    private static final char SEPARATOR = '/';
+
+    /**
+     * The prefix dictionary; the first prefix is always the empty string.
+     */
+    private final String[] myPrefixes;
+
+    /**
+     * The UTF-8 bytes of every item identifier's suffix.
+     */
+    private final byte[] mySuffixes;
+
+    /**
+     * The hash table slots, whose number is a power of two.
+     */
+    private final long[] mySlots;
+
+    /**
+     * The number of items.
+     */
+    private final int mySize;
+
+    /**
+     * Creates a store.
+     *
+     * @param aPrefixes The prefix dictionary
+     * @param aSuffixes The UTF-8 bytes of every item identifier's suffix
+     * @param aSlots The hash table slots
+     * @param aSize The number of items
+     */
+    private CompactAccessModeStore(final String[] aPrefixes, final byte[] aSuffixes, final long[] aSlots,
+            final int aSize) {
+        myPrefixes = aPrefixes;
+        mySuffixes = aSuffixes;
+        mySlots = aSlots;
+        mySize = aSize;
+    }
+
+    /**
+     * Gets the access mode of an item.
+     *
+     * @param aID An item identifier
+     * @return The ordinal of the item's {@link AccessMode}, or {@link #ABSENT} if the item isn't in the store
+     */
+    int get(final String aID) {
+        final int mask = mySlots.length - 1;
+        int index = spread(aID.hashCode()) & mask;
+
+        while (true) {
+            final long slot = mySlots[index];
+
+            if (slot == EMPTY) {
+                return ABSENT;
+            }
+
+            if (matches(slot, aID)) {
+                return mode(slot);
+            }
+
+            index = index + 1 & mask;
+        }
+    }
+
+    /**
+     * Gets the number of items in the store.
+     *
+     * @return The number of items
+     */
+    int size() {
+        return mySize;
+    }
+
+    /**
+     * Estimates the amount of heap used by the store.
+     *
+     * @return The approximate size of the store, in bytes
+     */
+    long sizeInBytes() {
+        long size = mySuffixes.length + (long) Long.BYTES * mySlots.length;
+
+        for (final String prefix : myPrefixes) {
+            // Roughly: the String and its backing array, each with a header, plus the array's contents
+            size += 40 + prefix.length();
+        }
+
+        return size;
+    }
+
+    /**
+     * Estimates the amount of heap used per item.
+     *
+     * @return The approximate number of bytes used per item
+     */
+    double bytesPerItem() {
+        return mySize == 0 ? 0 : (double) sizeInBytes() / mySize;
+    }
+
+    /**
+     * Checks whether a slot holds the given item identifier.
+     *
+     * @param aSlot A non-empty slot
+     * @param aID An item identifier
+     * @return Whether the slot holds the item identifier
+     */
+    private boolean matches(final long aSlot, final String aID) {
+        final String prefix = myPrefixes[prefixIndex(aSlot)];
+
+        return aID.startsWith(prefix) && suffixEquals(aID, prefix.length(), offset(aSlot), length(aSlot));
+    }
+
+    /**
+     * Checks whether the UTF-8 encoding of the end of an item identifier equals the given range of suffix bytes,
+     * without encoding the item identifier into a new array.
+     *
+     * @param aID An item identifier
+     * @param aStart The index of the first character of the item identifier to compare
+     * @param aOffset The offset of the suffix bytes
+     * @param aLength The number of suffix bytes
+     * @return Whether the two are equal
+     */
+    private boolean suffixEquals(final String aID, final int aStart, final int aOffset, final int aLength) {
+        final int end = aOffset + aLength;
+        int position = aOffset;
+        int index = aStart;
+
+        while (index < aID.length()) {
+            final int codePoint = aID.codePointAt(index);
+            final int encodedLength = encodedLength(codePoint);
+
+            if (position + encodedLength > end) {
+                return false;
+            }
+
+            if (encodedLength == 1) {
+                // Unpaired surrogates are encoded as '?', just like String#getBytes does
+                final int ascii = Character.isSurrogate((char) codePoint) ? '?' : codePoint;
+
+                if (mySuffixes[position] != (byte) ascii) {
+                    return false;
+                }
+            } else if (!encodedEquals(codePoint, encodedLength, position)) {
+                return false;
+            }
+
+            position += encodedLength;
+            index += Character.charCount(codePoint);
+        }
+
+        return position == end;
+    }
+
+    /**
+     * Checks whether the multi-byte UTF-8 encoding of a code point equals the suffix bytes at the given position.
+     *
+     * @param aCodePoint A code point
+     * @param aEncodedLength The number of bytes in the code point's UTF-8 encoding, between two and four
+     * @param aPosition The position of the suffix bytes to compare
+     * @return Whether the two are equal
+     */
+    private boolean encodedEquals(final int aCodePoint, final int aEncodedLength, final int aPosition) {
+        final int trailingCount = aEncodedLength - 1;
+
+        if (mySuffixes[aPosition] != (byte) (LEADING_BITS[aEncodedLength] | aCodePoint >> 6 * trailingCount)) {
+            return false;
+        }
+
+        for (int count = 1; count <= trailingCount; count++) {
+            final int bits = aCodePoint >> 6 * (trailingCount - count) & 0x3F;
+
+            if (mySuffixes[aPosition + count] != (byte) (0x80 | bits)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Gets the number of bytes in the UTF-8 encoding of a code point, as produced by {@link String#getBytes}.
+     *
+     * @param aCodePoint A code point
+     * @return The number of bytes
+     */
+    private static int encodedLength(final int aCodePoint) {
+        if (aCodePoint < 0x80 || Character.isSurrogate((char) aCodePoint) && aCodePoint <= Character.MAX_VALUE) {
+            return 1;
+        } else if (aCodePoint < 0x800) {
+            return 2;
+        } else if (aCodePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+            return 3;
+        } else {
+            return 4;
+        }
+    }
+
+    /**
+     * Scrambles a hash code so that similar item identifiers are spread evenly across the hash table.
+     *
+     * @param aHashCode A hash code
+     * @return The scrambled hash code
+     */
+    private static int spread(final int aHashCode) {
+        final int hash = aHashCode * 0x9E3779B9;
+
+        return hash ^ hash >>> 16;
+    }
+
+    /**
+     * Packs an item into a slot.
+     *
+     * @param aOffset The offset of the item identifier's suffix bytes
+     * @param aPrefixIndex The index of the item identifier's prefix
+     * @param aLength The number of suffix bytes
+     * @param aAccessMode The ordinal of the item's access mode
+     * @return The slot
+     */
+    private static long pack(final int aOffset, final int aPrefixIndex, final int aLength, final int aAccessMode) {
+        return (long) aOffset << 32 | (long) aPrefixIndex << 18 | (long) aLength << 2 | aAccessMode;
+    }
+
+    /**
+     * Gets the offset of the suffix bytes of the item in a slot.
+     *
+     * @param aSlot A slot
+     * @return The offset
+     */
+    private static int offset(final long aSlot) {
+        return (int) (aSlot >>> 32);
+    }
+
+    /**
+     * Gets the prefix index of the item in a slot.
+     *
+     * @param aSlot A slot
+     * @return The prefix index
+     */
+    private static int prefixIndex(final long aSlot) {
+        return (int) (aSlot >>> 18) & MAX_PREFIXES - 1;
+    }
+
+    /**
+     * Gets the number of suffix bytes of the item in a slot.
+     *
+     * @param aSlot A slot
+     * @return The number of suffix bytes
+     */
+    private static int length(final long aSlot) {
+        return (int) (aSlot >>> 2) & MAX_SUFFIX_LENGTH;
+    }
+
+    /**
+     * Gets the access mode of the item in a slot.
+     *
+     * @param aSlot A slot
+     * @return The ordinal of the access mode
+     */
+    private static int mode(final long aSlot) {
+        return (int) aSlot & 0b11;
+    }
+
+    /**
+     * A builder of {@link CompactAccessModeStore}s. If an item is added more than once, the last access mode wins.
+     */
+    static final class Builder {
+
+        /**
+         * The indices of the prefixes in the dictionary.
+         */
+        private final Map<String, Integer> myPrefixIndices = new HashMap<>();
+
+        /**
+         * The prefix dictionary.
+         */
+        private final List<String> myPrefixes = new ArrayList<>();
+
+        /**
+         * The UTF-8 bytes of every item identifier's suffix.
+         */
+        private byte[] mySuffixes = new byte[1024];
+
+        /**
+         * The number of suffix bytes.
+         */
+        private int mySuffixesLength;
+
+        /**
+         * The packed items, in the order they were added.
+         */
+        private long[] myItems = new long[256];
+
+        /**
+         * The hash codes of the item identifiers, in the order they were added.
+         */
+        private int[] myHashCodes = new int[256];
+
+        /**
+         * The number of items added.
+         */
+        private int myCount;
+
+        /**
+         * Creates a builder.
+         */
+        Builder() {
+            myPrefixes.add("");
+            myPrefixIndices.put("", 0);
+        }
+
+        /**
+         * Adds an item.
+         *
+         * @param aID An item identifier
+         * @param aAccessMode The ordinal of the item's {@link AccessMode}
+         * @return This builder
+         * @throws IllegalArgumentException If the access mode doesn't fit in two bits, or the item identifier is too
+         *         long
+         */
+        Builder add(final String aID, final int aAccessMode) {
+            final int prefixIndex = getPrefixIndex(aID.substring(0, aID.lastIndexOf(SEPARATOR) + 1));
+            final byte[] suffix = aID.substring(myPrefixes.get(prefixIndex).length()).getBytes(StandardCharsets.UTF_8);
+
+            if (aAccessMode < 0 || aAccessMode > 0b11) {
+                throw new IllegalArgumentException(Integer.toString(aAccessMode));
+            }
+
+            if (suffix.length > MAX_SUFFIX_LENGTH) {
+                throw new IllegalArgumentException(aID);
+            }
+
+            if (mySuffixesLength + suffix.length > mySuffixes.length) {
+                final int capacity = Math.max(mySuffixes.length * 2, mySuffixesLength + suffix.length);
+
+                mySuffixes = Arrays.copyOf(mySuffixes, capacity);
+            }
+
+            if (myCount == myItems.length) {
+                myItems = Arrays.copyOf(myItems, myCount * 2);
+                myHashCodes = Arrays.copyOf(myHashCodes, myCount * 2);
+            }
+
+            System.arraycopy(suffix, 0, mySuffixes, mySuffixesLength, suffix.length);
+
+            myItems[myCount] = pack(mySuffixesLength, prefixIndex, suffix.length, aAccessMode);
+            myHashCodes[myCount] = aID.hashCode();
+            mySuffixesLength += suffix.length;
+            myCount += 1;
+
+            return this;
+        }
+
+        /**
+         * Builds the store.
+         *
+         * @return A new store containing the added items
+         */
+        CompactAccessModeStore build() {
+            // Keep the load factor at or under 0.75
+            final int capacity = Integer.highestOneBit(Math.max(16, myCount + myCount / 3) * 2 - 1);
+            final int mask = capacity - 1;
+            final long[] slots = new long[capacity];
+            int size = 0;
+
+            Arrays.fill(slots, EMPTY);
+
+            for (int item = 0; item < myCount; item++) {
+                int index = spread(myHashCodes[item]) & mask;
+
+                while (slots[index] != EMPTY && !isSameItem(slots[index], myItems[item])) {
+                    index = index + 1 & mask;
+                }
+
+                if (slots[index] == EMPTY) {
+                    size += 1;
+                }
+
+                slots[index] = myItems[item];
+            }
+
+            return new CompactAccessModeStore(myPrefixes.toArray(new String[0]),
+                    Arrays.copyOf(mySuffixes, mySuffixesLength), slots, size);
+        }
+
+        /**
+         * Gets the index of a prefix in the dictionary, adding it if there's room.
+         *
+         * @param aPrefix A prefix
+         * @return The index of the prefix, or zero (the empty prefix) if the dictionary is full
+         */
+        private int getPrefixIndex(final String aPrefix) {
+            final Integer index = myPrefixIndices.get(aPrefix);
+
+            if (index != null) {
+                return index;
+            }
+
+            if (myPrefixes.size() == MAX_PREFIXES) {
+                return 0;
+            }
+
+            myPrefixIndices.put(aPrefix, myPrefixes.size());
+            myPrefixes.add(aPrefix);
+
+            return myPrefixes.size() - 1;
+        }
+
+        /**
+         * Checks whether two packed items have the same item identifier.
+         *
+         * @param aItem A packed item
+         * @param aOtherItem Another packed item
+         * @return Whether the item identifiers are equal
+         */
+        private boolean isSameItem(final long aItem, final long aOtherItem) {
+            final int offset = offset(aItem);
+            final int otherOffset = offset(aOtherItem);
+
+            return prefixIndex(aItem) == prefixIndex(aOtherItem) && Arrays.equals(mySuffixes, offset,
+                    offset + length(aItem), mySuffixes, otherOffset, otherOffset + length(aOtherItem));
+        }
+    }
+}
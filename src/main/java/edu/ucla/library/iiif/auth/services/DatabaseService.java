@@ -60,20 +60,60 @@ public interface DatabaseService {
      */
     Future<Integer> getAccessMode(String aID);
 
+    /**
+     * Gets the "access modes" of the items with the given identifiers.
+     *
+     * @param aIDs An array of item identifiers
+     * @return A Future that resolves to an object that maps each of the item identifiers to its access mode, or to null
+     *         if the item isn't in the database
+     */
+    Future<JsonObject> getAccessModes(JsonArray aIDs);
+
+    /**
+     * Gets the service's metrics.
+     *
+     * @return A Future that resolves to an object that includes the number of access mode lookups that shared another
+     *         lookup of the same item that was already in flight
+     */
+    Future<JsonObject> getMetrics();
+
     /**
      * Sets the given "access mode" of the item with the given identifier.
      *
      * @param aID The item identifier
      * @param aAccessMode The access mode to set for the item
-     * @return A Future that resolves once the access mode has been set
+     * @return A Future that resolves once the access mode has been set, or fails if the item couldn't first be removed
+     *         from the database cache
      */
     Future<Void> setAccessMode(String aID, int aAccessMode);
 
     /**
-     * Sets the given items.
+     * Sets the given items. Items that already have the given access mode aren't written.
      *
      * @param aItems An array of objects that conforms to the request body schema of the "postItems" OpenAPI operation
-     * @return A Future that resolves once the items have been set
+     * @return A Future that resolves, once the items have been set, to an object with the numbers of items that were
+     *         inserted, updated, and left unchanged, which conforms to the response body schema of the "postItems"
+     *         OpenAPI operation; if any of the items are malformed, none are set, and the Future fails with a
+     *         MALFORMED_INPUT_DATA error whose debug info has the position of each of them
+     */
+    Future<JsonObject> setItems(JsonArray aItems);
+
+    /**
+     * Submits a job that sets the given items in the background.
+     *
+     * @param aItems An array of objects that conforms to the request body schema of the "postItemsJob" OpenAPI
+     *        operation
+     * @return A Future that resolves to the ID of the job as soon as it has been submitted
+     */
+    Future<String> submitItemsJob(JsonArray aItems);
+
+    /**
+     * Gets the status of a job that was submitted with {@link #submitItemsJob}.
+     *
+     * @param aID The job ID
+     * @return A Future that resolves to an object that conforms to the response body schema of the "getItemsJob"
+     *         OpenAPI operation, or fails with {@link edu.ucla.library.iiif.auth.Error#NOT_FOUND} if there's no such
+     *         job
      */
-    Future<Void> setItems(JsonArray aItems);
+    Future<JsonObject> getItemsJob(String aID);
 }
@@ -4,13 +4,17 @@ package edu.ucla.library.iiif.auth.services;
 import static info.freelibrary.util.Constants.SPACE;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.stream.Collectors;
-
-import com.fasterxml.jackson.annotation.JsonCreator;
-import com.fasterxml.jackson.annotation.JsonProperty;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import info.freelibrary.util.Logger;
 import info.freelibrary.util.LoggerFactory;
@@ -20,19 +24,27 @@ import edu.ucla.library.iiif.auth.Config;
 import edu.ucla.library.iiif.auth.Error;
 import edu.ucla.library.iiif.auth.MessageCodes;
 import edu.ucla.library.iiif.auth.RequestJsonKeys;
+import edu.ucla.library.iiif.auth.ResponseJsonKeys;
 
 import io.vertx.core.Future;
+import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
+import io.vertx.core.json.DecodeException;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.pgclient.PgConnectOptions;
 import io.vertx.pgclient.PgPool;
+import io.vertx.pgclient.pubsub.PgSubscriber;
+import io.vertx.redis.client.Command;
 import io.vertx.redis.client.Redis;
 import io.vertx.redis.client.RedisOptions;
+import io.vertx.redis.client.Request;
+import io.vertx.redis.client.Response;
 import io.vertx.serviceproxy.ServiceException;
 import io.vertx.sqlclient.PoolOptions;
 import io.vertx.sqlclient.Row;
 import io.vertx.sqlclient.RowSet;
+import io.vertx.sqlclient.RowStream;
 import io.vertx.sqlclient.Tuple;
 
 /**
@@ -56,10 +68,68 @@ public class DatabaseServiceImpl implements DatabaseService {
     private static final String SELECT_ACCESS_MODE = "SELECT access_mode FROM items WHERE uid = $1";
 
     /**
-     * The PreparedQuery template for upserting an item's "access mode".
+     * The PreparedQuery template for selecting the "access modes" of an array of items.
+     */
+    private static final String SELECT_ACCESS_MODES = "SELECT uid, access_mode FROM items WHERE uid = ANY($1)";
+
+    /**
+     * The PreparedQuery template for selecting every item's "access mode".
+     */
+    private static final String SELECT_ALL_ACCESS_MODES = "SELECT uid, access_mode FROM items";
+
+    /**
+     * The PreparedQuery template for counting the items.
+     */
+    private static final String COUNT_ITEMS = "SELECT count(*) FROM items";
+
+    /**
+     * The PreparedQuery template for selecting every item's identifier.
+     */
+    private static final String SELECT_ALL_IDS = "SELECT uid FROM items";
+
+    /**
+     * The PreparedQuery template for upserting an item's "access mode". An item that already has the access mode isn't
+     * written, so it doesn't cost a new row version or a change notification. The item is returned only if it was
+     * written, along with whether it was inserted (in which case the row has no deleting transaction).
      */
     private static final String UPSERT_ACCESS_MODE = String.join(SPACE, "INSERT INTO items VALUES ($1, $2)",
-            "ON CONFLICT (uid) DO", "UPDATE SET access_mode = EXCLUDED.access_mode");
+            "ON CONFLICT (uid) DO", "UPDATE SET access_mode = EXCLUDED.access_mode",
+            "WHERE items.access_mode IS DISTINCT FROM EXCLUDED.access_mode",
+            "RETURNING uid, access_mode, (xmax = 0) AS inserted");
+
+    /**
+     * The PreparedQuery template for upserting the "access modes" of a pair of arrays of items and access modes in a
+     * single statement. If an item is listed more than once, the last access mode wins, as it does in a batch. As with
+     * {@link #UPSERT_ACCESS_MODE}, only the items that were written are returned.
+     */
+    private static final String BULK_UPSERT_ACCESS_MODES = String.join(SPACE,
+            "INSERT INTO items (uid, access_mode) SELECT DISTINCT ON (uid) uid, access_mode",
+            "FROM unnest($1::text[], $2::int[]) WITH ORDINALITY AS item (uid, access_mode, ordinal)",
+            "ORDER BY uid, ordinal DESC", "ON CONFLICT (uid) DO", "UPDATE SET access_mode = EXCLUDED.access_mode",
+            "WHERE items.access_mode IS DISTINCT FROM EXCLUDED.access_mode",
+            "RETURNING uid, access_mode, (xmax = 0) AS inserted");
+
+    /**
+     * The prefix of the database cache keys under which item access modes are stored.
+     */
+    static final String ACCESS_MODE_KEY_PREFIX = "hauth:accessMode:";
+
+    /**
+     * The database notification channel on which changes to the items table are announced.
+     */
+    private static final String ITEMS_CHANNEL = "items_changed";
+
+    /**
+     * The query for whether the items table has the trigger that sends notifications on {@link #ITEMS_CHANNEL}, which
+     * is defined in src/main/resources/db/items_changed.sql.
+     */
+    private static final String HAS_ITEMS_CHANGED_TRIGGER = String.join(SPACE, "SELECT EXISTS (SELECT 1",
+            "FROM pg_trigger WHERE tgrelid = 'items'::regclass AND tgname = 'items_changed')");
+
+    /**
+     * The number of rows to fetch at a time when loading the in-memory replica of the items table.
+     */
+    private static final int REPLICA_FETCH_SIZE = 10_000;
 
     /**
      * The database's default hostname.
@@ -92,9 +162,116 @@ public class DatabaseServiceImpl implements DatabaseService {
     private final Redis myDbCacheClient;
 
     /**
-     * For JSON deserialization.
+     * The subscriber to changes to the items table that are made by any instance of the application.
+     */
+    private final PgSubscriber myDbChangeSubscriber;
+
+    /**
+     * The Vert.x instance.
+     */
+    private final Vertx myVertx;
+
+    /**
+     * The number of milliseconds to wait before trying to reconnect the subscriber to changes to the items table.
+     */
+    private final long myDbReconnectInterval;
+
+    /**
+     * The number of items above which a list of items is set with a single statement instead of a batch.
+     */
+    private final int myBulkLoadThreshold;
+
+    /**
+     * The in-process cache of item access modes.
+     */
+    private final LocalCache<Integer> myAccessModeCache;
+
+    /**
+     * The number of seconds that an item access mode is kept in the database cache.
+     */
+    private final long myDbCacheTtl;
+
+    /**
+     * The in-process cache of the identifiers of items that were recently found not to exist.
+     */
+    private final LocalCache<Boolean> myNotFoundCache;
+
+    /**
+     * The filter of item identifiers, which answers lookups of items that definitely don't exist.
      */
-    private final ObjectMapper myMapper = new ObjectMapper();
+    private final ItemFilter myItemFilter;
+
+    /**
+     * Whether the filter of item identifiers is used; it's turned off if the items table turns out not to have the
+     * trigger that would tell it about items added through other instances of the application.
+     */
+    private volatile boolean isItemFilterEnabled;
+
+    /**
+     * The number of lookups that the filter of item identifiers answered.
+     */
+    private final AtomicLong myFilteredLookups = new AtomicLong();
+
+    /**
+     * The number of lookups of items that don't exist that the filter of item identifiers let through.
+     */
+    private final AtomicLong myFilterFalsePositives = new AtomicLong();
+
+    /**
+     * The batcher of access mode lookups that go to the database.
+     */
+    private final AccessModeBatcher myAccessModeBatcher;
+
+    /**
+     * The in-memory replica of the items table.
+     */
+    private final AccessModeReplica myReplica = new AccessModeReplica();
+
+    /**
+     * Whether the in-memory replica of the items table is used.
+     */
+    private final boolean isReplicaEnabled;
+
+    /**
+     * The number of changes that the in-memory replica of the items table may have on top of its snapshot before it's
+     * reloaded.
+     */
+    private final int myReplicaMaxChanges;
+
+    /**
+     * The lookups of item access modes that are currently in flight, which concurrent lookups of the same item share.
+     */
+    private final Map<String, Future<Integer>> myInFlightLookups = new ConcurrentHashMap<>();
+
+    /**
+     * The versions of items, by which lookups tell whether an item changed while they were in flight.
+     */
+    private final ItemVersions myItemVersions = new ItemVersions();
+
+    /**
+     * The number of lookups that have shared another lookup that was already in flight.
+     */
+    private final AtomicLong myCoalescedLookups = new AtomicLong();
+
+    /**
+     * The queue of jobs that set items in the background.
+     */
+    private final ItemsJobQueue myItemsJobQueue;
+
+    /**
+     * A promise that is completed once the service is ready to handle requests.
+     */
+    private final Promise<Void> myReadiness = Promise.promise();
+
+    /**
+     * The ID of the timer that periodically reloads the in-memory replica of the items table.
+     */
+    private long myReplicaRefreshTimer = -1;
+
+    /**
+     * Whether the service has been closed.
+     */
+    private volatile boolean isClosed;
 
     /**
      * Creates an instance of the service.
@@ -103,18 +280,641 @@ public class DatabaseServiceImpl implements DatabaseService {
      * @param aConfig A configuration
      */
     public DatabaseServiceImpl(final Vertx aVertx, final JsonObject aConfig) {
-        myDbConnectionPool = PgPool.pool(aVertx, getConnectionOpts(aConfig), getPoolOpts(aConfig));
+        final PgConnectOptions connectOptions = getConnectionOpts(aConfig);
+
+        myVertx = aVertx;
+        myDbConnectionPool = PgPool.pool(aVertx, connectOptions, getPoolOpts(aConfig));
         myDbCacheClient = Redis.createClient(aVertx, getDbCacheClientOpts(aConfig));
+        myAccessModeCache = new LocalCache<>(aConfig.getInteger(Config.ACCESS_MODE_CACHE_MAX_SIZE, 10_000),
+                aConfig.getLong(Config.ACCESS_MODE_CACHE_TTL, 60L));
+        myNotFoundCache = new LocalCache<>(aConfig.getInteger(Config.NOT_FOUND_CACHE_MAX_SIZE, 10_000),
+                aConfig.getLong(Config.NOT_FOUND_CACHE_TTL, 10L));
+        myItemFilter = new ItemFilter(aConfig.getDouble(Config.ITEM_FILTER_FALSE_POSITIVE_RATE, 0.01));
+        myDbCacheTtl = aConfig.getLong(Config.DB_CACHE_TTL, 3600L);
+        myBulkLoadThreshold = aConfig.getInteger(Config.DB_BULK_LOAD_THRESHOLD, 500);
+        myAccessModeBatcher = new AccessModeBatcher(aVertx, aConfig.getLong(Config.DB_BATCH_WINDOW, 0L),
+                aConfig.getInteger(Config.DB_BATCH_MAX_SIZE, 100), this::selectAccessModes);
+        myItemsJobQueue = new ItemsJobQueue(aVertx, aConfig.getInteger(Config.ITEMS_JOB_CONCURRENCY, 1),
+                aConfig.getInteger(Config.ITEMS_JOB_CHUNK_SIZE, 1000),
+                aConfig.getLong(Config.ITEMS_JOB_RETENTION, 86_400L), this::setItems);
+        myDbReconnectInterval = connectOptions.getReconnectInterval();
+        myDbChangeSubscriber = PgSubscriber.subscriber(aVertx, connectOptions)
+                .reconnectPolicy(retries -> myDbReconnectInterval);
+        isReplicaEnabled = aConfig.getBoolean(Config.DB_REPLICA_ENABLED, false);
+        myReplicaMaxChanges = Math.max(1, aConfig.getInteger(Config.DB_REPLICA_MAX_CHANGES, 100_000));
+        // The replica already knows which items don't exist
+        isItemFilterEnabled = aConfig.getBoolean(Config.ITEM_FILTER_ENABLED, false) && !isReplicaEnabled;
+
+        // Items changed by other instances of the application must not be served stale from memory, or put back in the
+        // database cache by a lookup that they overtook
+        if (myAccessModeCache.isEnabled() || myNotFoundCache.isEnabled() || isReplicaEnabled || isItemFilterEnabled ||
+                myDbCacheTtl > 0) {
+            myDbChangeSubscriber.channel(ITEMS_CHANNEL).handler(this::handleItemChange)
+                    .subscribeHandler(unused -> handleItemChangesMissed());
+            connectDbChangeSubscriber();
+            checkItemsChangedTrigger();
+        }
+
+        if (isItemFilterEnabled) {
+            loadItemFilter();
+        }
+
+        if (isReplicaEnabled) {
+            final long refreshInterval = aConfig.getLong(Config.DB_REPLICA_REFRESH_INTERVAL, 3600L);
+
+            loadReplicaUntilReady();
+
+            if (refreshInterval > 0) {
+                myReplicaRefreshTimer = aVertx.setPeriodic(TimeUnit.SECONDS.toMillis(refreshInterval),
+                        timerID -> loadReplica());
+            }
+        } else {
+            myReadiness.complete();
+        }
+    }
+
+    /**
+     * Gets a Future that resolves once the service is ready to handle requests. If the in-memory replica of the items
+     * table is enabled, that is once it has been loaded for the first time; otherwise, it is immediately.
+     *
+     * @return A Future that resolves once the service is ready
+     */
+    public Future<Void> ready() {
+        return myReadiness.future();
     }
 
     @Override
     public Future<Void> close() {
+        isClosed = true;
+        myVertx.cancelTimer(myReplicaRefreshTimer);
+        myDbChangeSubscriber.close();
         myDbCacheClient.close();
         return myDbConnectionPool.close();
     }
 
     @Override
     public Future<Integer> getAccessMode(final String aID) {
+        final Integer cachedAccessMode;
+
+        // The replica is authoritative, so we can answer without going to the network whether or not the item exists
+        if (myReplica.isLoaded()) {
+            final Integer replicatedAccessMode = myReplica.get(aID);
+
+            if (replicatedAccessMode != null) {
+                return Future.succeededFuture(replicatedAccessMode);
+            }
+            return Future.failedFuture(new ServiceException(NOT_FOUND_ERROR, aID));
+        }
+
+        cachedAccessMode = myAccessModeCache.get(aID);
+
+        if (cachedAccessMode != null) {
+            return Future.succeededFuture(cachedAccessMode);
+        }
+
+        if (isKnownNotFound(aID)) {
+            return Future.failedFuture(new ServiceException(NOT_FOUND_ERROR, aID));
+        }
+
+        return getSharedLookup(aID);
+    }
+
+    @Override
+    public Future<JsonObject> getMetrics() {
+        final JsonObject metrics = new JsonObject() //
+                .put(ResponseJsonKeys.COALESCED_LOOKUPS, myCoalescedLookups.get());
+
+        if (isItemFilterEnabled) {
+            metrics.put(ResponseJsonKeys.FILTERED_LOOKUPS, myFilteredLookups.get())
+                    .put(ResponseJsonKeys.FILTER_FALSE_POSITIVES, myFilterFalsePositives.get())
+                    .put(ResponseJsonKeys.FILTER_FALSE_POSITIVE_RATE, myItemFilter.getFalsePositiveRate());
+        }
+
+        return Future.succeededFuture(metrics);
+    }
+
+    @Override
+    public Future<JsonObject> getAccessModes(final JsonArray aIDs) {
+        final JsonObject accessModes = new JsonObject();
+        final List<String> uncachedIDs = new ArrayList<>();
+        final Map<String, Long> versions = new HashMap<>();
+
+        try {
+            for (int index = 0; index < aIDs.size(); index++) {
+                // Every ID gets an entry up front, so that the response lists them in the order they were requested
+                accessModes.putNull(Objects.requireNonNull(aIDs.getString(index)));
+            }
+        } catch (final ClassCastException | NullPointerException details) {
+            return Future.failedFuture(new ServiceException(MALFORMED_INPUT_DATA_ERROR, aIDs.encode()));
+        }
+
+        if (myReplica.isLoaded()) {
+            for (final String id : accessModes.fieldNames()) {
+                accessModes.put(id, myReplica.get(id));
+            }
+            return Future.succeededFuture(accessModes);
+        }
+
+        for (final String id : accessModes.fieldNames()) {
+            final Integer cachedAccessMode = myAccessModeCache.get(id);
+
+            if (cachedAccessMode != null) {
+                accessModes.put(id, cachedAccessMode);
+            } else if (!isKnownNotFound(id)) {
+                uncachedIDs.add(id);
+                versions.put(id, myItemVersions.get(id));
+            }
+        }
+
+        return getCachedAccessModes(uncachedIDs).compose(cachedAccessModes -> {
+            final List<String> unresolvedIDs = new ArrayList<>();
+
+            for (final String id : uncachedIDs) {
+                final Integer accessMode = cachedAccessModes.get(id);
+
+                if (accessMode != null) {
+                    cacheLookedUpAccessMode(id, accessMode, versions.get(id));
+                    accessModes.put(id, accessMode);
+                } else {
+                    unresolvedIDs.add(id);
+                }
+            }
+
+            return selectAccessModes(unresolvedIDs).onSuccess(selectedAccessModes -> {
+                for (final String id : unresolvedIDs) {
+                    if (!selectedAccessModes.containsKey(id)) {
+                        recordNotFound(id, versions.get(id));
+                    }
+                }
+            });
+        }).map(selectedAccessModes -> {
+            final Map<String, Integer> currentAccessModes = new HashMap<>();
+
+            selectedAccessModes.forEach((id, accessMode) -> {
+                cacheLookedUpAccessMode(id, accessMode, versions.get(id));
+                accessModes.put(id, accessMode);
+
+                if (myItemVersions.isCurrent(id, versions.get(id))) {
+                    currentAccessModes.put(id, accessMode);
+                }
+            });
+            cacheAccessModes(currentAccessModes, false);
+
+            return accessModes;
+        });
+    }
+
+    @Override
+    public Future<Void> setAccessMode(final String aID, final int aAccessMode) {
+        return uncacheAccessModes(List.of(aID)).compose(unused -> myDbConnectionPool.withConnection(connection -> {
+            return connection.preparedQuery(UPSERT_ACCESS_MODE).execute(Tuple.of(aID, aAccessMode));
+        })).recover(error -> {
+            return Future.failedFuture(new ServiceException(INTERNAL_ERROR, error.getMessage()));
+        }).compose(result -> {
+            // There's nothing to invalidate if the item already had the access mode
+            if (result.size() > 0) {
+                handleAccessModesSet(Map.of(aID, aAccessMode));
+            }
+            return Future.succeededFuture();
+        });
+    }
+
+    @Override
+    public Future<JsonObject> setItems(final JsonArray aItems) {
+        final Set<String> ids = new HashSet<>();
+        final List<Tuple> tuples;
+
+        try {
+            tuples = ItemsDecoder.decode(aItems);
+        } catch (final ServiceException details) {
+            return Future.failedFuture(details);
+        }
+
+        for (final Tuple tuple : tuples) {
+            ids.add(tuple.getString(0));
+        }
+
+        return uncacheAccessModes(ids).compose(unused -> myDbConnectionPool.withConnection(connection -> {
+            // A batch is a round trip per item, so large lists are sent as a pair of arrays instead
+            if (tuples.size() > myBulkLoadThreshold) {
+                return connection.preparedQuery(BULK_UPSERT_ACCESS_MODES).execute(getBulkQueryTuple(tuples));
+            }
+
+            return connection.preparedQuery(UPSERT_ACCESS_MODE).executeBatch(tuples);
+        })).recover(error -> {
+            return Future.failedFuture(new ServiceException(INTERNAL_ERROR, error.getMessage()));
+        }).map(result -> {
+            final Map<String, Integer> changedAccessModes = new HashMap<>();
+            final Set<String> insertedIDs = new HashSet<>();
+
+            // A batch has a result for each item, which is empty if the item wasn't written; if an item is listed
+            // more than once, the last access mode wins (as it does in the database)
+            for (RowSet<Row> rows = result; rows != null; rows = rows.next()) {
+                for (final Row row : rows) {
+                    changedAccessModes.put(row.getString(0), row.getInteger(1));
+
+                    if (row.getBoolean(2)) {
+                        insertedIDs.add(row.getString(0));
+                    }
+                }
+            }
+
+            // Only the items that were written can be stale anywhere else
+            handleAccessModesSet(changedAccessModes);
+
+            return new JsonObject() //
+                    .put(ResponseJsonKeys.INSERTED, insertedIDs.size()) //
+                    .put(ResponseJsonKeys.UPDATED, changedAccessModes.size() - insertedIDs.size()) //
+                    .put(ResponseJsonKeys.UNCHANGED, ids.size() - changedAccessModes.size());
+        });
+    }
+
+    @Override
+    public Future<String> submitItemsJob(final JsonArray aItems) {
+        return Future.succeededFuture(myItemsJobQueue.submit(aItems));
+    }
+
+    @Override
+    public Future<JsonObject> getItemsJob(final String aID) {
+        final JsonObject status = myItemsJobQueue.getStatus(aID);
+
+        if (status == null) {
+            return Future.failedFuture(new ServiceException(NOT_FOUND_ERROR, aID));
+        }
+        return Future.succeededFuture(status);
+    }
+
+    /**
+     * Updates the in-memory state and the database cache after item access modes have been set through this instance of
+     * the application.
+     *
+     * @param aAccessModes A map of item identifiers to access modes
+     */
+    private void handleAccessModesSet(final Map<String, Integer> aAccessModes) {
+        final Set<String> ids = aAccessModes.keySet();
+
+        // Lookups that started before the update mustn't cache what they find, or be shared with later ones
+        myItemVersions.incrementAll(ids);
+        myInFlightLookups.keySet().removeAll(ids);
+        myAccessModeCache.invalidateAll(ids);
+        myNotFoundCache.invalidateAll(ids);
+        filterItems(ids);
+        cacheAccessModes(aAccessModes, true);
+        replicateAccessModes(aAccessModes);
+    }
+
+    /**
+     * Connects the subscriber to changes to the items table, retrying until either it succeeds or the service is
+     * closed. Once connected, the subscriber reconnects on its own if the connection is lost.
+     */
+    private void connectDbChangeSubscriber() {
+        myDbChangeSubscriber.connect().onFailure(error -> {
+            if (!isClosed) {
+                LOGGER.warn(MessageCodes.AUTH_026, error.getMessage());
+                myVertx.setTimer(myDbReconnectInterval, timerID -> connectDbChangeSubscriber());
+            }
+        });
+    }
+
+    /**
+     * Warns if the items table doesn't have the trigger that announces changes to it, since without it, changes made
+     * through other instances of the application go unnoticed until they expire from the caches or the replica is
+     * refreshed. The filter of item identifiers is turned off in that case (or if it can't be told), since it's never
+     * rebuilt on a schedule, and would otherwise keep ruling out items added through other instances until a restart.
+     */
+    private void checkItemsChangedTrigger() {
+        myDbConnectionPool.query(HAS_ITEMS_CHANGED_TRIGGER).execute().onSuccess(result -> {
+            if (!result.iterator().next().getBoolean(0)) {
+                LOGGER.warn(MessageCodes.AUTH_059, ITEMS_CHANNEL);
+                disableItemFilter();
+            }
+        }).onFailure(error -> {
+            LOGGER.warn(MessageCodes.AUTH_060, ITEMS_CHANNEL, error.getMessage());
+            disableItemFilter();
+        });
+    }
+
+    /**
+     * Stops using the filter of item identifiers, if it's enabled.
+     */
+    private void disableItemFilter() {
+        if (isItemFilterEnabled) {
+            isItemFilterEnabled = false;
+            LOGGER.warn(MessageCodes.AUTH_061, ITEMS_CHANNEL);
+        }
+    }
+
+    /**
+     * Updates the in-process cache with a change to the items table.
+     *
+     * @param aPayload The payload of a notification on {@link #ITEMS_CHANNEL}, which is a JSON object with the same
+     *        shape as an element of the request body of the "postItems" OpenAPI operation
+     */
+    private void handleItemChange(final String aPayload) {
+        try {
+            final JsonObject item = new JsonObject(aPayload);
+            final String id = item.getString(RequestJsonKeys.UID);
+            final Integer accessMode = item.getInteger(RequestJsonKeys.ACCESS_MODE);
+
+            if (id != null && accessMode != null) {
+                myItemVersions.incrementAll(List.of(id));
+                // The change wasn't written through to the database cache if it was made directly in the database
+                uncacheAccessModes(List.of(id));
+                myAccessModeCache.put(id, accessMode);
+                myNotFoundCache.invalidate(id);
+                filterItems(List.of(id));
+                replicateAccessModes(Map.of(id, accessMode));
+            } else {
+                LOGGER.warn(MessageCodes.AUTH_027, aPayload);
+            }
+        } catch (final ClassCastException | DecodeException details) {
+            LOGGER.warn(MessageCodes.AUTH_027, aPayload);
+        }
+    }
+
+    /**
+     * Discards whatever in-memory state may have missed a change notification, since notifications that are sent while
+     * the subscriber isn't connected are lost.
+     */
+    private void handleItemChangesMissed() {
+        myItemVersions.incrementAll();
+        myAccessModeCache.clear();
+        myNotFoundCache.clear();
+
+        if (myReplica.isLoaded()) {
+            loadReplica();
+        }
+
+        if (isItemFilterEnabled && myItemFilter.isLoaded()) {
+            loadItemFilter();
+        }
+    }
+
+    /**
+     * Checks whether an item is known not to exist, either because it was recently looked up and not found, or because
+     * the filter of item identifiers rules it out.
+     *
+     * @param aID An item identifier
+     * @return Whether the item is known not to exist
+     */
+    private boolean isKnownNotFound(final String aID) {
+        if (myNotFoundCache.get(aID) != null) {
+            return true;
+        }
+
+        if (isItemFilterEnabled && !myItemFilter.mightContain(aID)) {
+            myFilteredLookups.incrementAndGet();
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Records that an item was looked up in the database and not found, unless the item has changed since the lookup
+     * started; it may have been inserted after the lookup read the database.
+     *
+     * @param aID An item identifier
+     * @param aVersion The version that the item had when the lookup started
+     */
+    private void recordNotFound(final String aID, final long aVersion) {
+        if (myItemVersions.isCurrent(aID, aVersion)) {
+            myNotFoundCache.put(aID, Boolean.TRUE);
+
+            // An insert that landed between the check and the put has already invalidated the cache, so undo the put
+            if (!myItemVersions.isCurrent(aID, aVersion)) {
+                myNotFoundCache.invalidate(aID);
+            }
+        }
+
+        if (isItemFilterEnabled && myItemFilter.isLoaded()) {
+            myFilterFalsePositives.incrementAndGet();
+        }
+    }
+
+    /**
+     * Adds items to the filter of item identifiers, if it's enabled, and replaces the filter with a bigger one if it
+     * has filled up.
+     *
+     * @param aIDs A collection of item identifiers
+     */
+    private void filterItems(final Collection<String> aIDs) {
+        if (isItemFilterEnabled) {
+            myItemFilter.addAll(aIDs);
+
+            if (myItemFilter.isFull() && !myItemFilter.isLoading()) {
+                loadItemFilter();
+            }
+        }
+    }
+
+    /**
+     * Loads a new filter of the identifiers in the items table, retrying until either it succeeds or the service is
+     * closed. The table is read with a cursor so that the whole result set is never buffered by the database client.
+     */
+    private void loadItemFilter() {
+        final AtomicReference<BloomFilter> loadingFilter = new AtomicReference<>();
+        final long startTime = System.nanoTime();
+
+        myDbConnectionPool.withTransaction(connection -> {
+            return connection.query(COUNT_ITEMS).execute().compose(count -> {
+                final long itemCount = count.iterator().next().getLong(0);
+                final BloomFilter filter = myItemFilter.startLoad(itemCount);
+
+                if (filter == null) {
+                    // Another load is already underway, and it will pick up any items added up to now
+                    return Future.succeededFuture(itemCount);
+                }
+
+                loadingFilter.set(filter);
+
+                return connection.prepare(SELECT_ALL_IDS).compose(statement -> Future.<Long>future(promise -> {
+                    final RowStream<Row> stream = statement.createStream(REPLICA_FETCH_SIZE);
+
+                    stream.exceptionHandler(promise::fail).endHandler(unused -> promise.complete(itemCount));
+                    stream.handler(row -> filter.add(row.getString(0)));
+                }));
+            });
+        }).onSuccess(itemCount -> {
+            if (loadingFilter.get() != null) {
+                myItemFilter.finishLoad(loadingFilter.get());
+                LOGGER.info(MessageCodes.AUTH_031, itemCount, myItemFilter.getFalsePositiveRate(),
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+            }
+        }).onFailure(error -> {
+            LOGGER.error(MessageCodes.AUTH_032, error.getMessage());
+
+            if (loadingFilter.get() != null) {
+                myItemFilter.abortLoad(loadingFilter.get());
+            }
+
+            if (!isClosed && isItemFilterEnabled && !myItemFilter.isLoaded()) {
+                myVertx.setTimer(myDbReconnectInterval, timerID -> loadItemFilter());
+            }
+        });
+    }
+
+    /**
+     * Records changes to item access modes in the in-memory replica of the items table, if it's enabled, and reloads
+     * the replica if too many changes have piled up on top of its snapshot.
+     *
+     * @param aAccessModes A map of item identifiers to access modes
+     */
+    private void replicateAccessModes(final Map<String, Integer> aAccessModes) {
+        if (isReplicaEnabled) {
+            aAccessModes.forEach(myReplica::put);
+
+            // Does nothing if a load is already underway
+            if (myReplica.isLoaded() && myReplica.getChangeCount() >= myReplicaMaxChanges) {
+                loadReplica();
+            }
+        }
+    }
+
+    /**
+     * Loads the in-memory replica of the items table, retrying until either it succeeds or the service is closed, and
+     * then marks the service as ready.
+     */
+    private void loadReplicaUntilReady() {
+        loadReplica().onSuccess(myReadiness::tryComplete).onFailure(error -> {
+            if (!isClosed) {
+                myVertx.setTimer(myDbReconnectInterval, timerID -> loadReplicaUntilReady());
+            }
+        });
+    }
+
+    /**
+     * Loads a new snapshot of the items table into the in-memory replica. The table is read with a cursor so that the
+     * whole result set is never buffered by the database client.
+     *
+     * @return A Future that resolves once the snapshot has been swapped in
+     */
+    private Future<Void> loadReplica() {
+        final CompactAccessModeStore.Builder snapshot = new CompactAccessModeStore.Builder();
+        final long startTime = System.nanoTime();
+
+        if (!myReplica.startLoad()) {
+            // Another load is already underway, and it will pick up any changes made up to now
+            return Future.succeededFuture();
+        }
+
+        return myDbConnectionPool.withTransaction(connection -> {
+            return connection.prepare(SELECT_ALL_ACCESS_MODES).compose(statement -> Future.<Void>future(promise -> {
+                final RowStream<Row> stream = statement.createStream(REPLICA_FETCH_SIZE);
+
+                stream.exceptionHandler(promise::fail).endHandler(unused -> promise.complete());
+                stream.handler(row -> {
+                    try {
+                        snapshot.add(row.getString(0), row.getInteger(1));
+                    } catch (final IllegalArgumentException details) {
+                        stream.close();
+                        promise.tryFail(details);
+                    }
+                });
+            }));
+        }).onSuccess(unused -> {
+            final CompactAccessModeStore store = snapshot.build();
+
+            myReplica.finishLoad(store);
+            LOGGER.info(MessageCodes.AUTH_028, store.size(), String.format("%.1f", store.bytesPerItem()),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+        }).onFailure(error -> {
+            myReplica.abortLoad();
+            LOGGER.error(MessageCodes.AUTH_029, error.getMessage());
+        });
+    }
+
+    /**
+     * Looks up the access mode of an item in the database cache and then the database, sharing the lookup with any
+     * others of the same item that start before it finishes.
+     *
+     * @param aID An item identifier
+     * @return A Future that resolves to the access mode, or fails if the item isn't in the database
+     */
+    private Future<Integer> getSharedLookup(final String aID) {
+        final Promise<Integer> promise = Promise.promise();
+        final Future<Integer> inFlightLookup = myInFlightLookups.putIfAbsent(aID, promise.future());
+
+        if (inFlightLookup != null) {
+            myCoalescedLookups.incrementAndGet();
+            return inFlightLookup;
+        }
+
+        lookUpAccessMode(aID).onComplete(lookup -> {
+            // Remove the lookup first, so that anyone who asks after it has finished starts a new one
+            myInFlightLookups.remove(aID, promise.future());
+            promise.handle(lookup);
+        });
+
+        return promise.future();
+    }
+
+    /**
+     * Looks up the access mode of an item in the database cache and then the database, caching what is found.
+     *
+     * @param aID An item identifier
+     * @return A Future that resolves to the access mode, or fails if the item isn't in the database
+     */
+    private Future<Integer> lookUpAccessMode(final String aID) {
+        final long version = myItemVersions.get(aID);
+
+        return getCachedAccessModes(List.of(aID)).compose(cachedAccessModes -> {
+            final Integer accessMode = cachedAccessModes.get(aID);
+
+            if (accessMode != null) {
+                cacheLookedUpAccessMode(aID, accessMode, version);
+                return Future.succeededFuture(accessMode);
+            }
+
+            return selectAccessMode(aID).onSuccess(selectedAccessMode -> {
+                cacheLookedUpAccessMode(aID, selectedAccessMode, version);
+
+                if (myItemVersions.isCurrent(aID, version)) {
+                    cacheAccessModes(Map.of(aID, selectedAccessMode), false);
+                }
+            }).onFailure(error -> {
+                if (error instanceof ServiceException && ((ServiceException) error).failureCode() == NOT_FOUND_ERROR) {
+                    recordNotFound(aID, version);
+                }
+            });
+        });
+    }
+
+    /**
+     * Adds the access mode that a lookup found to the in-process cache, unless the item has changed since the lookup
+     * started; the change has already invalidated the cache, and what the lookup found may be older than it.
+     *
+     * @param aID An item identifier
+     * @param anAccessMode The access mode that the lookup found
+     * @param aVersion The version that the item had when the lookup started
+     */
+    private void cacheLookedUpAccessMode(final String aID, final int anAccessMode, final long aVersion) {
+        if (myItemVersions.isCurrent(aID, aVersion)) {
+            myAccessModeCache.put(aID, anAccessMode);
+
+            // A change that landed between the check and the put has already invalidated the cache, so undo the put
+            if (!myItemVersions.isCurrent(aID, aVersion)) {
+                myAccessModeCache.invalidate(aID);
+            }
+        }
+    }
+
+    /**
+     * Selects the access mode of an item from the database. This is package-private so that tests can delay it.
+     *
+     * @param aID The item identifier
+     * @return A Future that resolves to the access mode, or fails if the item isn't in the database
+     */
+    Future<Integer> selectAccessMode(final String aID) {
+        if (myAccessModeBatcher.isEnabled()) {
+            return myAccessModeBatcher.get(aID).compose(accessMode -> {
+                if (accessMode != null) {
+                    return Future.succeededFuture(accessMode);
+                }
+                return Future.failedFuture(new ServiceException(NOT_FOUND_ERROR, aID));
+            });
+        }
+
         return myDbConnectionPool.withConnection(connection -> {
             return connection.preparedQuery(SELECT_ACCESS_MODE).execute(Tuple.of(aID));
         }).recover(error -> {
@@ -127,29 +927,131 @@ public class DatabaseServiceImpl implements DatabaseService {
         });
     }
 
-    @Override
-    public Future<Void> setAccessMode(final String aID, final int aAccessMode) {
+    /**
+     * Selects the access modes of the given items from the database with a single query.
+     *
+     * @param aIDs A collection of item identifiers
+     * @return A Future that resolves to a map of item identifiers to access modes, which leaves out any items that
+     *         aren't in the database
+     */
+    private Future<Map<String, Integer>> selectAccessModes(final Collection<String> aIDs) {
+        if (aIDs.isEmpty()) {
+            return Future.succeededFuture(Map.of());
+        }
+
         return myDbConnectionPool.withConnection(connection -> {
-            return connection.preparedQuery(UPSERT_ACCESS_MODE).execute(Tuple.of(aID, aAccessMode));
+            return connection.preparedQuery(SELECT_ACCESS_MODES).execute(Tuple.of(aIDs.toArray(new String[0])));
         }).recover(error -> {
             return Future.failedFuture(new ServiceException(INTERNAL_ERROR, error.getMessage()));
-        }).compose(result -> Future.succeededFuture());
+        }).map(select -> {
+            final Map<String, Integer> accessModes = new HashMap<>();
+
+            for (final Row row : select) {
+                accessModes.put(row.getString(0), row.getInteger(1));
+            }
+
+            return accessModes;
+        });
     }
 
-    @Override
-    public Future<Void> setItems(final JsonArray aItems) {
-        return getPreparedQueryTuples(aItems).compose(tuples -> {
-            return myDbConnectionPool.withConnection(connection -> {
-                return connection.preparedQuery(UPSERT_ACCESS_MODE).executeBatch(tuples);
-            }).recover(error -> {
-                return Future.failedFuture(new ServiceException(INTERNAL_ERROR, error.getMessage()));
-            });
-        }).recover(error -> {
-            if (error instanceof ServiceException) {
-                return Future.failedFuture(error);
+    /**
+     * Gets the access modes of the given items from the database cache.
+     * <p>
+     * Items that aren't in the database cache are left out of the result. If the database cache can't be reached, the
+     * result is empty, so that callers fall back to the database.
+     *
+     * @param aIDs A collection of item identifiers
+     * @return A Future that resolves to a map of item identifiers to access modes
+     */
+    private Future<Map<String, Integer>> getCachedAccessModes(final Collection<String> aIDs) {
+        final Request mget;
+
+        if (myDbCacheTtl <= 0 || aIDs.isEmpty()) {
+            return Future.succeededFuture(Map.of());
+        }
+
+        mget = Request.cmd(Command.MGET);
+
+        for (final String id : aIDs) {
+            mget.arg(ACCESS_MODE_KEY_PREFIX + id);
+        }
+
+        return myDbCacheClient.send(mget).map(response -> {
+            final Map<String, Integer> accessModes = new HashMap<>();
+            int index = 0;
+
+            for (final String id : aIDs) {
+                final Response value = response.get(index++);
+
+                if (value != null) {
+                    accessModes.put(id, value.toInteger());
+                }
             }
-            return Future.failedFuture(new ServiceException(MALFORMED_INPUT_DATA_ERROR, error.getMessage()));
-        }).compose(result -> Future.succeededFuture());
+
+            return accessModes;
+        }).otherwise(error -> {
+            LOGGER.warn(MessageCodes.AUTH_024, error.getMessage());
+            return Map.of();
+        });
+    }
+
+    /**
+     * Writes the given item access modes to the database cache, each with its own expiry. The writes are pipelined,
+     * and any failure is logged rather than reported to the caller: a write to the database has already removed its
+     * items from the database cache (see {@link #uncacheAccessModes}), so a failed write-through only costs a miss.
+     * <p>
+     * Only a write to the database may overwrite what's in the database cache. What a lookup read from the database
+     * is only added if the item hasn't changed since the lookup started (as far as this instance knows) and it isn't
+     * cached already, because a write (on any instance of the application) may have landed since the read, and written
+     * its access mode through to the database cache; overwriting that with what was read would serve the old access
+     * mode everywhere until it expired.
+     *
+     * @param aAccessModes A map of item identifiers to access modes
+     * @param aIsWrite Whether the access modes were just written to the database, rather than read from it
+     */
+    private void cacheAccessModes(final Map<String, Integer> aAccessModes, final boolean aIsWrite) {
+        final List<Request> requests;
+
+        if (myDbCacheTtl <= 0 || aAccessModes.isEmpty()) {
+            return;
+        }
+
+        requests = new ArrayList<>(aAccessModes.size());
+
+        for (final Map.Entry<String, Integer> entry : aAccessModes.entrySet()) {
+            final Request set = Request.cmd(Command.SET).arg(ACCESS_MODE_KEY_PREFIX + entry.getKey())
+                    .arg(entry.getValue()).arg("EX").arg(myDbCacheTtl);
+
+            requests.add(aIsWrite ? set : set.arg("NX"));
+        }
+
+        myDbCacheClient.batch(requests).onFailure(error -> LOGGER.warn(MessageCodes.AUTH_025, error.getMessage()));
+    }
+
+    /**
+     * Removes the given items from the database cache. This is done before the items are written to the database, so
+     * that if the write-through that follows fails, the database cache doesn't go on serving the old access modes, and
+     * whenever a change notification arrives, since the change may not have been written through at all (if it was
+     * made directly in the database, for example). A failure is logged here; the caller decides whether it matters.
+     *
+     * @param aIDs A collection of item identifiers
+     * @return A Future that resolves once the items have been removed
+     */
+    private Future<Void> uncacheAccessModes(final Collection<String> aIDs) {
+        final Request del;
+
+        if (myDbCacheTtl <= 0 || aIDs.isEmpty()) {
+            return Future.succeededFuture();
+        }
+
+        del = Request.cmd(Command.DEL);
+
+        for (final String id : aIDs) {
+            del.arg(ACCESS_MODE_KEY_PREFIX + id);
+        }
+
+        return myDbCacheClient.send(del).<Void>mapEmpty()
+                .onFailure(error -> LOGGER.warn(MessageCodes.AUTH_062, error.getMessage()));
     }
 
     /**
@@ -188,10 +1090,10 @@ public class DatabaseServiceImpl implements DatabaseService {
     }
 
     /**
-     * Gets the test database cache's client options.
+     * Gets the database cache's client options.
      *
      * @param aConfig A configuration
-     * @return The test database cache's client options
+     * @return The database cache's client options
      */
     private RedisOptions getDbCacheClientOpts(final JsonObject aConfig) {
         final String dbCacheHost = aConfig.getString(Config.DB_CACHE_HOST, DEFAULT_HOSTNAME);
@@ -204,23 +1106,23 @@ public class DatabaseServiceImpl implements DatabaseService {
     }
 
     /**
-     * Gets a list of Tuples for executing a PreparedQuery.
+     * Converts the tuples for a batch of upserts into the tuple for a single bulk upsert.
      *
-     * @param aJsonArray A JSON representation of a list of items
-     * @return A Future that either resolves to the list of tuples, or fails if the input data is malformed
+     * @param aTuples A list of tuples for {@link #UPSERT_ACCESS_MODE}
+     * @return A tuple for {@link #BULK_UPSERT_ACCESS_MODES}
      */
-    private Future<List<Tuple>> getPreparedQueryTuples(final JsonArray aJsonArray) {
-        final List<Tuple> itemList = new ArrayList<>();
+    private static Tuple getBulkQueryTuple(final List<Tuple> aTuples) {
+        final String[] ids = new String[aTuples.size()];
+        final Integer[] accessModes = new Integer[aTuples.size()];
 
-        for (final Object item : aJsonArray.stream().collect(Collectors.toList())) {
-            try {
-                itemList.add(Item.create((JsonObject) item, myMapper).toPreparedQueryTuple());
-            } catch (final JsonProcessingException details) {
-                return Future.failedFuture(details);
-            }
+        for (int index = 0; index < ids.length; index++) {
+            final Tuple tuple = aTuples.get(index);
+
+            ids[index] = tuple.getString(0);
+            accessModes[index] = tuple.getInteger(1);
         }
 
-        return Future.succeededFuture(itemList);
+        return Tuple.tuple().addArrayOfString(ids).addArrayOfInteger(accessModes);
     }
 
     /**
@@ -232,55 +1134,4 @@ public class DatabaseServiceImpl implements DatabaseService {
     private static boolean hasSingleRow(final RowSet<Row> aRowSet) {
         return aRowSet.rowCount() == 1;
     }
-
-    /**
-     * Representation of a record in the items table.
-     */
-    private static final class Item {
-
-        /**
-         * Member variable corresponding to the `uid` column of the items table.
-         */
-        private final String myUID;
-
-        /**
-         * Member variable corresponding to the `access_mode` column of the items table.
-         */
-        private final int myAccessMode;
-
-        /**
-         * Creates an item.
-         *
-         * @param aUID The item identifier
-         * @param anAccessMode The access mode to use for the item
-         */
-        @JsonCreator
-        private Item(@JsonProperty(value = RequestJsonKeys.UID, required = true) final String aUID,
-                @JsonProperty(value = RequestJsonKeys.ACCESS_MODE, required = true) final int anAccessMode) {
-            myUID = aUID;
-            myAccessMode = anAccessMode;
-        }
-
-        /**
-         * Instantiates a new item from its JSON representation.
-         *
-         * @param aJsonObject A JSON representation of an item
-         * @param aMapper An {@link ObjectMapper}
-         * @return The item
-         * @throws JsonProcessingException If the JSON representation is invalid
-         */
-        public static Item create(final JsonObject aJsonObject, final ObjectMapper aMapper)
-                throws JsonProcessingException {
-            return aMapper.readValue(aJsonObject.toString(), Item.class);
-        }
-
-        /**
-         * Converts the item to a Tuple for use in a PreparedQuery.
-         *
-         * @return The item as a Tuple
-         */
-        public Tuple toPreparedQueryTuple() {
-            return Tuple.of(myUID, myAccessMode);
-        }
-    }
 }
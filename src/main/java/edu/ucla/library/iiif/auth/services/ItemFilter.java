@@ -0,0 +1,147 @@
+
+package edu.ucla.library.iiif.auth.services;
+
+import java.util.Collection;
+
+/**
+ * A {@link BloomFilter} of the identifiers in the items table, which lets lookups of items that definitely don't exist
+ * be answered without going to the database.
+ * <p>
+ * Until the filter has been loaded, every item might exist. Items added while a new filter is being loaded are added to
+ * both the current filter and the new one, so the new one can be swapped in without missing any.
+ */
+final class ItemFilter {
+
+    /**
+     * The false positive rate that new filters are sized for.
+     */
+    private final double myFalsePositiveRate;
+
+    /**
+     * The current filter; null until the first one has been loaded.
+     */
+    private volatile BloomFilter myFilter;
+
+    /**
+     * The filter that is being loaded; null unless a load is underway.
+     */
+    private volatile BloomFilter myLoadingFilter;
+
+    /**
+     * Creates an item filter.
+     *
+     * @param aFalsePositiveRate The false positive rate that new filters are sized for
+     */
+    ItemFilter(final double aFalsePositiveRate) {
+        myFalsePositiveRate = aFalsePositiveRate;
+    }
+
+    /**
+     * Checks whether a filter has been loaded.
+     *
+     * @return Whether the filter can be read from
+     */
+    boolean isLoaded() {
+        return myFilter != null;
+    }
+
+    /**
+     * Checks whether a new filter is being loaded.
+     *
+     * @return Whether a load is underway
+     */
+    boolean isLoading() {
+        return myLoadingFilter != null;
+    }
+
+    /**
+     * Checks whether an item might exist.
+     *
+     * @param aID An item identifier
+     * @return False if the item definitely doesn't exist; otherwise, true
+     */
+    boolean mightContain(final String aID) {
+        final BloomFilter filter = myFilter;
+
+        return filter == null || filter.mightContain(aID);
+    }
+
+    /**
+     * Records that items exist.
+     *
+     * @param aIDs A collection of item identifiers
+     */
+    void addAll(final Collection<String> aIDs) {
+        // Read the loading filter first; if it's swapped in between the two reads, we just add to it twice
+        final BloomFilter loadingFilter = myLoadingFilter;
+        final BloomFilter filter = myFilter;
+
+        for (final String id : aIDs) {
+            if (loadingFilter != null) {
+                loadingFilter.add(id);
+            }
+            if (filter != null) {
+                filter.add(id);
+            }
+        }
+    }
+
+    /**
+     * Starts loading a new filter. This must be called before the item identifiers are read from the database.
+     *
+     * @param aItemCount The number of items in the database
+     * @return The new filter, to which the item identifiers must be added, or null if another load is already underway
+     */
+    synchronized BloomFilter startLoad(final long aItemCount) {
+        if (myLoadingFilter != null) {
+            return null;
+        }
+
+        // Leave room for the table to grow, so that we don't have to reload as soon as items are added
+        myLoadingFilter = new BloomFilter(Math.max(aItemCount * 2, 10_000), myFalsePositiveRate);
+        return myLoadingFilter;
+    }
+
+    /**
+     * Swaps in a filter that has been loaded.
+     *
+     * @param aFilter The filter that was returned by {@link #startLoad(long)}
+     */
+    synchronized void finishLoad(final BloomFilter aFilter) {
+        if (myLoadingFilter == aFilter) {
+            myFilter = aFilter;
+            myLoadingFilter = null;
+        }
+    }
+
+    /**
+     * Abandons a filter that could not be loaded, keeping the current one.
+     *
+     * @param aFilter The filter that was returned by {@link #startLoad(long)}
+     */
+    synchronized void abortLoad(final BloomFilter aFilter) {
+        if (myLoadingFilter == aFilter) {
+            myLoadingFilter = null;
+        }
+    }
+
+    /**
+     * Checks whether the current filter has filled up to the point that it should be replaced with a bigger one.
+     *
+     * @return Whether its false positive rate has grown to more than twice the rate it was sized for
+     */
+    boolean isFull() {
+        return getFalsePositiveRate() > myFalsePositiveRate * 2;
+    }
+
+    /**
+     * Estimates the current filter's false positive rate.
+     *
+     * @return The estimated false positive rate, or zero if no filter has been loaded
+     */
+    double getFalsePositiveRate() {
+        final BloomFilter filter = myFilter;
+
+        return filter != null ? filter.getFalsePositiveRate() : 0;
+    }
+}
@@ -0,0 +1,80 @@
+
+package edu.ucla.library.iiif.auth.services;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Versions of items, which are incremented whenever an item changes, so that a lookup can tell whether the item
+ * changed while it was in flight and what it found must not be cached.
+ * <p>
+ * Items share a fixed number of version counters, by hash, so that the memory used doesn't grow with the number of
+ * items. An item's version therefore also changes when another item that shares its counter changes; that only means a
+ * lookup result goes uncached now and then. All methods are thread-safe.
+ */
+final class ItemVersions {
+
+    /**
+     * The number of version counters, which is a power of two.
+     */
+    private static final int COUNTER_COUNT = 4096;
+
+    /**
+     * The version counters.
+     */
+    private final AtomicLongArray myCounters = new AtomicLongArray(COUNTER_COUNT);
+
+    /**
+     * Gets the current version of an item, which a lookup of the item should get before it starts.
+     *
+     * @param aID An item identifier
+     * @return The item's version
+     */
+    long get(final String aID) {
+        return myCounters.get(getIndex(aID));
+    }
+
+    /**
+     * Checks whether an item has changed since it had the given version.
+     *
+     * @param aID An item identifier
+     * @param aVersion A version that the item had
+     * @return Whether the item still has the version
+     */
+    boolean isCurrent(final String aID, final long aVersion) {
+        return get(aID) == aVersion;
+    }
+
+    /**
+     * Increments the versions of items that have changed.
+     *
+     * @param aIDs A collection of item identifiers
+     */
+    void incrementAll(final Collection<String> aIDs) {
+        for (final String id : aIDs) {
+            myCounters.incrementAndGet(getIndex(id));
+        }
+    }
+
+    /**
+     * Increments the version of every item, for when it isn't known which items have changed.
+     */
+    void incrementAll() {
+        for (int index = 0; index < COUNTER_COUNT; index++) {
+            myCounters.incrementAndGet(index);
+        }
+    }
+
+    /**
+     * Gets the index of an item's version counter.
+     *
+     * @param aID An item identifier
+     * @return The index of the item's version counter
+     */
+    private static int getIndex(final String aID) {
+        final int hash = aID.hashCode();
+
+        // Mix the high bits in, since only the low ones are used
+        return (hash ^ hash >>> 16) & COUNTER_COUNT - 1;
+    }
+}
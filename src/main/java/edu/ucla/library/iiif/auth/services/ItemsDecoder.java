@@ -0,0 +1,132 @@
+
+package edu.ucla.library.iiif.auth.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import info.freelibrary.util.Logger;
+import info.freelibrary.util.LoggerFactory;
+
+import edu.ucla.library.iiif.auth.Error;
+import edu.ucla.library.iiif.auth.MessageCodes;
+import edu.ucla.library.iiif.auth.RequestJsonKeys;
+import edu.ucla.library.iiif.auth.ResponseJsonKeys;
+import edu.ucla.library.iiif.auth.handlers.AccessModeHandler.AccessMode;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.serviceproxy.ServiceException;
+import io.vertx.sqlclient.Tuple;
+
+/**
+ * Decodes a list of items, as given to {@link DatabaseService#setItems}, into the tuples for upserting them.
+ * <p>
+ * Each item is checked where it already sits in the decoded request body, rather than being written back out as JSON
+ * and read in again. Every malformed item is reported, by its position in the list, in the debug info of the
+ * {@link ServiceException} that is thrown: an {@link ResponseJsonKeys#ERRORS} array of objects with an
+ * {@link ResponseJsonKeys#INDEX} and a {@link ResponseJsonKeys#MESSAGE}.
+ */
+final class ItemsDecoder {
+
+    /**
+     * The most malformed items that are reported individually.
+     */
+    static final int MAX_ERRORS = 100;
+
+    /**
+     * The decoder's logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ItemsDecoder.class, MessageCodes.BUNDLE);
+
+    /**
+     * The number of properties that an item has.
+     */
+    private static final int PROPERTY_COUNT = 2;
+
+    /**
+     * The largest valid access mode ordinal.
+     */
+    private static final int MAX_ACCESS_MODE = AccessMode.values().length - 1;
+
+    /**
+     * Private constructor for utility class.
+     */
+    private ItemsDecoder() {
+        // This is intentionally left empty
+    }
+
+    /**
+     * Decodes a list of items.
+     *
+     * @param anItems A JSON array of objects with a string {@link RequestJsonKeys#UID} and an integer
+     *        {@link RequestJsonKeys#ACCESS_MODE}, and nothing else
+     * @return A tuple of the ID and access mode of each item, in order
+     * @throws ServiceException A {@link Error#MALFORMED_INPUT_DATA} error, if any of the items are malformed
+     */
+    static List<Tuple> decode(final JsonArray anItems) {
+        final List<Tuple> tuples = new ArrayList<>(anItems.size());
+        final JsonArray errors = new JsonArray();
+        int errorCount = 0;
+
+        for (int index = 0; index < anItems.size(); index++) {
+            final Object item = anItems.getValue(index);
+            final String error = item instanceof JsonObject ? decode((JsonObject) item, tuples) :
+                    LOGGER.getMessage(MessageCodes.AUTH_054);
+
+            if (error != null && errorCount++ < MAX_ERRORS) {
+                errors.add(new JsonObject().put(ResponseJsonKeys.INDEX, index).put(ResponseJsonKeys.MESSAGE, error));
+            }
+        }
+
+        if (errorCount > 0) {
+            throw new ServiceException(Error.MALFORMED_INPUT_DATA.ordinal(),
+                    LOGGER.getMessage(MessageCodes.AUTH_053, errorCount, anItems.size()),
+                    new JsonObject().put(ResponseJsonKeys.ERRORS, errors));
+        }
+
+        return tuples;
+    }
+
+    /**
+     * Decodes an item, and adds its tuple to the list if it's well-formed.
+     *
+     * @param anItem A JSON object
+     * @param aTuples The tuples of the items that have been decoded so far
+     * @return Why the item is malformed, or null if it isn't
+     */
+    private static String decode(final JsonObject anItem, final List<Tuple> aTuples) {
+        final Object uid = anItem.getValue(RequestJsonKeys.UID);
+        final Object accessMode = anItem.getValue(RequestJsonKeys.ACCESS_MODE);
+
+        if (uid == null) {
+            return LOGGER.getMessage(MessageCodes.AUTH_055, RequestJsonKeys.UID);
+        }
+
+        if (!(uid instanceof String)) {
+            return LOGGER.getMessage(MessageCodes.AUTH_056, RequestJsonKeys.UID);
+        }
+
+        if (accessMode == null) {
+            return LOGGER.getMessage(MessageCodes.AUTH_055, RequestJsonKeys.ACCESS_MODE);
+        }
+
+        // Only integers are accepted, so a decoded 1.5 isn't quietly truncated to 1
+        if (!(accessMode instanceof Integer) || (Integer) accessMode < 0 || (Integer) accessMode > MAX_ACCESS_MODE) {
+            return LOGGER.getMessage(MessageCodes.AUTH_057, RequestJsonKeys.ACCESS_MODE, 0, MAX_ACCESS_MODE);
+        }
+
+        if (anItem.size() > PROPERTY_COUNT) {
+            for (final Map.Entry<String, Object> property : anItem) {
+                final String key = property.getKey();
+
+                if (!RequestJsonKeys.UID.equals(key) && !RequestJsonKeys.ACCESS_MODE.equals(key)) {
+                    return LOGGER.getMessage(MessageCodes.AUTH_058, key);
+                }
+            }
+        }
+
+        aTuples.add(Tuple.of(uid, accessMode));
+        return null;
+    }
+}
@@ -0,0 +1,441 @@
+
+package edu.ucla.library.iiif.auth.services;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import info.freelibrary.util.Logger;
+import info.freelibrary.util.LoggerFactory;
+
+import edu.ucla.library.iiif.auth.Error;
+import edu.ucla.library.iiif.auth.MessageCodes;
+import edu.ucla.library.iiif.auth.ResponseJsonKeys;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.serviceproxy.ServiceException;
+
+/**
+ * Sets lists of items in the background, as jobs whose progress can be checked while they run.
+ * <p>
+ * Each job sets its items one chunk at a time, so it holds at most one database connection at once, and no more than
+ * a fixed number of jobs run at once; the rest wait in line. That way, however many items are being loaded, the
+ * connection pool always has connections left for access mode lookups. A chunk that can't be set is recorded as an
+ * error, and the job goes on to the next one. Finished jobs are forgotten once their retention period has elapsed. All
+ * methods are thread-safe.
+ * <p>
+ * Jobs, along with the items they have yet to set, are only kept in memory: they're lost on restart, and other
+ * instances of the application can't report on them. Requests about a job must therefore reach the instance that
+ * accepted it.
+ */
+final class ItemsJobQueue {
+
+    /**
+     * The states that a job can be in.
+     */
+    enum Status {
+
+        /**
+         * The job is waiting for another job to finish.
+         */
+        QUEUED,
+
+        /**
+         * The job is setting its items.
+         */
+        RUNNING,
+
+        /**
+         * The job has set all of its items.
+         */
+        SUCCEEDED,
+
+        /**
+         * The job has finished, but some or all of its items couldn't be set.
+         */
+        FAILED
+    }
+
+    /**
+     * The job queue's logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ItemsJobQueue.class, MessageCodes.BUNDLE);
+
+    /**
+     * The maximum number of errors that are recorded for a job; the number of items that couldn't be set is always
+     * counted in full.
+     */
+    private static final int MAX_ERRORS = 100;
+
+    /**
+     * The jobs that haven't yet been forgotten, by ID.
+     */
+    private final Map<String, Job> myJobs = new ConcurrentHashMap<>();
+
+    /**
+     * The jobs that are waiting to run, in the order they were submitted.
+     */
+    private final Queue<Job> myQueuedJobs = new ArrayDeque<>();
+
+    /**
+     * The Vert.x instance, used for timers and for scheduling each chunk.
+     */
+    private final Vertx myVertx;
+
+    /**
+     * The maximum number of jobs that run at once.
+     */
+    private final int myConcurrency;
+
+    /**
+     * The number of items that a job sets at once.
+     */
+    private final int myChunkSize;
+
+    /**
+     * The number of milliseconds that a finished job is remembered for.
+     */
+    private final long myRetention;
+
+    /**
+     * The function that sets a chunk of items and resolves to the numbers of them that were inserted, updated, and left
+     * unchanged.
+     */
+    private final Function<JsonArray, Future<JsonObject>> mySetItems;
+
+    /**
+     * The number of jobs that are running.
+     */
+    private int myRunningJobs;
+
+    /**
+     * Creates a job queue.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aConcurrency The maximum number of jobs that run at once
+     * @param aChunkSize The number of items that a job sets at once
+     * @param aRetention The number of seconds that a finished job is remembered for
+     * @param aSetItems A function that sets a chunk of items and resolves to the numbers of them that were inserted,
+     *        updated, and left unchanged, like {@link DatabaseService#setItems}, or fails with a
+     *        {@link ServiceException}
+     */
+    ItemsJobQueue(final Vertx aVertx, final int aConcurrency, final int aChunkSize, final long aRetention,
+            final Function<JsonArray, Future<JsonObject>> aSetItems) {
+        myVertx = aVertx;
+        myConcurrency = Math.max(1, aConcurrency);
+        myChunkSize = Math.max(1, aChunkSize);
+        myRetention = Math.max(1, TimeUnit.SECONDS.toMillis(aRetention));
+        mySetItems = aSetItems;
+    }
+
+    /**
+     * Submits a job, which starts as soon as fewer than the maximum number of jobs are running.
+     *
+     * @param aItems An array of objects that conforms to the request body schema of the "postItems" OpenAPI operation
+     * @return The ID of the job
+     */
+    String submit(final JsonArray aItems) {
+        final Job job = new Job(UUID.randomUUID().toString(), aItems);
+
+        myJobs.put(job.myID, job);
+        LOGGER.info(MessageCodes.AUTH_049, job.myID, aItems.size());
+
+        synchronized (this) {
+            myQueuedJobs.add(job);
+        }
+
+        startQueuedJobs();
+        return job.myID;
+    }
+
+    /**
+     * Gets the status of a job.
+     *
+     * @param aID The ID of a job
+     * @return The status of the job, or null if there's no such job (or it has been forgotten)
+     */
+    JsonObject getStatus(final String aID) {
+        final Job job = myJobs.get(aID);
+
+        return job != null ? job.toJson() : null;
+    }
+
+    /**
+     * Starts as many of the queued jobs as the concurrency limit allows.
+     */
+    private void startQueuedJobs() {
+        final List<Job> jobs = new ArrayList<>();
+
+        synchronized (this) {
+            while (myRunningJobs < myConcurrency && !myQueuedJobs.isEmpty()) {
+                myRunningJobs += 1;
+                jobs.add(myQueuedJobs.remove());
+            }
+        }
+
+        for (final Job job : jobs) {
+            job.start();
+            setChunk(job, 0);
+        }
+    }
+
+    /**
+     * Sets a job's next chunk of items, or finishes the job if there are none left.
+     *
+     * @param aJob A running job
+     * @param aOffset The index of the first item in the chunk
+     */
+    private void setChunk(final Job aJob, final int aOffset) {
+        final JsonArray items = aJob.getItems();
+        final int end = Math.min(aOffset + myChunkSize, items.size());
+        final JsonArray chunk;
+
+        if (aOffset >= end) {
+            finish(aJob);
+            return;
+        }
+
+        chunk = new JsonArray(new ArrayList<>(items.getList().subList(aOffset, end)));
+
+        mySetItems.apply(chunk).onSuccess(counts -> {
+            aJob.recordSuccess(chunk.size(), counts);
+        }).onFailure(error -> {
+            aJob.recordFailure(aOffset, end - 1, error);
+            LOGGER.error(MessageCodes.AUTH_051, aJob.myID, aOffset, end - 1, error.getMessage());
+        }).onComplete(result -> {
+            // A chunk that fails validation fails at once, so go on from a fresh stack rather than recursing
+            myVertx.runOnContext(unused -> setChunk(aJob, end));
+        });
+    }
+
+    /**
+     * Finishes a job, schedules it to be forgotten, and lets the next queued job start.
+     *
+     * @param aJob A job that has tried to set all of its items
+     */
+    private void finish(final Job aJob) {
+        final JsonObject status = aJob.finish();
+
+        LOGGER.info(MessageCodes.AUTH_050, aJob.myID, status.getString(ResponseJsonKeys.STATUS),
+                status.getInteger(ResponseJsonKeys.PROCESSED), status.getInteger(ResponseJsonKeys.CHANGED),
+                status.getInteger(ResponseJsonKeys.FAILED), status.getLong(ResponseJsonKeys.ITEMS_PER_SECOND));
+        myVertx.setTimer(myRetention, timerID -> myJobs.remove(aJob.myID));
+
+        synchronized (this) {
+            myRunningJobs -= 1;
+        }
+
+        startQueuedJobs();
+    }
+
+    /**
+     * The state of a single job.
+     */
+    private static final class Job {
+
+        /**
+         * The job's ID.
+         */
+        private final String myID;
+
+        /**
+         * The number of items in the job.
+         */
+        private final int myTotal;
+
+        /**
+         * When the job was submitted.
+         */
+        private final Instant mySubmitted = Instant.now();
+
+        /**
+         * The errors that have been recorded.
+         */
+        private final JsonArray myErrors = new JsonArray();
+
+        /**
+         * The items to set, or null once the job has finished.
+         */
+        private JsonArray myItems;
+
+        /**
+         * The job's status.
+         */
+        private Status myStatus = Status.QUEUED;
+
+        /**
+         * When the job started running, or null if it hasn't.
+         */
+        private Instant myStarted;
+
+        /**
+         * When the job finished, or null if it hasn't.
+         */
+        private Instant myFinished;
+
+        /**
+         * The number of items that have been processed, whether or not they could be set.
+         */
+        private int myProcessed;
+
+        /**
+         * The number of items that have been inserted.
+         */
+        private int myInserted;
+
+        /**
+         * The number of items whose access modes have been updated.
+         */
+        private int myUpdated;
+
+        /**
+         * The number of items that already had the given access modes.
+         */
+        private int myUnchanged;
+
+        /**
+         * The number of items that couldn't be set.
+         */
+        private int myFailed;
+
+        /**
+         * Creates the state of a job.
+         *
+         * @param aID The job's ID
+         * @param aItems The items to set
+         */
+        private Job(final String aID, final JsonArray aItems) {
+            myID = aID;
+            myItems = aItems;
+            myTotal = aItems.size();
+        }
+
+        /**
+         * Gets the items to set.
+         *
+         * @return The items to set
+         */
+        private synchronized JsonArray getItems() {
+            return myItems;
+        }
+
+        /**
+         * Marks the job as running.
+         */
+        private synchronized void start() {
+            myStatus = Status.RUNNING;
+            myStarted = Instant.now();
+        }
+
+        /**
+         * Records a chunk of items that has been set.
+         *
+         * @param aCount The number of items in the chunk
+         * @param aCounts The numbers of items in the chunk that were inserted, updated, and left unchanged
+         */
+        private synchronized void recordSuccess(final int aCount, final JsonObject aCounts) {
+            myProcessed += aCount;
+            myInserted += aCounts.getInteger(ResponseJsonKeys.INSERTED);
+            myUpdated += aCounts.getInteger(ResponseJsonKeys.UPDATED);
+            myUnchanged += aCounts.getInteger(ResponseJsonKeys.UNCHANGED);
+        }
+
+        /**
+         * Records a chunk of items that couldn't be set.
+         *
+         * @param aFrom The index of the first item in the chunk
+         * @param aTo The index of the last item in the chunk
+         * @param aError The reason the chunk couldn't be set
+         */
+        private synchronized void recordFailure(final int aFrom, final int aTo, final Throwable aError) {
+            final Error error = aError instanceof ServiceException
+                    ? Error.values()[((ServiceException) aError).failureCode()] : Error.INTERNAL_ERROR;
+            final JsonObject debugInfo =
+                    aError instanceof ServiceException ? ((ServiceException) aError).getDebugInfo() : null;
+
+            myProcessed += aTo - aFrom + 1;
+            myFailed += aTo - aFrom + 1;
+
+            if (myErrors.size() < MAX_ERRORS) {
+                final JsonObject entry = new JsonObject().put(ResponseJsonKeys.FROM, aFrom)
+                        .put(ResponseJsonKeys.TO, aTo).put(ResponseJsonKeys.ERROR, error)
+                        .put(ResponseJsonKeys.MESSAGE, aError.getMessage());
+
+                // Malformed items are listed by their positions in the chunk, so they're moved to the job's items
+                if (debugInfo != null && debugInfo.containsKey(ResponseJsonKeys.ERRORS)) {
+                    final JsonArray itemErrors = new JsonArray();
+
+                    for (final Object itemError : debugInfo.getJsonArray(ResponseJsonKeys.ERRORS)) {
+                        final JsonObject copy = ((JsonObject) itemError).copy();
+                        final int index = copy.getInteger(ResponseJsonKeys.INDEX);
+
+                        itemErrors.add(copy.put(ResponseJsonKeys.INDEX, aFrom + index));
+                    }
+
+                    entry.put(ResponseJsonKeys.ERRORS, itemErrors);
+                }
+
+                myErrors.add(entry);
+            }
+        }
+
+        /**
+         * Marks the job as finished, and lets go of its items.
+         *
+         * @return The job's final status
+         */
+        private synchronized JsonObject finish() {
+            myStatus = myFailed == 0 ? Status.SUCCEEDED : Status.FAILED;
+            myFinished = Instant.now();
+            myItems = null;
+
+            return toJson();
+        }
+
+        /**
+         * Gets the job's status.
+         *
+         * @return The job's status, as an object that conforms to the response body schema of the "getItemsJob"
+         *         OpenAPI operation
+         */
+        private synchronized JsonObject toJson() {
+            final JsonObject json = new JsonObject() //
+                    .put(ResponseJsonKeys.ID, myID) //
+                    .put(ResponseJsonKeys.STATUS, myStatus) //
+                    .put(ResponseJsonKeys.TOTAL, myTotal) //
+                    .put(ResponseJsonKeys.PROCESSED, myProcessed) //
+                    .put(ResponseJsonKeys.CHANGED, myInserted + myUpdated) //
+                    .put(ResponseJsonKeys.INSERTED, myInserted) //
+                    .put(ResponseJsonKeys.UPDATED, myUpdated) //
+                    .put(ResponseJsonKeys.UNCHANGED, myUnchanged) //
+                    .put(ResponseJsonKeys.FAILED, myFailed) //
+                    .put(ResponseJsonKeys.SUBMITTED, mySubmitted);
+
+            if (myStarted != null) {
+                final Instant end = myFinished != null ? myFinished : Instant.now();
+                // Count at least a millisecond, so that a job that finished at once doesn't divide by zero
+                final long elapsed = Math.max(1, Duration.between(myStarted, end).toMillis());
+
+                json.put(ResponseJsonKeys.STARTED, myStarted)
+                        .put(ResponseJsonKeys.ITEMS_PER_SECOND, myProcessed * 1000L / elapsed);
+            }
+
+            if (myFinished != null) {
+                json.put(ResponseJsonKeys.FINISHED, myFinished);
+            }
+
+            return json.put(ResponseJsonKeys.ERRORS, myErrors.copy());
+        }
+    }
+}
@@ -0,0 +1,181 @@
+
+package edu.ucla.library.iiif.auth.services;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * A bounded, in-process cache whose entries expire a fixed amount of time after they were added.
+ * <p>
+ * When the cache is full, the least recently used entry is evicted to make room for a new one. All methods are
+ * thread-safe.
+ *
+ * @param <V> The type of the cached values
+ */
+final class LocalCache<V> {
+
+    /**
+     * The cached entries, in access order.
+     */
+    private final Map<String, Entry<V>> myEntries;
+
+    /**
+     * The maximum number of entries.
+     */
+    private final int myMaxSize;
+
+    /**
+     * The number of nanoseconds an entry lives for.
+     */
+    private final long myTtl;
+
+    /**
+     * The source of the current time, in nanoseconds.
+     */
+    private final LongSupplier myClock;
+
+    /**
+     * Creates a cache.
+     *
+     * @param aMaxSize The maximum number of entries; if not positive, the cache stores nothing
+     * @param aTtl The number of seconds an entry lives for; if not positive, the cache stores nothing
+     */
+    LocalCache(final int aMaxSize, final long aTtl) {
+        this(aMaxSize, TimeUnit.SECONDS.toNanos(aTtl), System::nanoTime);
+    }
+
+    /**
+     * Creates a cache that uses the supplied clock.
+     *
+     * @param aMaxSize The maximum number of entries; if not positive, the cache stores nothing
+     * @param aTtl The number of nanoseconds an entry lives for; if not positive, the cache stores nothing
+     * @param aClock A source of the current time, in nanoseconds
+     */
+    LocalCache(final int aMaxSize, final long aTtl, final LongSupplier aClock) {
+        myMaxSize = aMaxSize;
+        myTtl = aTtl;
+        myClock = aClock;
+        myEntries = new LinkedHashMap<>(16, 0.75f, true) {
+
+            /**
+             * The <code>serialVersionUID</code> for this anonymous class.
+             */
+            private static final long serialVersionUID = -2893514026384187621L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Entry<V>> aEldest) {
+                return size() > myMaxSize;
+            }
+        };
+    }
+
+    /**
+     * Checks whether the cache is able to store anything.
+     *
+     * @return Whether the cache is enabled
+     */
+    boolean isEnabled() {
+        return myMaxSize > 0 && myTtl > 0;
+    }
+
+    /**
+     * Gets the unexpired value for the given key.
+     *
+     * @param aKey A key
+     * @return The cached value, or null if there isn't one
+     */
+    synchronized V get(final String aKey) {
+        final Entry<V> entry = myEntries.get(aKey);
+
+        if (entry == null) {
+            return null;
+        }
+
+        if (entry.myExpiry - myClock.getAsLong() <= 0) {
+            myEntries.remove(aKey);
+            return null;
+        }
+
+        return entry.myValue;
+    }
+
+    /**
+     * Caches the given value.
+     *
+     * @param aKey A key
+     * @param aValue A value
+     */
+    synchronized void put(final String aKey, final V aValue) {
+        if (isEnabled()) {
+            myEntries.put(aKey, new Entry<>(aValue, myClock.getAsLong() + myTtl));
+        }
+    }
+
+    /**
+     * Removes the value for the given key.
+     *
+     * @param aKey A key
+     */
+    synchronized void invalidate(final String aKey) {
+        myEntries.remove(aKey);
+    }
+
+    /**
+     * Removes the values for the given keys.
+     *
+     * @param aKeys A collection of keys
+     */
+    synchronized void invalidateAll(final Collection<String> aKeys) {
+        for (final String key : aKeys) {
+            myEntries.remove(key);
+        }
+    }
+
+    /**
+     * Removes all values.
+     */
+    synchronized void clear() {
+        myEntries.clear();
+    }
+
+    /**
+     * Gets the number of entries in the cache, including any that have expired but not yet been removed.
+     *
+     * @return The number of entries
+     */
+    synchronized int size() {
+        return myEntries.size();
+    }
+
+    /**
+     * A cached value and the time at which it expires.
+     *
+     * @param <V> The type of the cached value
+     */
+    private static final class Entry<V> {
+
+        /**
+         * The cached value.
+         */
+        private final V myValue;
+
+        /**
+         * The time at which the value expires, in nanoseconds.
+         */
+        private final long myExpiry;
+
+        /**
+         * Creates a cache entry.
+         *
+         * @param aValue The cached value
+         * @param aExpiry The time at which the value expires, in nanoseconds
+         */
+        private Entry(final V aValue, final long aExpiry) {
+            myValue = aValue;
+            myExpiry = aExpiry;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+
+package edu.ucla.library.iiif.auth.services;
+
+import java.security.Key;
+import java.security.NoSuchAlgorithmException;
+import java.security.spec.InvalidKeySpecException;
+import java.security.spec.KeySpec;
+import java.util.Base64;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import info.freelibrary.util.Logger;
+import info.freelibrary.util.LoggerFactory;
+
+import edu.ucla.library.iiif.auth.Config;
+import edu.ucla.library.iiif.auth.MessageCodes;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * The secret keys that access cookies are encrypted with, each identified by a number from 0 to 255 that is written
+ * into the cookies it encrypts. New cookies are encrypted with the active key, and cookies encrypted with any key on
+ * the ring can be decrypted, so that keys can be rotated without invalidating every cookie in circulation at once.
+ * <p>
+ * Keys are configured as raw key material with {@link Config#SECRET_KEYS}, so that the cost of deriving them is paid
+ * ahead of time. A key can also be derived at startup from {@link Config#SECRET_KEY_PASSWORD} and
+ * {@link Config#SECRET_KEY_SALT}, as before; it gets the ID {@value #LEGACY_KEY_ID}, which is also the key that
+ * cookies from before there were key IDs were encrypted with.
+ */
+final class SecretKeyRing {
+
+    /**
+     * The ID of the key that is derived from a password, and that cookies without a key ID were encrypted with.
+     */
+    static final int LEGACY_KEY_ID = 0;
+
+    /**
+     * The secret key ring's logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(SecretKeyRing.class, MessageCodes.BUNDLE);
+
+    /**
+     * The largest key ID, so that an ID fits in one byte.
+     */
+    private static final int MAX_KEY_ID = 255;
+
+    /**
+     * The separator between the entries in {@link Config#SECRET_KEYS}.
+     */
+    private static final String ENTRY_SEPARATOR = ",";
+
+    /**
+     * The separator between the ID and the key material of an entry in {@link Config#SECRET_KEYS}.
+     */
+    private static final char ID_SEPARATOR = ':';
+
+    /**
+     * The keys, indexed by ID; IDs that aren't in use are null.
+     */
+    private final Key[] myKeys = new Key[MAX_KEY_ID + 1];
+
+    /**
+     * The ID of the key that new cookies are encrypted with.
+     */
+    private final int myActiveKeyID;
+
+    /**
+     * Creates a key ring.
+     *
+     * @param aKeys The keys, by ID
+     * @param aActiveKeyID The ID of the key that new cookies should be encrypted with
+     * @throws InvalidKeySpecException If a key ID is out of range, or if there's no key with the active key ID
+     */
+    SecretKeyRing(final Map<Integer, Key> aKeys, final int aActiveKeyID) throws InvalidKeySpecException {
+        for (final Map.Entry<Integer, Key> entry : aKeys.entrySet()) {
+            final int id = entry.getKey();
+
+            if (id < 0 || id > MAX_KEY_ID) {
+                throw new InvalidKeySpecException(LOGGER.getMessage(MessageCodes.AUTH_040, id));
+            }
+
+            myKeys[id] = entry.getValue();
+        }
+
+        if (getKey(aActiveKeyID) == null) {
+            throw new InvalidKeySpecException(LOGGER.getMessage(MessageCodes.AUTH_037, aActiveKeyID));
+        }
+
+        myActiveKeyID = aActiveKeyID;
+    }
+
+    /**
+     * Creates a key ring from a configuration.
+     *
+     * @param aConfig A configuration
+     * @return The key ring
+     * @throws InvalidKeySpecException If the keys aren't configured properly, or a key ID is listed more than once
+     * @throws NoSuchAlgorithmException If {@link AccessCookieServiceImpl#KEY_DERIVATION_FUNCTION} isn't available
+     */
+    static SecretKeyRing fromConfig(final JsonObject aConfig) throws InvalidKeySpecException, NoSuchAlgorithmException {
+        final String secretKeys = aConfig.getString(Config.SECRET_KEYS);
+        final String password = aConfig.getString(Config.SECRET_KEY_PASSWORD);
+        final Map<Integer, Key> keys = new TreeMap<>();
+        final SecretKeyRing keyRing;
+        Integer activeKeyID = aConfig.getInteger(Config.SECRET_KEY_ID);
+
+        if (secretKeys != null && !secretKeys.isBlank()) {
+            final String[] entries = secretKeys.split(ENTRY_SEPARATOR);
+
+            for (int position = 0; position < entries.length; position++) {
+                final String entry = entries[position];
+                final int index = entry.indexOf(ID_SEPARATOR);
+                final int id;
+                final Key key;
+
+                // Don't put the entry itself in the message, since it contains a secret
+                try {
+                    id = Integer.parseInt(entry.substring(0, index).trim());
+                    key = toKey(Base64.getDecoder().decode(entry.substring(index + 1).trim()), id);
+                } catch (final IllegalArgumentException | IndexOutOfBoundsException details) {
+                    throw new InvalidKeySpecException(LOGGER.getMessage(MessageCodes.AUTH_038, position + 1));
+                }
+
+                // Otherwise one of the keys would be silently dropped, and its cookies no longer accepted
+                if (keys.putIfAbsent(id, key) != null) {
+                    throw new InvalidKeySpecException(LOGGER.getMessage(MessageCodes.AUTH_063, id));
+                }
+
+                // The first key listed is the active one, unless another is configured
+                if (activeKeyID == null) {
+                    activeKeyID = id;
+                }
+            }
+        }
+
+        // A pre-derived key takes the place of the derived one, so that the password can be dropped from the config
+        if (password != null && !keys.containsKey(LEGACY_KEY_ID)) {
+            keys.put(LEGACY_KEY_ID, derive(password, aConfig.getString(Config.SECRET_KEY_SALT)));
+        }
+
+        keyRing = new SecretKeyRing(keys, activeKeyID != null ? activeKeyID : LEGACY_KEY_ID);
+        LOGGER.info(MessageCodes.AUTH_039, keys.keySet(), keyRing.getActiveKeyID());
+
+        return keyRing;
+    }
+
+    /**
+     * Derives a key from a password. For reference material on the key derivation crypto, see RFC 8018:
+     * <ul>
+     * <li><a href="https://datatracker.ietf.org/doc/html/rfc8018#section-4.1">Salt</a>
+     * <li><a href="https://datatracker.ietf.org/doc/html/rfc8018#section-4.2">Iteration count</a>
+     * <li><a href="https://datatracker.ietf.org/doc/html/rfc8018#section-5.2">PBKDF2</a>
+     * </ul>
+     *
+     * @param aPassword A password
+     * @param aSalt A salt
+     * @return The derived key
+     * @throws InvalidKeySpecException If the {@link KeySpec} was not instantiated correctly
+     * @throws NoSuchAlgorithmException If {@link AccessCookieServiceImpl#KEY_DERIVATION_FUNCTION} isn't available
+     */
+    static Key derive(final String aPassword, final String aSalt)
+            throws InvalidKeySpecException, NoSuchAlgorithmException {
+        final int iterationCount = 65_536;
+        final int keyLength = 256;
+        final SecretKeyFactory factory = SecretKeyFactory.getInstance(AccessCookieServiceImpl.KEY_DERIVATION_FUNCTION);
+        final KeySpec spec = new PBEKeySpec(aPassword.toCharArray(), aSalt.getBytes(), iterationCount, keyLength);
+
+        return new SecretKeySpec(factory.generateSecret(spec).getEncoded(), AccessCookieServiceImpl.KEY_ALGORITHM);
+    }
+
+    /**
+     * Gets the ID of the key that new cookies should be encrypted with.
+     *
+     * @return The active key ID
+     */
+    int getActiveKeyID() {
+        return myActiveKeyID;
+    }
+
+    /**
+     * Gets the key that new cookies should be encrypted with.
+     *
+     * @return The active key
+     */
+    Key getActiveKey() {
+        return myKeys[myActiveKeyID];
+    }
+
+    /**
+     * Gets a key.
+     *
+     * @param aKeyID A key ID
+     * @return The key with that ID, or null if there isn't one
+     */
+    Key getKey(final int aKeyID) {
+        return aKeyID >= 0 && aKeyID <= MAX_KEY_ID ? myKeys[aKeyID] : null;
+    }
+
+    /**
+     * Wraps raw key material.
+     *
+     * @param aKeyMaterial The key material, which must be the right length for AES
+     * @param aKeyID The ID of the key, for the error message
+     * @return The key
+     * @throws InvalidKeySpecException If the key material is the wrong length
+     */
+    private static Key toKey(final byte[] aKeyMaterial, final int aKeyID) throws InvalidKeySpecException {
+        switch (aKeyMaterial.length) {
+            case 16:
+            case 24:
+            case 32:
+                return new SecretKeySpec(aKeyMaterial, AccessCookieServiceImpl.KEY_ALGORITHM);
+            default:
+                throw new InvalidKeySpecException(LOGGER.getMessage(MessageCodes.AUTH_040, aKeyID));
+        }
+    }
+}
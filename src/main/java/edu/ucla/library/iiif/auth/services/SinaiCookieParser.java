@@ -0,0 +1,328 @@
+
+package edu.ucla.library.iiif.auth.services;
+
+/**
+ * Parses the parts of a Sinai cookie without creating any objects, since a cookie is parsed on every
+ * <code>/token/sinai</code> request that misses the cache.
+ * <p>
+ * A decrypted text cookie is the valid prefix, a space, and a date in the
+ * {@link AccessCookieServiceImpl#SINAI_COOKIE_DATE_FORMAT} format, which the Sinai application always writes in
+ * English (e.g. <code>Authenticated Fri, 15 Oct 2021</code>).
+ * <p>
+ * A decrypted binary (version 2) cookie is a header made of the version byte, the valid prefix, and enough zero bytes
+ * to fill out the last AES block, followed by the time the cookie was issued, as big-endian epoch seconds. Since the
+ * issue time starts a new block, it can't be changed by tampering with the cookie without garbling the header.
+ */
+final class SinaiCookieParser {
+
+    /**
+     * The value returned for a date that can't be parsed.
+     */
+    static final long INVALID_DATE = Long.MIN_VALUE;
+
+    /**
+     * The length of a date, like <code>Fri, 15 Oct 2021</code>.
+     */
+    static final int DATE_LENGTH = 16;
+
+    /**
+     * The first byte of a binary cookie, which can't be the first byte of a text one.
+     */
+    static final byte VERSION_2 = 2;
+
+    /**
+     * The length in bytes of a binary cookie's issue time.
+     */
+    static final int TIMESTAMP_LENGTH = Long.BYTES;
+
+    /**
+     * The size in bytes of an AES block, which a binary cookie's header is padded to.
+     */
+    private static final int BLOCK_SIZE = 16;
+
+    /**
+     * The abbreviated day-of-week names, from Monday.
+     */
+    private static final String[] DAYS_OF_WEEK = { "Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun" };
+
+    /**
+     * The abbreviated month names, from January.
+     */
+    private static final String[] MONTHS =
+            { "Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec" };
+
+    /**
+     * The number of days from 0000-01-01 to 1970-01-01, as in {@link java.time.LocalDate#toEpochDay()}.
+     */
+    private static final long DAYS_0000_TO_1970 = 719_528L;
+
+    /**
+     * Private constructor for utility class.
+     */
+    private SinaiCookieParser() {
+    }
+
+    /**
+     * Decodes a hexadecimal string into a buffer.
+     *
+     * @param aHex A hexadecimal string, in either case
+     * @param aBuffer A buffer for the decoded bytes
+     * @return The number of decoded bytes, or -1 if the string isn't hexadecimal or doesn't fit in the buffer
+     */
+    static int decodeHex(final String aHex, final byte[] aBuffer) {
+        final int length = aHex.length();
+
+        if ((length & 1) != 0 || length / 2 > aBuffer.length) {
+            return -1;
+        }
+
+        for (int index = 0; index < length; index += 2) {
+            final int high = getHexValue(aHex.charAt(index));
+            final int low = getHexValue(aHex.charAt(index + 1));
+
+            if (high < 0 || low < 0) {
+                return -1;
+            }
+
+            aBuffer[index / 2] = (byte) (high << 4 | low);
+        }
+
+        return length / 2;
+    }
+
+    /**
+     * Checks whether a decrypted cookie starts with the valid prefix and a space.
+     *
+     * @param aCookie A buffer holding the decrypted cookie
+     * @param aLength The length of the decrypted cookie
+     * @param aPrefix The valid prefix, as bytes
+     * @return Whether the cookie has the prefix
+     */
+    static boolean hasPrefix(final byte[] aCookie, final int aLength, final byte[] aPrefix) {
+        if (aLength <= aPrefix.length || aCookie[aPrefix.length] != ' ') {
+            return false;
+        }
+
+        for (int index = 0; index < aPrefix.length; index++) {
+            if (aCookie[index] != aPrefix[index]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Creates the header that every binary cookie must start with.
+     *
+     * @param aPrefix The valid prefix, as bytes
+     * @return The header
+     */
+    static byte[] createHeader(final byte[] aPrefix) {
+        final int length = 1 + aPrefix.length;
+        final byte[] header = new byte[(length + BLOCK_SIZE - 1) / BLOCK_SIZE * BLOCK_SIZE];
+
+        header[0] = VERSION_2;
+        System.arraycopy(aPrefix, 0, header, 1, aPrefix.length);
+
+        return header;
+    }
+
+    /**
+     * Checks whether a decrypted cookie is a binary cookie with the expected header. The header is compared in
+     * constant time, so that how long the comparison takes says nothing about how much of it matched.
+     *
+     * @param aCookie A buffer holding the decrypted cookie
+     * @param aLength The length of the decrypted cookie
+     * @param aHeader The expected header, from {@link #createHeader(byte[])}
+     * @return Whether the cookie has the header and is the length of a binary cookie
+     */
+    static boolean hasHeader(final byte[] aCookie, final int aLength, final byte[] aHeader) {
+        int difference = aLength ^ (aHeader.length + TIMESTAMP_LENGTH);
+
+        if (aHeader.length > aCookie.length) {
+            return false;
+        }
+
+        for (int index = 0; index < aHeader.length; index++) {
+            difference |= aCookie[index] ^ aHeader[index];
+        }
+
+        return difference == 0;
+    }
+
+    /**
+     * Reads the issue time of a binary cookie.
+     *
+     * @param aCookie A buffer holding the decrypted cookie
+     * @param aOffset The index at which the issue time starts, which is the length of the header
+     * @return The issue time, in epoch seconds
+     */
+    static long parseTimestamp(final byte[] aCookie, final int aOffset) {
+        long timestamp = 0;
+
+        for (int index = aOffset; index < aOffset + TIMESTAMP_LENGTH; index++) {
+            timestamp = timestamp << Byte.SIZE | aCookie[index] & 0xFF;
+        }
+
+        return timestamp;
+    }
+
+    /**
+     * Parses the date in a decrypted cookie. Like {@link java.time.format.DateTimeFormatter}, it checks that the day of
+     * the week matches the date.
+     *
+     * @param aCookie A buffer holding the decrypted cookie
+     * @param aOffset The index at which the date starts
+     * @param aLength The length of the date
+     * @return The date as an epoch day, or {@link #INVALID_DATE} if it can't be parsed
+     */
+    static long parseDate(final byte[] aCookie, final int aOffset, final int aLength) {
+        final int dayOfWeek;
+        final int day;
+        final int month;
+        final int year;
+        final long epochDay;
+
+        if (aLength != DATE_LENGTH || aCookie[aOffset + 3] != ',' || aCookie[aOffset + 4] != ' ' ||
+                aCookie[aOffset + 7] != ' ' || aCookie[aOffset + 11] != ' ') {
+            return INVALID_DATE;
+        }
+
+        dayOfWeek = indexOf(DAYS_OF_WEEK, aCookie, aOffset);
+        day = parseDigits(aCookie, aOffset + 5, 2);
+        month = indexOf(MONTHS, aCookie, aOffset + 8) + 1;
+        year = parseDigits(aCookie, aOffset + 12, 4);
+
+        if (dayOfWeek < 0 || month < 1 || year < 0 || day < 1 || day > getMonthLength(month, year)) {
+            return INVALID_DATE;
+        }
+
+        epochDay = toEpochDay(year, month, day);
+
+        // 1970-01-01 was a Thursday
+        if (Math.floorMod(epochDay + 3, 7) != dayOfWeek) {
+            return INVALID_DATE;
+        }
+
+        return epochDay;
+    }
+
+    /**
+     * Gets the value of a hexadecimal digit.
+     *
+     * @param aChar A character
+     * @return The value of the digit, or -1 if it isn't a hexadecimal digit
+     */
+    private static int getHexValue(final char aChar) {
+        if (aChar >= '0' && aChar <= '9') {
+            return aChar - '0';
+        }
+
+        if (aChar >= 'a' && aChar <= 'f') {
+            return aChar - 'a' + 10;
+        }
+
+        if (aChar >= 'A' && aChar <= 'F') {
+            return aChar - 'A' + 10;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Parses a fixed number of decimal digits.
+     *
+     * @param aBytes A buffer
+     * @param aOffset The index of the first digit
+     * @param aCount The number of digits
+     * @return The value of the digits, or -1 if they aren't all digits
+     */
+    private static int parseDigits(final byte[] aBytes, final int aOffset, final int aCount) {
+        int value = 0;
+
+        for (int index = aOffset; index < aOffset + aCount; index++) {
+            final int digit = aBytes[index] - '0';
+
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+
+            value = value * 10 + digit;
+        }
+
+        return value;
+    }
+
+    /**
+     * Finds the three-letter name at a position in a buffer.
+     *
+     * @param aNames The names to look for
+     * @param aBytes A buffer
+     * @param aOffset The index at which the name starts
+     * @return The index of the name, or -1 if it isn't one of them
+     */
+    private static int indexOf(final String[] aNames, final byte[] aBytes, final int aOffset) {
+        for (int index = 0; index < aNames.length; index++) {
+            final String name = aNames[index];
+
+            if (aBytes[aOffset] == name.charAt(0) && aBytes[aOffset + 1] == name.charAt(1) &&
+                    aBytes[aOffset + 2] == name.charAt(2)) {
+                return index;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Gets the number of days in a month.
+     *
+     * @param aMonth A month, from 1 to 12
+     * @param aYear A year
+     * @return The number of days in the month
+     */
+    private static int getMonthLength(final int aMonth, final int aYear) {
+        switch (aMonth) {
+            case 2:
+                return isLeapYear(aYear) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * Checks whether a year is a leap year.
+     *
+     * @param aYear A year
+     * @return Whether it's a leap year
+     */
+    private static boolean isLeapYear(final int aYear) {
+        return (aYear & 3) == 0 && (aYear % 100 != 0 || aYear % 400 == 0);
+    }
+
+    /**
+     * Converts a valid, non-negative date to an epoch day, the same way {@link java.time.LocalDate#toEpochDay()} does.
+     *
+     * @param aYear A year
+     * @param aMonth A month, from 1 to 12
+     * @param aDay A day of the month
+     * @return The number of days since 1970-01-01
+     */
+    private static long toEpochDay(final int aYear, final int aMonth, final int aDay) {
+        long total = 365L * aYear + (aYear + 3) / 4 - (aYear + 99) / 100 + (aYear + 399) / 400;
+
+        total += (367 * aMonth - 362) / 12 + aDay - 1;
+
+        if (aMonth > 2) {
+            total -= isLeapYear(aYear) ? 1 : 2;
+        }
+
+        return total - DAYS_0000_TO_1970;
+    }
+}
@@ -0,0 +1,49 @@
+
+package edu.ucla.library.iiif.auth.verticles;
+
+import edu.ucla.library.iiif.auth.services.AccessCookieService;
+
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Promise;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.serviceproxy.ServiceBinder;
+
+/**
+ * Verticle that registers the access cookie service on the event bus. It's meant to be deployed as a worker verticle,
+ * so that the service's cryptography runs on a worker thread instead of an event loop; with several instances, the
+ * event bus spreads the calls among them, so that they can run in parallel.
+ */
+public class AccessCookieServiceVerticle extends AbstractVerticle {
+
+    /**
+     * The access cookie service, which is shared by every instance of this verticle.
+     */
+    private final AccessCookieService myService;
+
+    /**
+     * The service's event bus registration.
+     */
+    private MessageConsumer<JsonObject> myEventBusService;
+
+    /**
+     * Creates a verticle that registers the access cookie service on the event bus.
+     *
+     * @param aService An access cookie service, which must be thread-safe if more than one instance is deployed
+     */
+    public AccessCookieServiceVerticle(final AccessCookieService aService) {
+        myService = aService;
+    }
+
+    @Override
+    public void start(final Promise<Void> aPromise) {
+        myEventBusService = new ServiceBinder(vertx).setAddress(AccessCookieService.ADDRESS)
+                .register(AccessCookieService.class, myService);
+        myEventBusService.completionHandler(aPromise);
+    }
+
+    @Override
+    public void stop(final Promise<Void> aPromise) {
+        myEventBusService.unregister(aPromise);
+    }
+}
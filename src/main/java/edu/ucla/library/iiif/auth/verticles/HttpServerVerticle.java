@@ -0,0 +1,230 @@
+
+package edu.ucla.library.iiif.auth.verticles;
+
+import info.freelibrary.util.Logger;
+import info.freelibrary.util.LoggerFactory;
+
+import edu.ucla.library.iiif.auth.AdminAuthenticationProvider;
+import edu.ucla.library.iiif.auth.Config;
+import edu.ucla.library.iiif.auth.MessageCodes;
+import edu.ucla.library.iiif.auth.Op;
+import edu.ucla.library.iiif.auth.handlers.AccessCookieHandler;
+import edu.ucla.library.iiif.auth.handlers.AccessModeHandler;
+import edu.ucla.library.iiif.auth.handlers.AccessModesHandler;
+import edu.ucla.library.iiif.auth.handlers.AccessTokenHandler;
+import edu.ucla.library.iiif.auth.handlers.AccessTokenKeysHandler;
+import edu.ucla.library.iiif.auth.handlers.AdminAuthenticationErrorHandler;
+import edu.ucla.library.iiif.auth.handlers.HtmlRenderingErrorHandler;
+import edu.ucla.library.iiif.auth.handlers.ItemsHandler;
+import edu.ucla.library.iiif.auth.handlers.ItemsJobHandler;
+import edu.ucla.library.iiif.auth.handlers.ItemsJobsHandler;
+import edu.ucla.library.iiif.auth.handlers.ItemsStreamHandler;
+import edu.ucla.library.iiif.auth.handlers.MissingAccessCookieErrorHandler;
+import edu.ucla.library.iiif.auth.handlers.SinaiAccessTokenHandler;
+import edu.ucla.library.iiif.auth.handlers.StatusHandler;
+import edu.ucla.library.iiif.auth.services.AccessCookieService;
+import edu.ucla.library.iiif.auth.services.DatabaseService;
+
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.HttpServerOptions;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.AllowForwardHeaders;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.handler.APIKeyHandler;
+import io.vertx.ext.web.handler.ErrorHandler;
+import io.vertx.ext.web.openapi.RouterBuilder;
+
+/**
+ * Verticle that serves the HTTP API. Any number of instances can be deployed, each on its own event loop; they all
+ * listen at the same port, and Vert.x spreads the connections among them.
+ */
+@SuppressWarnings("PMD.ExcessiveImports")
+public class HttpServerVerticle extends AbstractVerticle {
+
+    /**
+     * The HTTP server verticle's logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(HttpServerVerticle.class, MessageCodes.BUNDLE);
+
+    /**
+     * The location of the OpenAPI specification.
+     */
+    private static final String DEFAULT_API_SPEC = "hauth.yaml";
+
+    /**
+     * The default host at which the application runs.
+     */
+    private static final String DEFAULT_HOST = "0.0.0.0"; // NOPMD
+
+    /**
+     * The path to which items can be streamed. It's routed outside of the OpenAPI router, so that the request body is
+     * read as it arrives instead of all at once, and so it isn't in the OpenAPI specification either; its contract is
+     * described in the README instead.
+     */
+    private static final String ITEMS_STREAM_PATH = "/items/stream";
+
+    /**
+     * The default port at which the application runs.
+     */
+    static final int DEFAULT_PORT = 8888;
+
+    /**
+     * The access cookie service that the HTTP handlers use, or null if they should use a proxy.
+     */
+    private final AccessCookieService myAccessCookieService;
+
+    /**
+     * The database service that the HTTP handlers use, or null if they should use a proxy.
+     */
+    private final DatabaseService myDatabaseService;
+
+    /**
+     * The HTTP server for the Hauth service.
+     */
+    private HttpServer myServer;
+
+    /**
+     * Creates a verticle that serves the HTTP API by calling the services through proxies.
+     */
+    public HttpServerVerticle() {
+        this(null, null);
+    }
+
+    /**
+     * Creates a verticle that serves the HTTP API by calling the supplied services. These are shared by every instance
+     * of the verticle, so they must be safe to call from any event loop.
+     *
+     * @param aAccessCookieService An access cookie service, or null if the HTTP handlers should use a proxy
+     * @param aDatabaseService A database service, or null if the HTTP handlers should use a proxy
+     */
+    public HttpServerVerticle(final AccessCookieService aAccessCookieService,
+            final DatabaseService aDatabaseService) {
+        myAccessCookieService = aAccessCookieService;
+        myDatabaseService = aDatabaseService;
+    }
+
+    @Override
+    public void start(final Promise<Void> aPromise) {
+        final JsonObject config = config();
+
+        createRouter(config).compose(router -> startHttpServer(config, router)).onSuccess(server -> {
+            // Save a reference to the HTTP server so we can close it later
+            myServer = server;
+
+            LOGGER.debug(MessageCodes.AUTH_001, server.actualPort());
+            aPromise.complete();
+        }).onFailure(aPromise::fail);
+    }
+
+    /**
+     * Creates the HTTP request router.
+     *
+     * @param aConfig A configuration
+     * @return A Future that resolves to the HTTP request router
+     */
+    public Future<Router> createRouter(final JsonObject aConfig) {
+        final String apiSpec = aConfig.getString(Config.API_SPEC, DEFAULT_API_SPEC);
+
+        // Load the OpenAPI specification
+        return RouterBuilder.create(vertx, apiSpec).compose(builder -> {
+            final AccessCookieService accessCookieService = getAccessCookieService();
+            final DatabaseService databaseService = getDatabaseService();
+            final APIKeyHandler apiKeyHandler = APIKeyHandler.create(new AdminAuthenticationProvider(aConfig));
+            final Router router = Router.router(vertx);
+            final Router apiRouter;
+
+            // In the case of the access token service, in order to construct a response that complies with
+            // https://iiif.io/api/auth/1.0/#access-token-error-conditions, we need to take control back from the
+            // ValidationHandler that gets invoked when an incoming request violates the OpenAPI contract (e.g., missing
+            // access cookie).
+            final ErrorHandler missingAccessCookieErrorHandler = new MissingAccessCookieErrorHandler(vertx);
+
+            // Associate handlers with operation IDs from the OpenAPI spec
+            builder.operation(Op.GET_STATUS).handler(new StatusHandler(vertx, databaseService));
+            builder.operation(Op.GET_ACCESS_MODE).handler(new AccessModeHandler(aConfig, databaseService));
+            builder.operation(Op.GET_ACCESS_MODES).handler(new AccessModesHandler(databaseService))
+                    .failureHandler(ItemsHandler::handleInvalidRequestBody);
+            builder.operation(Op.GET_COOKIE).handler(new AccessCookieHandler(vertx, aConfig, accessCookieService));
+            builder.operation(Op.GET_TOKEN).handler(new AccessTokenHandler(vertx, aConfig, accessCookieService))
+                    .failureHandler(missingAccessCookieErrorHandler);
+            builder.operation(Op.GET_TOKEN_SINAI)
+                    .handler(new SinaiAccessTokenHandler(vertx, aConfig, accessCookieService))
+                    .failureHandler(missingAccessCookieErrorHandler);
+            builder.operation(Op.GET_TOKEN_KEYS).handler(new AccessTokenKeysHandler(accessCookieService));
+            builder.operation(Op.POST_ITEMS).handler(new ItemsHandler(databaseService))
+                    .failureHandler(ItemsHandler::handleInvalidRequestBody);
+            builder.operation(Op.POST_ITEMS_JOB).handler(new ItemsJobsHandler(databaseService))
+                    .failureHandler(ItemsHandler::handleInvalidRequestBody);
+            builder.operation(Op.GET_ITEMS_JOB).handler(new ItemsJobHandler(databaseService));
+
+            // Add API key authentication for routes that should use the "Admin" security scheme
+            builder.securityHandler("Admin").bindBlocking(unused -> apiKeyHandler);
+
+            apiRouter = builder.createRouter();
+
+            // Register error handlers that are generic enough to apply to more than one operation.
+            //
+            // Note that the operation-specific handlers above are responsible for handling any ServiceExceptions
+            // that they may encounter, since the proper handling of those particular errors is likely to be
+            // context-dependent.
+            apiRouter.route() //
+                    .failureHandler(new AdminAuthenticationErrorHandler()) //
+                    .failureHandler(new HtmlRenderingErrorHandler());
+
+            // The OpenAPI router reads every request body in full before any handler sees it, so streamed items have to
+            // be routed before it
+            router.post(ITEMS_STREAM_PATH).handler(apiKeyHandler)
+                    .handler(new ItemsStreamHandler(aConfig, databaseService))
+                    .failureHandler(new AdminAuthenticationErrorHandler()) //
+                    .failureHandler(new HtmlRenderingErrorHandler());
+            router.route("/*").subRouter(apiRouter);
+
+            // Enable deployment behind a reverse proxy
+            router.allowForward(AllowForwardHeaders.X_FORWARD);
+
+            return Future.succeededFuture(router);
+        });
+    }
+
+    /**
+     * Starts the HTTP server.
+     *
+     * @param aConfig A configuration
+     * @param aRouter An HTTP request router
+     * @return A Future that resolves to the started HTTP server
+     */
+    public Future<HttpServer> startHttpServer(final JsonObject aConfig, final Router aRouter) {
+        final String host = aConfig.getString(Config.HTTP_HOST, DEFAULT_HOST);
+        final int port = aConfig.getInteger(Config.HTTP_PORT, DEFAULT_PORT);
+
+        return vertx.createHttpServer(new HttpServerOptions().setPort(port).setHost(host)) //
+                .requestHandler(aRouter) //
+                .listen();
+    }
+
+    /**
+     * Gets the access cookie service that the HTTP handlers should use.
+     *
+     * @return The service that this verticle was created with, or else a proxy
+     */
+    private AccessCookieService getAccessCookieService() {
+        return myAccessCookieService != null ? myAccessCookieService : AccessCookieService.createProxy(vertx);
+    }
+
+    /**
+     * Gets the database service that the HTTP handlers should use.
+     *
+     * @return The service that this verticle was created with, or else a proxy
+     */
+    private DatabaseService getDatabaseService() {
+        return myDatabaseService != null ? myDatabaseService : DatabaseService.createProxy(vertx);
+    }
+
+    @Override
+    public void stop(final Promise<Void> aPromise) {
+        myServer.close().onSuccess(unused -> aPromise.complete()).onFailure(aPromise::fail);
+    }
+}
@@ -9,42 +9,30 @@ import java.util.stream.Stream;
 import info.freelibrary.util.Logger;
 import info.freelibrary.util.LoggerFactory;
 
-import edu.ucla.library.iiif.auth.AdminAuthenticationProvider;
 import edu.ucla.library.iiif.auth.Config;
 import edu.ucla.library.iiif.auth.MessageCodes;
-import edu.ucla.library.iiif.auth.Op;
-import edu.ucla.library.iiif.auth.handlers.AccessCookieHandler;
-import edu.ucla.library.iiif.auth.handlers.AccessModeHandler;
-import edu.ucla.library.iiif.auth.handlers.MissingAccessCookieErrorHandler;
-import edu.ucla.library.iiif.auth.handlers.AccessTokenHandler;
-import edu.ucla.library.iiif.auth.handlers.AdminAuthenticationErrorHandler;
-import edu.ucla.library.iiif.auth.handlers.HtmlRenderingErrorHandler;
-import edu.ucla.library.iiif.auth.handlers.ItemsHandler;
-import edu.ucla.library.iiif.auth.handlers.SinaiAccessTokenHandler;
-import edu.ucla.library.iiif.auth.handlers.StatusHandler;
 import edu.ucla.library.iiif.auth.services.AccessCookieService;
 import edu.ucla.library.iiif.auth.services.DatabaseService;
+import edu.ucla.library.iiif.auth.services.DatabaseServiceImpl;
 
 import io.vertx.config.ConfigRetriever;
 import io.vertx.core.AbstractVerticle;
 import io.vertx.core.CompositeFuture;
+import io.vertx.core.DeploymentOptions;
 import io.vertx.core.Future;
 import io.vertx.core.Promise;
 import io.vertx.core.eventbus.MessageConsumer;
-import io.vertx.core.http.HttpServer;
-import io.vertx.core.http.HttpServerOptions;
 import io.vertx.core.json.JsonObject;
-import io.vertx.ext.web.AllowForwardHeaders;
-import io.vertx.ext.web.Router;
-import io.vertx.ext.web.handler.APIKeyHandler;
-import io.vertx.ext.web.handler.ErrorHandler;
-import io.vertx.ext.web.openapi.RouterBuilder;
 import io.vertx.serviceproxy.ServiceBinder;
 
 /**
  * Main verticle that starts the application.
+ * <p>
+ * The services are created once. The database service is registered on the event bus by this verticle, and the access
+ * cookie service by {@link Config#ACCESS_COOKIE_SERVICE_INSTANCES} instances of {@link AccessCookieServiceVerticle},
+ * which run on worker threads. Then {@link HttpServerVerticle} is deployed as many times as
+ * {@link Config#HTTP_SERVER_INSTANCES} asks for, so that HTTP requests are handled on that many event loops.
  */
-@SuppressWarnings("PMD.ExcessiveImports")
 public class MainVerticle extends AbstractVerticle {
 
     /**
@@ -53,29 +41,35 @@ public class MainVerticle extends AbstractVerticle {
     private static final Logger LOGGER = LoggerFactory.getLogger(MainVerticle.class, MessageCodes.BUNDLE);
 
     /**
-     * The location of the OpenAPI specification.
+     * The event bus services.
      */
-    private static final String DEFAULT_API_SPEC = "hauth.yaml";
+    private Set<MessageConsumer<?>> myEventBusServices;
 
     /**
-     * The default host at which the application runs.
+     * The access cookie service that the HTTP handlers call directly, or null if they use a proxy.
      */
-    private static final String DEFAULT_HOST = "0.0.0.0"; // NOPMD
+    private AccessCookieService myAccessCookieService;
 
     /**
-     * The default port at which the application runs.
+     * The database service that the HTTP handlers call directly, or null if they use a proxy.
      */
-    private static final int DEFAULT_PORT = 8888;
+    private DatabaseService myDatabaseService;
 
     /**
-     * The event bus services.
+     * The database service, which is closed when this verticle stops so that its connections and timers don't outlive
+     * it.
      */
-    private Set<MessageConsumer<?>> myEventBusServices;
+    private DatabaseServiceImpl myDatabaseServiceImpl;
 
     /**
-     * The HTTP server for the Hauth service.
+     * The deployment ID of the access cookie service verticles.
      */
-    private HttpServer myServer;
+    private String myAccessCookieServiceDeploymentID;
+
+    /**
+     * The deployment ID of the HTTP server verticles.
+     */
+    private String myHttpServerDeploymentID;
 
     @Override
     public void start(final Promise<Void> aPromise) {
@@ -84,13 +78,12 @@ public class MainVerticle extends AbstractVerticle {
                 // Save a reference to the services so we can unregister them later
                 myEventBusServices = services;
 
-                return createRouter(config);
-            }).compose(router -> startHttpServer(config, router));
-        }).onSuccess(server -> {
-            // Save a reference to the HTTP server so we can close it later
-            myServer = server;
+                return deployHttpServers(config);
+            });
+        }).onSuccess(deploymentID -> {
+            // Save a reference to the HTTP server deployment so we can undeploy it later
+            myHttpServerDeploymentID = deploymentID;
 
-            LOGGER.info(MessageCodes.AUTH_001, server.actualPort());
             aPromise.complete();
         }).onFailure(aPromise::fail);
     }
@@ -102,89 +95,78 @@ public class MainVerticle extends AbstractVerticle {
      * @return A Future that resolves to the list of event bus services
      */
     public Future<Set<MessageConsumer<?>>> createEventBusServices(final JsonObject aConfig) {
-        final MessageConsumer<JsonObject> accessCookieService;
         final MessageConsumer<JsonObject> databaseService;
+        final AccessCookieService accessCookieServiceImpl;
+        final DatabaseServiceImpl databaseServiceImpl;
+        final Future<String> accessCookieServiceDeployment;
         final ServiceBinder serviceBinder = new ServiceBinder(vertx);
 
         try {
-            accessCookieService = serviceBinder.setAddress(AccessCookieService.ADDRESS)
-                    .register(AccessCookieService.class, AccessCookieService.create(aConfig));
+            accessCookieServiceImpl = AccessCookieService.create(aConfig);
         } catch (final GeneralSecurityException details) {
             return Future.failedFuture(details);
         }
 
+        // The access cookie service is thread-safe, so every worker instance can share it
+        accessCookieServiceDeployment = vertx.deployVerticle(() -> {
+            return new AccessCookieServiceVerticle(accessCookieServiceImpl);
+        }, new DeploymentOptions().setWorker(true).setInstances(getAccessCookieServiceInstances(aConfig)))
+                .onSuccess(deploymentID -> myAccessCookieServiceDeploymentID = deploymentID);
+
+        databaseServiceImpl = new DatabaseServiceImpl(vertx, aConfig);
+        myDatabaseServiceImpl = databaseServiceImpl;
         databaseService = serviceBinder.setAddress(DatabaseService.ADDRESS) //
-                .register(DatabaseService.class, DatabaseService.create(vertx, aConfig));
+                .register(DatabaseService.class, databaseServiceImpl);
 
-        return Future.succeededFuture(Set.of(accessCookieService, databaseService));
+        // The proxies are registered either way, so that the services stay available to other verticles
+        if (aConfig.getBoolean(Config.DIRECT_SERVICE_CALLS, false)) {
+            myAccessCookieService = accessCookieServiceImpl;
+            myDatabaseService = databaseServiceImpl;
+        }
+
+        // Don't report the services as created until the database service is ready to answer requests
+        return CompositeFuture.all(accessCookieServiceDeployment, databaseServiceImpl.ready())
+                .map(Set.<MessageConsumer<?>>of(databaseService));
     }
 
     /**
-     * Creates the HTTP request router.
+     * Deploys the HTTP server verticles, which share the services that this verticle created.
      *
      * @param aConfig A configuration
-     * @return A Future that resolves to the HTTP request router
+     * @return A Future that resolves to the ID of the deployment
      */
-    public Future<Router> createRouter(final JsonObject aConfig) {
-        final String apiSpec = aConfig.getString(Config.API_SPEC, DEFAULT_API_SPEC);
-
-        // Load the OpenAPI specification
-        return RouterBuilder.create(vertx, apiSpec).compose(builder -> {
-            final Router router;
-
-            // In the case of the access token service, in order to construct a response that complies with
-            // https://iiif.io/api/auth/1.0/#access-token-error-conditions, we need to take control back from the
-            // ValidationHandler that gets invoked when an incoming request violates the OpenAPI contract (e.g., missing
-            // access cookie).
-            final ErrorHandler missingAccessCookieErrorHandler = new MissingAccessCookieErrorHandler(vertx);
-
-            // Associate handlers with operation IDs from the OpenAPI spec
-            builder.operation(Op.GET_STATUS).handler(new StatusHandler(vertx));
-            builder.operation(Op.GET_ACCESS_MODE).handler(new AccessModeHandler(vertx));
-            builder.operation(Op.GET_COOKIE).handler(new AccessCookieHandler(vertx, aConfig));
-            builder.operation(Op.GET_TOKEN).handler(new AccessTokenHandler(vertx, aConfig))
-                    .failureHandler(missingAccessCookieErrorHandler);
-            builder.operation(Op.GET_TOKEN_SINAI).handler(new SinaiAccessTokenHandler(vertx, aConfig))
-                    .failureHandler(missingAccessCookieErrorHandler);
-            builder.operation(Op.POST_ITEMS).handler(new ItemsHandler(getVertx()))
-                    .failureHandler(ItemsHandler::handleInvalidRequestBody);
-
-            // Add API key authentication for routes that should use the "Admin" security scheme
-            builder.securityHandler("Admin")
-                    .bindBlocking(unused -> APIKeyHandler.create(new AdminAuthenticationProvider(aConfig)));
-
-            router = builder.createRouter();
-
-            // Register error handlers that are generic enough to apply to more than one operation.
-            //
-            // Note that the operation-specific handlers above are responsible for handling any ServiceExceptions
-            // that they may encounter, since the proper handling of those particular errors is likely to be
-            // context-dependent.
-            router.route() //
-                    .failureHandler(new AdminAuthenticationErrorHandler()) //
-                    .failureHandler(new HtmlRenderingErrorHandler());
-
-            // Enable deployment behind a reverse proxy
-            router.allowForward(AllowForwardHeaders.X_FORWARD);
-
-            return Future.succeededFuture(router);
-        });
+    public Future<String> deployHttpServers(final JsonObject aConfig) {
+        final int instances = getHttpServerInstances(aConfig);
+        final DeploymentOptions options = new DeploymentOptions().setConfig(aConfig).setInstances(instances);
+
+        return vertx.deployVerticle(() -> new HttpServerVerticle(myAccessCookieService, myDatabaseService), options)
+                .onSuccess(deploymentID -> {
+                    LOGGER.info(MessageCodes.AUTH_001,
+                            aConfig.getInteger(Config.HTTP_PORT, HttpServerVerticle.DEFAULT_PORT));
+                    LOGGER.info(MessageCodes.AUTH_034, instances);
+                });
     }
 
     /**
-     * Starts the HTTP server.
+     * Gets the number of access cookie service verticles to deploy.
      *
      * @param aConfig A configuration
-     * @param aRouter An HTTP request router
-     * @return A Future that resolves to the started HTTP server
+     * @return The configured number, or by default the number of available processors
      */
-    public Future<HttpServer> startHttpServer(final JsonObject aConfig, final Router aRouter) {
-        final String host = aConfig.getString(Config.HTTP_HOST, DEFAULT_HOST);
-        final int port = aConfig.getInteger(Config.HTTP_PORT, DEFAULT_PORT);
+    private static int getAccessCookieServiceInstances(final JsonObject aConfig) {
+        return Math.max(1, aConfig.getInteger(Config.ACCESS_COOKIE_SERVICE_INSTANCES,
+                Runtime.getRuntime().availableProcessors()));
+    }
 
-        return vertx.createHttpServer(new HttpServerOptions().setPort(port).setHost(host)) //
-                .requestHandler(aRouter) //
-                .listen();
+    /**
+     * Gets the number of HTTP server verticles to deploy.
+     *
+     * @param aConfig A configuration
+     * @return The configured number, or by default the number of available processors
+     */
+    private static int getHttpServerInstances(final JsonObject aConfig) {
+        return Math.max(1,
+                aConfig.getInteger(Config.HTTP_SERVER_INSTANCES, Runtime.getRuntime().availableProcessors()));
     }
 
     @Override
@@ -192,8 +174,39 @@ public class MainVerticle extends AbstractVerticle {
         final Stream<Future<?>> stopEventBusServices =
                 myEventBusServices.parallelStream().map(MessageConsumer::unregister);
 
-        myServer.close().compose(unused -> {
-            return CompositeFuture.all(stopEventBusServices.collect(Collectors.toList()));
-        }).onSuccess(unused -> aPromise.complete()).onFailure(aPromise::fail);
+        // Vert.x undeploys child deployments before stopping their parent, but make sure that we stop taking requests
+        // before the services that answer them go away
+        undeploy(myHttpServerDeploymentID).compose(unused -> undeploy(myAccessCookieServiceDeploymentID)) //
+                .compose(unused -> closeDatabaseService()) //
+                .compose(unused -> CompositeFuture.all(stopEventBusServices.collect(Collectors.toList())))
+                .onSuccess(unused -> aPromise.complete()).onFailure(aPromise::fail);
+    }
+
+    /**
+     * Closes the database service, if it was created, which stops its change subscriber and replica refresh timer and
+     * closes its connections.
+     *
+     * @return A Future that succeeds once the database service has been closed
+     */
+    private Future<Void> closeDatabaseService() {
+        if (myDatabaseServiceImpl != null) {
+            return myDatabaseServiceImpl.close();
+        }
+
+        return Future.succeededFuture();
+    }
+
+    /**
+     * Undeploys a child deployment, unless Vert.x has already done so.
+     *
+     * @param aDeploymentID The ID of a deployment
+     * @return A Future that succeeds once the deployment has been undeployed
+     */
+    private Future<Void> undeploy(final String aDeploymentID) {
+        if (aDeploymentID != null && vertx.deploymentIDs().contains(aDeploymentID)) {
+            return vertx.undeploy(aDeploymentID);
+        }
+
+        return Future.succeededFuture();
     }
 }
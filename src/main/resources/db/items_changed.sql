@@ -0,0 +1,28 @@
+--
+-- Announces each change to the items table on the items_changed notification channel, so that every instance of
+-- Hauth can update its in-memory caches (and the replica of the table, if it's enabled). Hauth warns at startup if
+-- this trigger is missing while any of those caches are enabled.
+--
+-- This script can be run more than once. Run it as the owner of the items table, e.g.:
+--
+--   psql -d postgres -f items_changed.sql
+--
+
+BEGIN;
+
+CREATE OR REPLACE FUNCTION public.notify_item_change() RETURNS trigger
+    LANGUAGE plpgsql
+    AS $$
+BEGIN
+    IF TG_OP = 'INSERT' OR OLD.access_mode IS DISTINCT FROM NEW.access_mode THEN
+        PERFORM pg_notify('items_changed', json_build_object('uid', NEW.uid, 'accessMode', NEW.access_mode)::text);
+    END IF;
+    RETURN NULL;
+END;
+$$;
+
+DROP TRIGGER IF EXISTS items_changed ON public.items;
+
+CREATE TRIGGER items_changed AFTER INSERT OR UPDATE ON public.items FOR EACH ROW EXECUTE FUNCTION public.notify_item_change();
+
+COMMIT;
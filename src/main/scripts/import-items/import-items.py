@@ -6,7 +6,8 @@ from enum import Enum
 from io import TextIOBase
 from json import dumps
 from os.path import basename
-from requests import post
+from requests import get, post
+from time import sleep
 from typing import List, Dict
 
 def docstring_parameter(*sub):
@@ -31,6 +32,9 @@ visibility_map = {
     'sinai': AccessMode.ALL_OR_NOTHING
 }
 
+# The number of times in a row that a job's status can't be found before giving up on it.
+max_job_not_found_count = 5
+
 def visibility_map_as_table() -> str:
     """Renders a nice textual representation of the mapping from visibility to access mode."""
     table = 'Visibility\tAccess mode\n'
@@ -45,10 +49,12 @@ def visibility_map_as_table() -> str:
 @click.option('--access-mode', '-m', help='The access mode to use for all items in each INPUT_CSV (instead of the Visibility field value).', required=False,
               type=click.Choice([name for name, member in AccessMode.__members__.items()], case_sensitive=False))
 @click.option('--api-key', '-k', help='The API key for accessing the admin API.', required=True)
+@click.option('--job', '-j', help='Import each INPUT_CSV as a background job, and report its progress until it finishes.',
+              is_flag=True)
 @click.argument('hauth-base-url', nargs=1)
 @click.argument('input-csv', required=True, nargs=-1, type=click.File('r'))
 @docstring_parameter(visibility_map_as_table())
-def import_items(access_mode, api_key, hauth_base_url, input_csv):
+def import_items(access_mode, api_key, hauth_base_url, input_csv, job):
     """
 Import items into Hauth.
 
@@ -59,9 +65,11 @@ Unless --access-mode is supplied, the access mode of each item is determined fro
 \b
 {0}
 
+Unless --job is supplied, each INPUT_CSV is imported in a single request, which must finish before it times out.
+
 Exits with zero status only if all items are imported successfully.
     """
-    request_url = hauth_base_url + '/items'
+    request_url = hauth_base_url + ('/items/jobs' if job else '/items')
     request_headers = {'Content-Type': 'application/json', 'X-API-KEY': api_key}
     files = input_csv
     exit_code = 0
@@ -74,7 +82,12 @@ Exits with zero status only if all items are imported successfully.
             request_data = request_payload(file, AccessMode[access_mode] if access_mode else None)
             item_count = len(request_data)
 
-            post(request_url, data=dumps(request_data), headers=request_headers).raise_for_status()
+            response = post(request_url, data=dumps(request_data), headers=request_headers)
+            response.raise_for_status()
+
+            if job:
+                wait_for_job(hauth_base_url + '/items/jobs/' + response.json()['id'], request_headers)
+
             click.secho('File {} imported successfully ({} items)'.format(boldface(base_name), item_count), fg='green')
             total_item_count += item_count
         except Exception as e:
@@ -86,6 +99,43 @@ Exits with zero status only if all items are imported successfully.
 
     exit(exit_code)
 
+def wait_for_job(status_url: str, request_headers: Dict) -> None:
+    """Reports the progress of an import job until it finishes, and raises an exception if any items failed."""
+    not_found_count = 0
+
+    while True:
+        response = get(status_url, headers=request_headers)
+
+        # A job is only known to the instance that accepted it, so behind a load balancer that isn't sticky, some
+        # status requests may reach an instance that has never heard of it
+        if response.status_code == 404:
+            not_found_count += 1
+
+            if not_found_count >= max_job_not_found_count:
+                click.echo()
+                raise RuntimeError('Job {} is unknown to the server: either the instance that accepted it restarted, '
+                                   'or status requests are being routed to other instances'.format(status_url))
+
+            sleep(2)
+            continue
+
+        response.raise_for_status()
+        not_found_count = 0
+        status = response.json()
+
+        click.echo('\r{} of {} items processed ({} items per second)'.format(
+            status['processed'], status['total'], status.get('itemsPerSecond', 0)), nl=False)
+
+        if 'finished' in status:
+            click.echo()
+
+            if status['status'] != 'SUCCEEDED':
+                raise RuntimeError('{} items failed: {}'.format(status['failed'], status['errors']))
+
+            return
+
+        sleep(2)
+
 def request_payload(file: TextIOBase, access_mode_override: AccessMode) -> List[Dict]:
     """Constructs a JSON array to send to the Hauth API endpoint for importing items."""
     return [
@@ -51,11 +51,21 @@ public abstract class AbstractHandlerIT {
      */
     protected static final String GET_TOKEN_SINAI_PATH = "/token/sinai?{}";
 
+    /**
+     * The URI path for access token verification key requests.
+     */
+    protected static final String GET_TOKEN_KEYS_PATH = "/token/keys";
+
     /**
      * The URI path template for access mode requests.
      */
     protected static final String GET_ACCESS_MODE_PATH = "/access/{}";
 
+    /**
+     * The URI path for requests for the access modes of multiple items.
+     */
+    protected static final String POST_ACCESS_MODES_PATH = "/access";
+
     /**
      * The URI path template for access cookie requests.
      */
@@ -66,6 +76,21 @@ public abstract class AbstractHandlerIT {
      */
     protected static final String POST_ITEMS_PATH = "/items";
 
+    /**
+     * The path to which items can be streamed.
+     */
+    protected static final String POST_ITEMS_STREAM_PATH = "/items/stream";
+
+    /**
+     * The URI path for submitting items jobs.
+     */
+    protected static final String POST_ITEMS_JOB_PATH = "/items/jobs";
+
+    /**
+     * The URI path template for items job status requests.
+     */
+    protected static final String GET_ITEMS_JOB_PATH = "/items/jobs/{}";
+
     /**
      * The name of the HTTP request header used by the reverse proxy to carry the client IP address.
      */
@@ -2,6 +2,7 @@
 package edu.ucla.library.iiif.auth.handlers;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
@@ -19,6 +20,7 @@ import edu.ucla.library.iiif.auth.MessageCodes;
 import edu.ucla.library.iiif.auth.ResponseJsonKeys;
 import edu.ucla.library.iiif.auth.utils.MediaType;
 
+import io.netty.handler.codec.http.HttpResponseStatus;
 import io.vertx.core.Vertx;
 import io.vertx.core.http.HttpHeaders;
 import io.vertx.core.json.JsonObject;
@@ -110,6 +112,91 @@ public final class AccessModeHandlerIT extends AbstractHandlerIT {
         }).onFailure(aContext::failNow);
     }
 
+    /**
+     * Tests that a client that prefers plain text gets the access mode of an item as plain text.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    public void testGetAccessModeText(final Vertx aVertx, final VertxTestContext aContext) {
+        final String requestURI = StringUtils.format(GET_ACCESS_MODE_PATH,
+                URLEncoder.encode(TEST_ID_OPEN_ACCESS, StandardCharsets.UTF_8));
+        final HttpRequest<?> getAccessMode = myWebClient.get(myPort, Constants.INADDR_ANY, requestURI)
+                .putHeader(HttpHeaders.ACCEPT.toString(), "application/json;q=0.5, text/plain");
+
+        getAccessMode.send().onSuccess(response -> {
+            aContext.verify(() -> {
+                assertEquals(HTTP.OK, response.statusCode());
+                assertEquals(MediaType.TEXT_PLAIN.toString(), response.headers().get(HttpHeaders.CONTENT_TYPE));
+                assertEquals("\"OPEN.txt\"", response.getHeader(HttpHeaders.ETAG.toString()));
+                assertEquals(HttpHeaders.ACCEPT.toString(), response.getHeader(HttpHeaders.VARY.toString()));
+                assertEquals("OPEN", response.bodyAsString());
+
+                aContext.completeNow();
+            });
+        }).onFailure(aContext::failNow);
+    }
+
+    /**
+     * Tests that a client that revalidates a response with its entity tag gets a 304 response without a body.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    public void testGetAccessModeNotModified(final Vertx aVertx, final VertxTestContext aContext) {
+        final String requestURI = StringUtils.format(GET_ACCESS_MODE_PATH,
+                URLEncoder.encode(TEST_ID_OPEN_ACCESS, StandardCharsets.UTF_8));
+
+        myWebClient.get(myPort, Constants.INADDR_ANY, requestURI).send().compose(response -> {
+            final String eTag = response.getHeader(HttpHeaders.ETAG.toString());
+
+            aContext.verify(() -> {
+                assertEquals(HTTP.OK, response.statusCode());
+                assertEquals("\"OPEN\"", eTag);
+                assertEquals("no-cache", response.getHeader(HttpHeaders.CACHE_CONTROL.toString()));
+            });
+
+            return myWebClient.get(myPort, Constants.INADDR_ANY, requestURI)
+                    .putHeader(HttpHeaders.IF_NONE_MATCH.toString(), "\"TIERED\", W/" + eTag).send();
+        }).onSuccess(response -> {
+            aContext.verify(() -> {
+                assertEquals(HttpResponseStatus.NOT_MODIFIED.code(), response.statusCode());
+                assertEquals("\"OPEN\"", response.getHeader(HttpHeaders.ETAG.toString()));
+                assertNull(response.body());
+
+                aContext.completeNow();
+            });
+        }).onFailure(aContext::failNow);
+    }
+
+    /**
+     * Tests that a client whose entity tag is out of date gets the current response.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    public void testGetAccessModeModified(final Vertx aVertx, final VertxTestContext aContext) {
+        final String requestURI = StringUtils.format(GET_ACCESS_MODE_PATH,
+                URLEncoder.encode(TEST_ID_TIERED_ACCESS, StandardCharsets.UTF_8));
+        final HttpRequest<?> getAccessMode = myWebClient.get(myPort, Constants.INADDR_ANY, requestURI)
+                .putHeader(HttpHeaders.IF_NONE_MATCH.toString(), "\"OPEN\"");
+
+        getAccessMode.send().onSuccess(response -> {
+            final JsonObject expected = new JsonObject().put(ResponseJsonKeys.ACCESS_MODE, "TIERED");
+
+            aContext.verify(() -> {
+                assertEquals(HTTP.OK, response.statusCode());
+                assertEquals("\"TIERED\"", response.getHeader(HttpHeaders.ETAG.toString()));
+                assertEquals(expected, response.bodyAsJsonObject());
+
+                aContext.completeNow();
+            });
+        }).onFailure(aContext::failNow);
+    }
+
     /**
      * Tests that a client gets the expected error response when requesting the access mode of an unknown item.
      *
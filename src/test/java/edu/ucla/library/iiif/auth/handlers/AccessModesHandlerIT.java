@@ -0,0 +1,79 @@
+
+package edu.ucla.library.iiif.auth.handlers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import info.freelibrary.util.Constants;
+import info.freelibrary.util.HTTP;
+
+import edu.ucla.library.iiif.auth.Error;
+import edu.ucla.library.iiif.auth.ResponseJsonKeys;
+import edu.ucla.library.iiif.auth.utils.MediaType;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.HttpRequest;
+import io.vertx.junit5.VertxTestContext;
+
+/**
+ * Tests {@link AccessModesHandler#handle}.
+ */
+public final class AccessModesHandlerIT extends AbstractHandlerIT {
+
+    /**
+     * Tests that a client can get the access modes of multiple items at once, including ones that don't exist.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    public void testGetAccessModes(final Vertx aVertx, final VertxTestContext aContext) {
+        final String unknownID = "ark:/21198/unknown";
+        final HttpRequest<?> getAccessModes = myWebClient.post(myPort, Constants.INADDR_ANY, POST_ACCESS_MODES_PATH);
+        final JsonArray ids = new JsonArray().add(TEST_ID_OPEN_ACCESS).add(TEST_ID_TIERED_ACCESS)
+                .add(TEST_ID_ALL_OR_NOTHING_ACCESS).add(unknownID).add(TEST_ID_OPEN_ACCESS);
+
+        getAccessModes.sendJson(ids).onSuccess(response -> {
+            final JsonObject expected = new JsonObject() //
+                    .put(TEST_ID_OPEN_ACCESS, new JsonObject().put(ResponseJsonKeys.ACCESS_MODE, "OPEN"))
+                    .put(TEST_ID_TIERED_ACCESS, new JsonObject().put(ResponseJsonKeys.ACCESS_MODE, "TIERED"))
+                    .put(TEST_ID_ALL_OR_NOTHING_ACCESS,
+                            new JsonObject().put(ResponseJsonKeys.ACCESS_MODE, "ALL_OR_NOTHING"))
+                    .put(unknownID, new JsonObject().put(ResponseJsonKeys.ERROR, Error.NOT_FOUND.toString()));
+
+            aContext.verify(() -> {
+                assertEquals(HTTP.OK, response.statusCode());
+                assertEquals(MediaType.APPLICATION_JSON.toString(), response.headers().get(HttpHeaders.CONTENT_TYPE));
+                assertEquals(expected, response.bodyAsJsonObject());
+
+                aContext.completeNow();
+            });
+        }).onFailure(aContext::failNow);
+    }
+
+    /**
+     * Tests that a client gets the expected error response when the request body isn't an array of IDs.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    public void testGetAccessModesInvalidRequestBody(final Vertx aVertx, final VertxTestContext aContext) {
+        final HttpRequest<?> getAccessModes = myWebClient.post(myPort, Constants.INADDR_ANY, POST_ACCESS_MODES_PATH);
+
+        getAccessModes.sendJson(new JsonArray().add(1)).onSuccess(response -> {
+            aContext.verify(() -> {
+                assertEquals(HTTP.BAD_REQUEST, response.statusCode());
+                assertEquals(MediaType.APPLICATION_JSON.toString(), response.headers().get(HttpHeaders.CONTENT_TYPE));
+                assertEquals(Error.INVALID_JSONARRAY.toString(),
+                        response.bodyAsJsonObject().getString(ResponseJsonKeys.ERROR));
+
+                aContext.completeNow();
+            });
+        }).onFailure(aContext::failNow);
+    }
+}
@@ -0,0 +1,46 @@
+
+package edu.ucla.library.iiif.auth.handlers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import info.freelibrary.util.Constants;
+import info.freelibrary.util.HTTP;
+
+import edu.ucla.library.iiif.auth.TokenJsonKeys;
+import edu.ucla.library.iiif.auth.utils.MediaType;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.HttpRequest;
+import io.vertx.junit5.VertxTestContext;
+
+/**
+ * Tests {@link AccessTokenKeysHandler#handle}.
+ */
+public final class AccessTokenKeysHandlerIT extends AbstractHandlerIT {
+
+    /**
+     * Tests that the key set is empty, since the test configuration doesn't sign access tokens.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    public void testGetTokenKeys(final Vertx aVertx, final VertxTestContext aContext) {
+        final HttpRequest<?> getTokenKeys = myWebClient.get(myPort, Constants.INADDR_ANY, GET_TOKEN_KEYS_PATH);
+
+        getTokenKeys.send().onSuccess(response -> {
+            aContext.verify(() -> {
+                assertEquals(HTTP.OK, response.statusCode());
+                assertEquals(MediaType.APPLICATION_JSON.toString(), response.headers().get(HttpHeaders.CONTENT_TYPE));
+                assertEquals(new JsonObject().put(TokenJsonKeys.KEYS, new JsonArray()), response.bodyAsJsonObject());
+
+                aContext.completeNow();
+            });
+        }).onFailure(aContext::failNow);
+    }
+}
@@ -144,6 +144,44 @@ public final class ItemsHandlerIT extends AbstractHandlerIT {
         }).onFailure(aContext::failNow);
     }
 
+    /**
+     * Tests that the response counts the items that were inserted, updated, and left unchanged.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    public void testPostItemsCounts(final Vertx aVertx, final VertxTestContext aContext) {
+        final String idTemplate = "ark:/12345/counts{}";
+        final JsonArray items = new JsonArray() //
+                .add(new JsonObject().put(RequestJsonKeys.UID, StringUtils.format(idTemplate, 1))
+                        .put(RequestJsonKeys.ACCESS_MODE, 0))
+                .add(new JsonObject().put(RequestJsonKeys.UID, StringUtils.format(idTemplate, 2))
+                        .put(RequestJsonKeys.ACCESS_MODE, 0));
+        // Re-import the same items, except that one of them has changed and another is new
+        final JsonArray reimportedItems = items.copy() //
+                .add(new JsonObject().put(RequestJsonKeys.UID, StringUtils.format(idTemplate, 3))
+                        .put(RequestJsonKeys.ACCESS_MODE, 2));
+
+        reimportedItems.getJsonObject(1).put(RequestJsonKeys.ACCESS_MODE, 1);
+
+        myWebClient.post(myPort, Constants.INADDR_ANY, POST_ITEMS_PATH).putHeaders(API_KEY_HEADER).sendJson(items)
+                .compose(response -> {
+                    return myWebClient.post(myPort, Constants.INADDR_ANY, POST_ITEMS_PATH).putHeaders(API_KEY_HEADER)
+                            .sendJson(reimportedItems);
+                }).onSuccess(response -> {
+                    final JsonObject expected = new JsonObject().put(ResponseJsonKeys.INSERTED, 1)
+                            .put(ResponseJsonKeys.UPDATED, 1).put(ResponseJsonKeys.UNCHANGED, 1);
+
+                    aContext.verify(() -> {
+                        assertEquals(HTTP.CREATED, response.statusCode());
+                        assertEquals(expected, response.bodyAsJsonObject());
+
+                        aContext.completeNow();
+                    });
+                }).onFailure(aContext::failNow);
+    }
+
     /**
      * Tests that an unauthorized request will fail.
      *
@@ -227,10 +265,15 @@ public final class ItemsHandlerIT extends AbstractHandlerIT {
 
         postItems.sendJson(json).onSuccess(response -> {
             aContext.verify(() -> {
+                final JsonArray errors = response.bodyAsJsonObject().getJsonArray(ResponseJsonKeys.ERRORS);
+
                 assertEquals(HTTP.BAD_REQUEST, response.statusCode());
                 assertEquals(MediaType.APPLICATION_JSON.toString(), response.headers().get(HttpHeaders.CONTENT_TYPE));
                 assertEquals(Error.MALFORMED_INPUT_DATA.toString(),
                         response.bodyAsJsonObject().getString(ResponseJsonKeys.ERROR));
+                // Only the second item is malformed
+                assertEquals(1, errors.size());
+                assertEquals(1, errors.getJsonObject(0).getInteger(ResponseJsonKeys.INDEX));
 
                 aContext.completeNow();
             });
@@ -0,0 +1,225 @@
+
+package edu.ucla.library.iiif.auth.handlers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import info.freelibrary.util.Constants;
+import info.freelibrary.util.HTTP;
+import info.freelibrary.util.StringUtils;
+
+import edu.ucla.library.iiif.auth.Config;
+import edu.ucla.library.iiif.auth.Error;
+import edu.ucla.library.iiif.auth.RequestJsonKeys;
+import edu.ucla.library.iiif.auth.ResponseJsonKeys;
+import edu.ucla.library.iiif.auth.handlers.AccessModeHandler.AccessMode;
+
+import io.vertx.core.Future;
+import io.vertx.core.MultiMap;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.HttpResponse;
+import io.vertx.junit5.VertxTestContext;
+
+/**
+ * Tests {@link ItemsJobsHandler#handle} and {@link ItemsJobHandler#handle}.
+ */
+public final class ItemsJobsHandlerIT extends AbstractHandlerIT {
+
+    /**
+     * The number of items in the test job, which is more than fit in one chunk by default.
+     */
+    private static final int ITEM_COUNT = 2500;
+
+    /**
+     * The template for the IDs of the items in the test job.
+     */
+    private static final String TEST_ID = "ark:/12345/job{}";
+
+    /**
+     * An HTTP header for making authorized requests.
+     */
+    private static final MultiMap API_KEY_HEADER =
+            MultiMap.caseInsensitiveMultiMap().add("X-API-KEY", System.getenv(Config.API_KEY));
+
+    /**
+     * Tests that a job can be submitted, and that its status can be checked until it has finished.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    public void testPostItemsJob(final Vertx aVertx, final VertxTestContext aContext) {
+        final JsonArray json = new JsonArray();
+
+        for (int index = 0; index < ITEM_COUNT; index++) {
+            json.add(new JsonObject().put(RequestJsonKeys.UID, StringUtils.format(TEST_ID, index))
+                    .put(RequestJsonKeys.ACCESS_MODE, index % 2));
+        }
+
+        myWebClient.post(myPort, Constants.INADDR_ANY, POST_ITEMS_JOB_PATH).putHeaders(API_KEY_HEADER).sendJson(json)
+                .compose(response -> {
+                    final String id = response.bodyAsJsonObject().getString(ResponseJsonKeys.ID);
+
+                    aContext.verify(() -> {
+                        assertEquals(HTTP.ACCEPTED, response.statusCode());
+                        assertEquals(StringUtils.format(GET_ITEMS_JOB_PATH, id),
+                                response.getHeader(HttpHeaders.LOCATION.toString()));
+                    });
+
+                    return awaitFinished(aVertx, id);
+                }).compose(status -> {
+                    aContext.verify(() -> {
+                        assertEquals("SUCCEEDED", status.getString(ResponseJsonKeys.STATUS));
+                        assertEquals(ITEM_COUNT, status.getInteger(ResponseJsonKeys.TOTAL));
+                        assertEquals(ITEM_COUNT, status.getInteger(ResponseJsonKeys.PROCESSED));
+                        assertEquals(0, status.getInteger(ResponseJsonKeys.FAILED));
+                    });
+
+                    return myWebClient.get(myPort, Constants.INADDR_ANY, StringUtils.format(GET_ACCESS_MODE_PATH,
+                            URLEncoder.encode(StringUtils.format(TEST_ID, 1), StandardCharsets.UTF_8))).send();
+                }).onSuccess(response -> {
+                    aContext.verify(() -> {
+                        assertEquals(new JsonObject().put(ResponseJsonKeys.ACCESS_MODE, AccessMode.TIERED),
+                                response.bodyAsJsonObject());
+
+                        aContext.completeNow();
+                    });
+                }).onFailure(aContext::failNow);
+    }
+
+    /**
+     * Tests that items that can't be set are reported in the job's status.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    public void testPostItemsJobMissingJsonKey(final Vertx aVertx, final VertxTestContext aContext) {
+        final JsonArray json = new JsonArray()
+                .add(new JsonObject().put(RequestJsonKeys.UID, StringUtils.format(TEST_ID, "missing")));
+
+        myWebClient.post(myPort, Constants.INADDR_ANY, POST_ITEMS_JOB_PATH).putHeaders(API_KEY_HEADER).sendJson(json)
+                .compose(response -> awaitFinished(aVertx, response.bodyAsJsonObject().getString(ResponseJsonKeys.ID)))
+                .onSuccess(status -> {
+                    aContext.verify(() -> {
+                        final JsonObject error = status.getJsonArray(ResponseJsonKeys.ERRORS).getJsonObject(0);
+
+                        assertEquals("FAILED", status.getString(ResponseJsonKeys.STATUS));
+                        assertEquals(1, status.getInteger(ResponseJsonKeys.FAILED));
+                        assertEquals(Error.MALFORMED_INPUT_DATA.toString(), error.getString(ResponseJsonKeys.ERROR));
+                        assertEquals(0, error.getJsonArray(ResponseJsonKeys.ERRORS).getJsonObject(0)
+                                .getInteger(ResponseJsonKeys.INDEX));
+
+                        aContext.completeNow();
+                    });
+                }).onFailure(aContext::failNow);
+    }
+
+    /**
+     * Tests that the request body must be a JSON array.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    public void testPostItemsJobInvalidRequestBody(final Vertx aVertx, final VertxTestContext aContext) {
+        myWebClient.post(myPort, Constants.INADDR_ANY, POST_ITEMS_JOB_PATH).putHeaders(API_KEY_HEADER)
+                .putHeader(HttpHeaders.CONTENT_TYPE.toString(), "application/json")
+                .sendBuffer(Buffer.buffer("{ \"uid\": \"ark:/12345/job\" }")).onSuccess(response -> {
+                    aContext.verify(() -> {
+                        assertEquals(HTTP.BAD_REQUEST, response.statusCode());
+                        assertEquals(Error.INVALID_JSONARRAY.toString(),
+                                response.bodyAsJsonObject().getString(ResponseJsonKeys.ERROR));
+
+                        aContext.completeNow();
+                    });
+                }).onFailure(aContext::failNow);
+    }
+
+    /**
+     * Tests that an unauthorized request will fail.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    public void testPostItemsJobUnauthorized(final Vertx aVertx, final VertxTestContext aContext) {
+        final JsonArray json = new JsonArray().add(new JsonObject()
+                .put(RequestJsonKeys.UID, StringUtils.format(TEST_ID, "unauthorized"))
+                .put(RequestJsonKeys.ACCESS_MODE, 0));
+
+        myWebClient.post(myPort, Constants.INADDR_ANY, POST_ITEMS_JOB_PATH).sendJson(json).onSuccess(response -> {
+            aContext.verify(() -> {
+                assertEquals(HTTP.UNAUTHORIZED, response.statusCode());
+                assertEquals(Error.INVALID_ADMIN_CREDENTIALS.toString(),
+                        response.bodyAsJsonObject().getString(ResponseJsonKeys.ERROR));
+
+                aContext.completeNow();
+            });
+        }).onFailure(aContext::failNow);
+    }
+
+    /**
+     * Tests that the status of a job that doesn't exist can't be found.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    public void testGetItemsJobNotFound(final Vertx aVertx, final VertxTestContext aContext) {
+        getItemsJob("unknown").onSuccess(response -> {
+            aContext.verify(() -> {
+                assertEquals(HTTP.NOT_FOUND, response.statusCode());
+                assertEquals(Error.NOT_FOUND.toString(),
+                        response.bodyAsJsonObject().getString(ResponseJsonKeys.ERROR));
+
+                aContext.completeNow();
+            });
+        }).onFailure(aContext::failNow);
+    }
+
+    /**
+     * Requests the status of a job.
+     *
+     * @param aID The ID of the job
+     * @return A Future that resolves to the response
+     */
+    private Future<HttpResponse<Buffer>> getItemsJob(final String aID) {
+        return myWebClient.get(myPort, Constants.INADDR_ANY, StringUtils.format(GET_ITEMS_JOB_PATH, aID))
+                .putHeaders(API_KEY_HEADER).send();
+    }
+
+    /**
+     * Polls the status of a job until it has finished.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aID The ID of the job
+     * @return A Future that resolves to the job's final status
+     */
+    private Future<JsonObject> awaitFinished(final Vertx aVertx, final String aID) {
+        final Promise<JsonObject> promise = Promise.promise();
+
+        getItemsJob(aID).onSuccess(response -> {
+            final JsonObject status = response.bodyAsJsonObject();
+
+            if (response.statusCode() != HTTP.OK) {
+                promise.fail(status.encode());
+            } else if (status.containsKey(ResponseJsonKeys.FINISHED)) {
+                promise.complete(status);
+            } else {
+                aVertx.setTimer(100, timerID -> awaitFinished(aVertx, aID).onComplete(promise));
+            }
+        }).onFailure(promise::fail);
+
+        return promise.future();
+    }
+}
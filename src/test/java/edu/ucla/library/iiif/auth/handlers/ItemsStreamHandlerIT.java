@@ -0,0 +1,179 @@
+
+package edu.ucla.library.iiif.auth.handlers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import info.freelibrary.util.Constants;
+import info.freelibrary.util.HTTP;
+import info.freelibrary.util.StringUtils;
+
+import edu.ucla.library.iiif.auth.Config;
+import edu.ucla.library.iiif.auth.Error;
+import edu.ucla.library.iiif.auth.RequestJsonKeys;
+import edu.ucla.library.iiif.auth.ResponseJsonKeys;
+import edu.ucla.library.iiif.auth.handlers.AccessModeHandler.AccessMode;
+import edu.ucla.library.iiif.auth.utils.MediaType;
+
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.MultiMap;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.HttpRequest;
+import io.vertx.ext.web.client.HttpResponse;
+import io.vertx.junit5.VertxTestContext;
+
+/**
+ * Tests {@link ItemsStreamHandler#handle}.
+ */
+public final class ItemsStreamHandlerIT extends AbstractHandlerIT {
+
+    /**
+     * The number of items to stream, which is more than fit in one chunk by default.
+     */
+    private static final int ITEM_COUNT = 2500;
+
+    /**
+     * The template for the IDs of the streamed items.
+     */
+    private static final String TEST_ID = "ark:/12345/stream{}";
+
+    /**
+     * An HTTP header for making authorized requests.
+     */
+    private static final MultiMap API_KEY_HEADER =
+            MultiMap.caseInsensitiveMultiMap().add("X-API-KEY", System.getenv(Config.API_KEY));
+
+    /**
+     * Tests that items can be streamed, in more than one chunk.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    public void testPostItemsStream(final Vertx aVertx, final VertxTestContext aContext) {
+        final HttpRequest<?> postItems =
+                myWebClient.post(myPort, Constants.INADDR_ANY, POST_ITEMS_STREAM_PATH).putHeaders(API_KEY_HEADER);
+        final JsonArray json = new JsonArray();
+
+        for (int index = 0; index < ITEM_COUNT; index++) {
+            json.add(new JsonObject().put(RequestJsonKeys.UID, StringUtils.format(TEST_ID, index))
+                    .put(RequestJsonKeys.ACCESS_MODE, index % 2));
+        }
+
+        postItems.sendBuffer(json.toBuffer()).compose(response -> {
+            aContext.verify(() -> {
+                final JsonObject counts = response.bodyAsJsonObject();
+
+                assertEquals(HTTP.CREATED, response.statusCode());
+                // Every item is counted once, across all of the chunks
+                assertEquals(ITEM_COUNT, counts.getInteger(ResponseJsonKeys.INSERTED) +
+                        counts.getInteger(ResponseJsonKeys.UPDATED) + counts.getInteger(ResponseJsonKeys.UNCHANGED));
+            });
+
+            return CompositeFuture.all(getAccessMode(0).send(), getAccessMode(ITEM_COUNT - 1).send());
+        }).onSuccess(responses -> {
+            final HttpResponse<?> first = responses.<HttpResponse<?>>resultAt(0);
+            final HttpResponse<?> last = responses.<HttpResponse<?>>resultAt(1);
+
+            aContext.verify(() -> {
+                assertEquals(new JsonObject().put(ResponseJsonKeys.ACCESS_MODE, AccessMode.OPEN),
+                        first.bodyAsJsonObject());
+                assertEquals(new JsonObject().put(ResponseJsonKeys.ACCESS_MODE, AccessMode.TIERED),
+                        last.bodyAsJsonObject());
+
+                aContext.completeNow();
+            });
+        }).onFailure(aContext::failNow);
+    }
+
+    /**
+     * Tests that an unauthorized request will fail.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    public void testPostItemsStreamUnauthorized(final Vertx aVertx, final VertxTestContext aContext) {
+        final HttpRequest<?> postItems = myWebClient.post(myPort, Constants.INADDR_ANY, POST_ITEMS_STREAM_PATH);
+        final JsonArray json = new JsonArray().add(new JsonObject().put(RequestJsonKeys.UID, StringUtils.format(TEST_ID,
+                "unauthorized")).put(RequestJsonKeys.ACCESS_MODE, 0));
+
+        postItems.sendJson(json).onSuccess(response -> {
+            aContext.verify(() -> {
+                assertEquals(HTTP.UNAUTHORIZED, response.statusCode());
+                assertEquals(Error.INVALID_ADMIN_CREDENTIALS.toString(),
+                        response.bodyAsJsonObject().getString(ResponseJsonKeys.ERROR));
+
+                aContext.completeNow();
+            });
+        }).onFailure(aContext::failNow);
+    }
+
+    /**
+     * Tests that the request body must be a JSON array of objects.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    public void testPostItemsStreamInvalidRequestBody(final Vertx aVertx, final VertxTestContext aContext) {
+        final HttpRequest<?> postItems =
+                myWebClient.post(myPort, Constants.INADDR_ANY, POST_ITEMS_STREAM_PATH).putHeaders(API_KEY_HEADER);
+
+        postItems.sendBuffer(Buffer.buffer("{ \"uid\": \"ark:/12345/stream\" }")).onSuccess(response -> {
+            aContext.verify(() -> {
+                assertEquals(HTTP.BAD_REQUEST, response.statusCode());
+                assertEquals(MediaType.APPLICATION_JSON.toString(), response.headers().get(HttpHeaders.CONTENT_TYPE));
+                assertEquals(Error.INVALID_JSONARRAY.toString(),
+                        response.bodyAsJsonObject().getString(ResponseJsonKeys.ERROR));
+
+                aContext.completeNow();
+            });
+        }).onFailure(aContext::failNow);
+    }
+
+    /**
+     * Tests that the request is rejected if any of the items are missing a key.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    public void testPostItemsStreamMissingJsonKey(final Vertx aVertx, final VertxTestContext aContext) {
+        final HttpRequest<?> postItems =
+                myWebClient.post(myPort, Constants.INADDR_ANY, POST_ITEMS_STREAM_PATH).putHeaders(API_KEY_HEADER);
+        final JsonArray json = new JsonArray()
+                .add(new JsonObject().put(RequestJsonKeys.UID, StringUtils.format(TEST_ID, "missing")));
+
+        postItems.sendJson(json).onSuccess(response -> {
+            aContext.verify(() -> {
+                assertEquals(HTTP.BAD_REQUEST, response.statusCode());
+                assertEquals(Error.MALFORMED_INPUT_DATA.toString(),
+                        response.bodyAsJsonObject().getString(ResponseJsonKeys.ERROR));
+
+                aContext.completeNow();
+            });
+        }).onFailure(aContext::failNow);
+    }
+
+    /**
+     * Creates a request for the access mode of one of the streamed items.
+     *
+     * @param aIndex The index of the item
+     * @return The request
+     */
+    private HttpRequest<?> getAccessMode(final int aIndex) {
+        final String id = StringUtils.format(TEST_ID, aIndex);
+
+        return myWebClient.get(myPort, Constants.INADDR_ANY,
+                StringUtils.format(GET_ACCESS_MODE_PATH, URLEncoder.encode(id, StandardCharsets.UTF_8)));
+    }
+}
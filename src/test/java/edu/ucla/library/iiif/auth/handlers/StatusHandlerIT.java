@@ -2,12 +2,14 @@
 package edu.ucla.library.iiif.auth.handlers;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import org.junit.jupiter.api.Test;
 
 import info.freelibrary.util.Constants;
 import info.freelibrary.util.HTTP;
 
+import edu.ucla.library.iiif.auth.ResponseJsonKeys;
 import edu.ucla.library.iiif.auth.utils.MediaType;
 
 import io.vertx.core.Vertx;
@@ -34,6 +36,7 @@ public final class StatusHandlerIT extends AbstractHandlerIT {
             aContext.verify(() -> {
                 assertEquals(HTTP.OK, response.statusCode());
                 assertEquals(MediaType.APPLICATION_JSON.toString(), response.headers().get(HttpHeaders.CONTENT_TYPE));
+                assertTrue(response.bodyAsJsonObject().containsKey(ResponseJsonKeys.METRICS));
 
                 aContext.completeNow();
             });
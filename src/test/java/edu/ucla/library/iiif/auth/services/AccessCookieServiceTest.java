@@ -5,7 +5,14 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.List;
 import java.util.Random;
@@ -21,9 +28,11 @@ import info.freelibrary.util.Logger;
 import info.freelibrary.util.LoggerFactory;
 import info.freelibrary.util.StringUtils;
 
+import edu.ucla.library.iiif.auth.Config;
 import edu.ucla.library.iiif.auth.CookieJsonKeys;
 import edu.ucla.library.iiif.auth.Error;
 import edu.ucla.library.iiif.auth.MessageCodes;
+import edu.ucla.library.iiif.auth.TokenJsonKeys;
 import edu.ucla.library.iiif.auth.utils.TestUtils;
 
 import io.vertx.config.ConfigRetriever;
@@ -60,6 +69,11 @@ public class AccessCookieServiceTest extends AbstractServiceTest {
      */
     private AccessCookieService myServiceProxy;
 
+    /**
+     * The service itself, for testing calls that are made directly from several threads at once.
+     */
+    private AccessCookieService myServiceImpl;
+
     /**
      * Only used for event bus unregistration.
      */
@@ -80,6 +94,21 @@ public class AccessCookieServiceTest extends AbstractServiceTest {
      */
     private Tuple myMockSinaiCookies4DaysOld;
 
+    /**
+     * Mock values for a pair of binary Sinai cookies that were issued a minute short of 72 hours ago.
+     */
+    private Tuple myMockSinaiCookiesV2AlmostExpired;
+
+    /**
+     * Mock values for a pair of binary Sinai cookies that were issued a minute over 72 hours ago.
+     */
+    private Tuple myMockSinaiCookiesV2Expired;
+
+    /**
+     * Mock values for a pair of binary Sinai cookies that were issued an hour from now.
+     */
+    private Tuple myMockSinaiCookiesV2Future;
+
     /**
      * Sets up the test.
      *
@@ -99,6 +128,12 @@ public class AccessCookieServiceTest extends AbstractServiceTest {
                     myMockSinaiCookiesFresh = TestUtils.getMockSinaiCookies(config, LocalDate.now());
                     myMockSinaiCookies3DaysOld = TestUtils.getMockSinaiCookies(config, LocalDate.now().minusDays(3));
                     myMockSinaiCookies4DaysOld = TestUtils.getMockSinaiCookies(config, LocalDate.now().minusDays(4));
+                    myMockSinaiCookiesV2AlmostExpired = TestUtils.getMockSinaiCookiesV2(config,
+                            Instant.now().minus(Duration.ofHours(72).minusMinutes(1)));
+                    myMockSinaiCookiesV2Expired = TestUtils.getMockSinaiCookiesV2(config,
+                            Instant.now().minus(Duration.ofHours(72).plusMinutes(1)));
+                    myMockSinaiCookiesV2Future =
+                            TestUtils.getMockSinaiCookiesV2(config, Instant.now().plus(Duration.ofHours(1)));
                 } catch (final Exception details) {
                     aContext.failNow(details);
                     return;
@@ -106,6 +141,7 @@ public class AccessCookieServiceTest extends AbstractServiceTest {
 
                 // Register the service on the event bus, and keep a reference to it so it can be unregistered later
                 myService = binder.setAddress(AccessCookieService.ADDRESS).register(AccessCookieService.class, service);
+                myServiceImpl = service;
 
                 // Now we can instantiate a proxy to the service
                 myServiceProxy = AccessCookieService.createProxy(aVertx);
@@ -143,6 +179,57 @@ public class AccessCookieServiceTest extends AbstractServiceTest {
         final Future<String> generateCookie = myServiceProxy.generateCookie(clientIpAddress, isCampusNetwork);
 
         generateCookie.compose(cookie -> {
+            // The result is a version byte, a key ID, a nonce, the encrypted flags and IPv4 address, and a tag
+            final byte[] decodedCookie = Base64.getUrlDecoder().decode(cookie);
+
+            aContext.verify(() -> {
+                assertEquals(1 + 1 + 12 + 1 + 4 + 16, decodedCookie.length);
+                assertEquals(2, decodedCookie[0]);
+            });
+
+            return myServiceProxy.decryptCookie(cookie, clientIpAddress);
+        }).onSuccess(decryptedCookie -> {
+            final JsonObject expected = new JsonObject().put(CookieJsonKeys.CLIENT_IP_ADDRESS, clientIpAddress)
+                    .put(CookieJsonKeys.CAMPUS_NETWORK, isCampusNetwork);
+
+            completeIfExpectedElseFail(decryptedCookie, expected, aContext);
+        }).onFailure(aContext::failNow);
+    }
+
+    /**
+     * Tests that a cookie that was generated for an IPv6 address is accepted from the same address, however it's
+     * written.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    public final void testValidateGeneratedCookieIPv6(final Vertx aVertx, final VertxTestContext aContext) {
+        myServiceProxy.generateCookie("::1", false).compose(cookie -> {
+            aContext.verify(() -> assertEquals(1 + 1 + 12 + 1 + 16 + 16, Base64.getUrlDecoder().decode(cookie).length));
+
+            return myServiceProxy.decryptCookie(cookie, "0:0:0:0:0:0:0:1");
+        }).onSuccess(decryptedCookie -> {
+            final JsonObject expected = new JsonObject().put(CookieJsonKeys.CLIENT_IP_ADDRESS, "0:0:0:0:0:0:0:1")
+                    .put(CookieJsonKeys.CAMPUS_NETWORK, false);
+
+            completeIfExpectedElseFail(decryptedCookie, expected, aContext);
+        }).onFailure(aContext::failNow);
+    }
+
+    /**
+     * Tests that a cookie in the legacy format is still accepted.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    public final void testValidateLegacyCookie(final Vertx aVertx, final VertxTestContext aContext) {
+        final String clientIpAddress = LOCALHOST;
+        final boolean isCampusNetwork = true;
+        final AccessCookieServiceImpl service = (AccessCookieServiceImpl) myServiceImpl;
+
+        service.generateLegacyCookie(clientIpAddress, isCampusNetwork).compose(cookie -> {
             // The result is base64-encoded JSON with three keys
             final JsonObject decodedCookie = new JsonObject(new String(Base64.getDecoder().decode(cookie.getBytes())));
 
@@ -161,6 +248,38 @@ public class AccessCookieServiceTest extends AbstractServiceTest {
         }).onFailure(aContext::failNow);
     }
 
+    /**
+     * Tests that the service can be used from several threads at once, since each thread gets its own cipher.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    public final void testConcurrentUse(final Vertx aVertx, final VertxTestContext aContext) {
+        @SuppressWarnings("rawtypes")
+        final List<Future> roundTrips = new ArrayList<>();
+
+        for (int index = 0; index < 1_000; index++) {
+            final String clientIpAddress = "10.0." + index / 256 + "." + index % 256;
+            final boolean isCampusNetwork = index % 2 == 0;
+
+            // Run unordered on the worker pool, so that the calls overlap
+            roundTrips.add(aVertx.executeBlocking(promise -> {
+                myServiceImpl.generateCookie(clientIpAddress, isCampusNetwork).compose(cookie -> {
+                    return myServiceImpl.decryptCookie(cookie, clientIpAddress);
+                }).map(decryptedCookie -> {
+                    final JsonObject expected = new JsonObject().put(CookieJsonKeys.CLIENT_IP_ADDRESS, clientIpAddress)
+                            .put(CookieJsonKeys.CAMPUS_NETWORK, isCampusNetwork);
+
+                    aContext.verify(() -> assertEquals(expected, decryptedCookie));
+                    return null;
+                }).onComplete(promise);
+            }, false));
+        }
+
+        CompositeFuture.all(roundTrips).onSuccess(result -> aContext.completeNow()).onFailure(aContext::failNow);
+    }
+
     /**
      * Tests that a tampered cookie will not be accepted.
      *
@@ -168,22 +287,18 @@ public class AccessCookieServiceTest extends AbstractServiceTest {
      * @param aContext A test context
      */
     @Test
-    @SuppressWarnings("checkstyle:BooleanExpressionComplexity")
     public final void testInvalidateTamperedCookie(final Vertx aVertx, final VertxTestContext aContext) {
         final String clientIpAddress = LOCALHOST;
         final boolean isCampusNetwork = false;
         final Future<String> generateCookie = myServiceProxy.generateCookie(clientIpAddress, isCampusNetwork);
 
         generateCookie.compose(cookie -> {
-            final JsonObject decodedCookie = new JsonObject(new String(Base64.getDecoder().decode(cookie.getBytes())));
-            final byte[] secret = decodedCookie.getBinary(CookieJsonKeys.SECRET).clone();
+            final byte[] decodedCookie = Base64.getUrlDecoder().decode(cookie);
             final String tamperedCookie;
 
-            // Flip some bits in the secret
-            secret[new Random().nextInt(secret.length)] += 1;
-
-            decodedCookie.put(CookieJsonKeys.SECRET, secret);
-            tamperedCookie = Base64.getEncoder().encodeToString(decodedCookie.encode().getBytes());
+            // Flip some bits anywhere in the cookie; the authentication tag covers all of it
+            decodedCookie[new Random().nextInt(decodedCookie.length)] ^= 0x01;
+            tamperedCookie = Base64.getUrlEncoder().withoutPadding().encodeToString(decodedCookie);
 
             return myServiceProxy.decryptCookie(tamperedCookie, clientIpAddress);
         }).onFailure(details -> {
@@ -194,18 +309,123 @@ public class AccessCookieServiceTest extends AbstractServiceTest {
                 aContext.completeNow();
             });
         }).onSuccess(decryptedCookie -> {
-            // Somehow we still got syntactically valid JSON; make sure the structure is not semantically valid
-            if (decryptedCookie.containsKey(CookieJsonKeys.CLIENT_IP_ADDRESS) &&
-                    decryptedCookie.getString(CookieJsonKeys.CLIENT_IP_ADDRESS).equals(clientIpAddress) &&
-                    decryptedCookie.containsKey(CookieJsonKeys.CAMPUS_NETWORK) &&
-                    decryptedCookie.getBoolean(CookieJsonKeys.CAMPUS_NETWORK) == isCampusNetwork) {
-                aContext.failNow(StringUtils.format(MessageCodes.AUTH_009, decryptedCookie));
-            } else {
+            aContext.failNow(StringUtils.format(MessageCodes.AUTH_009, decryptedCookie));
+        });
+    }
+
+    /**
+     * Tests that cookies encrypted with a key that is still on the key ring are accepted after the active key changes,
+     * and that they're rejected once that key has been removed.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     * @throws GeneralSecurityException If the services can't be created
+     */
+    @Test
+    public final void testRotateKeys(final Vertx aVertx, final VertxTestContext aContext)
+            throws GeneralSecurityException {
+        final String oldKey = "1:" + Base64.getEncoder().encodeToString(new byte[32]);
+        final String newKey = "2:" + Base64.getEncoder().encodeToString(Arrays.copyOf(new byte[] { 2 }, 32));
+        final AccessCookieService oldService = new AccessCookieServiceImpl(getKeyRingConfig(oldKey));
+        final AccessCookieService rotatedService = new AccessCookieServiceImpl(getKeyRingConfig(newKey + "," + oldKey));
+        final AccessCookieService retiredService = new AccessCookieServiceImpl(getKeyRingConfig(newKey));
+
+        oldService.generateCookie(LOCALHOST, true).compose(cookie -> {
+            return rotatedService.decryptCookie(cookie, LOCALHOST).compose(decryptedCookie -> {
+                aContext.verify(() -> assertEquals(true, decryptedCookie.getBoolean(CookieJsonKeys.CAMPUS_NETWORK)));
+
+                return retiredService.decryptCookie(cookie, LOCALHOST);
+            });
+        }).onFailure(details -> {
+            final ServiceException error = (ServiceException) details;
+
+            aContext.verify(() -> {
+                assertEquals(Error.INVALID_COOKIE.ordinal(), error.failureCode());
                 aContext.completeNow();
-            }
+            });
+        }).onSuccess(decryptedCookie -> {
+            aContext.failNow(StringUtils.format(MessageCodes.AUTH_009, decryptedCookie));
         });
     }
 
+    /**
+     * Tests that a cookie that has already been decrypted, and so is cached, is still not accepted from another client.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    public final void testInvalidateCachedStolenCookie(final Vertx aVertx, final VertxTestContext aContext) {
+        final Future<String> generateCookie = myServiceProxy.generateCookie(LOCALHOST, false);
+
+        generateCookie.compose(cookie -> {
+            return myServiceProxy.decryptCookie(cookie, LOCALHOST)
+                    .compose(unused -> myServiceProxy.decryptCookie(cookie, "10.0.0.1"));
+        }).onFailure(details -> {
+            final ServiceException error = (ServiceException) details;
+
+            aContext.verify(() -> {
+                assertEquals(Error.INVALID_COOKIE.ordinal(), error.failureCode());
+                aContext.completeNow();
+            });
+        }).onSuccess(decryptedCookie -> {
+            aContext.failNow(StringUtils.format(MessageCodes.AUTH_009, decryptedCookie));
+        });
+    }
+
+    /**
+     * Tests that access tokens are the Base64-encoded JSON of their claims if they aren't signed.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    public final void testCreateAccessToken(final Vertx aVertx, final VertxTestContext aContext) {
+        final JsonObject claims = new JsonObject().put(TokenJsonKeys.CAMPUS_NETWORK, true);
+
+        myServiceProxy.createAccessToken(claims).onSuccess(token -> {
+            completeIfExpectedElseFail(new JsonObject(new String(Base64.getDecoder().decode(token))), claims,
+                    aContext);
+        }).onFailure(aContext::failNow);
+    }
+
+    /**
+     * Tests that signed access tokens expire when clients are told they do.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     * @throws GeneralSecurityException If the service can't be created
+     */
+    @Test
+    public final void testCreateSignedAccessToken(final Vertx aVertx, final VertxTestContext aContext)
+            throws GeneralSecurityException {
+        final KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        final KeyPair keyPair;
+        final AccessCookieService service;
+
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+        keyPair = generator.generateKeyPair();
+        service = new AccessCookieServiceImpl(getKeyRingConfig("1:" + Base64.getEncoder().encodeToString(new byte[32]))
+                .put(Config.ACCESS_TOKEN_EXPIRES_IN, 3600)
+                .put(Config.ACCESS_TOKEN_SIGNING_KEY,
+                        Base64.getEncoder().encodeToString(keyPair.getPrivate().getEncoded()))
+                .put(Config.ACCESS_TOKEN_VERIFICATION_KEY,
+                        Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded())));
+
+        service.createAccessToken(new JsonObject().put(TokenJsonKeys.SINAI_AFFILIATE, true)).onSuccess(token -> {
+            final String[] parts = token.split("\\.");
+            final JsonObject claims = new JsonObject(new String(Base64.getUrlDecoder().decode(parts[1])));
+
+            aContext.verify(() -> {
+                assertEquals(3, parts.length);
+                assertEquals(true, claims.getBoolean(TokenJsonKeys.SINAI_AFFILIATE));
+                assertEquals(3600, claims.getLong(TokenJsonKeys.EXPIRATION_TIME) -
+                        claims.getLong(TokenJsonKeys.ISSUED_AT));
+                aContext.completeNow();
+            });
+        }).onFailure(aContext::failNow);
+    }
+
     /**
      * Tests Sinai cookie validation.
      *
@@ -222,6 +442,50 @@ public class AccessCookieServiceTest extends AbstractServiceTest {
         }).onFailure(aContext::failNow);
     }
 
+    /**
+     * Tests that a Sinai cookie is still accepted once it has been validated, and so is cached.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    public final void testValidateCachedSinaiCookie(final Vertx aVertx, final VertxTestContext aContext) {
+        validateSinaiCookieTuple(myMockSinaiCookies3DaysOld)
+                .compose(unused -> validateSinaiCookieTuple(myMockSinaiCookies3DaysOld)).onSuccess(result -> {
+                    aContext.completeNow();
+                }).onFailure(aContext::failNow);
+    }
+
+    /**
+     * Tests that a Sinai cookie that isn't hex-encoded, or whose initialization vector is the wrong length, will not be
+     * accepted.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    public final void testInvalidateMalformedSinaiCookie(final Vertx aVertx, final VertxTestContext aContext) {
+        final String cookie = myMockSinaiCookiesFresh.getString(0);
+        final String iv = myMockSinaiCookiesFresh.getString(1);
+        @SuppressWarnings("rawtypes")
+        final List<Future> validations = List.of(myServiceProxy.validateSinaiCookie(cookie.substring(1), iv),
+                myServiceProxy.validateSinaiCookie("zz" + cookie.substring(2), iv),
+                myServiceProxy.validateSinaiCookie(cookie, iv.substring(2)));
+
+        CompositeFuture.join(validations).onSuccess(result -> {
+            aContext.failNow(LOGGER.getMessage(MessageCodes.AUTH_019));
+        }).onFailure(details -> {
+            aContext.verify(() -> {
+                for (final Future<?> validation : validations) {
+                    assertTrue(validation.failed());
+                    assertEquals(Error.INVALID_COOKIE.ordinal(), ((ServiceException) validation.cause()).failureCode());
+                }
+
+                aContext.completeNow();
+            });
+        });
+    }
+
     /**
      * Tests that an expired Sinai cookie will not be accepted.
      *
@@ -239,6 +503,46 @@ public class AccessCookieServiceTest extends AbstractServiceTest {
         });
     }
 
+    /**
+     * Tests that a binary Sinai cookie is accepted for 72 hours after it was issued.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    public final void testValidateSinaiCookieV2(final Vertx aVertx, final VertxTestContext aContext) {
+        validateSinaiCookieTuple(myMockSinaiCookiesV2AlmostExpired).onSuccess(result -> {
+            aContext.completeNow();
+        }).onFailure(aContext::failNow);
+    }
+
+    /**
+     * Tests that a binary Sinai cookie is not accepted once 72 hours have passed since it was issued, or before it was
+     * issued.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    public final void testInvalidateExpiredSinaiCookieV2(final Vertx aVertx, final VertxTestContext aContext) {
+        @SuppressWarnings("rawtypes")
+        final List<Future> validations = List.of(validateSinaiCookieTuple(myMockSinaiCookiesV2Expired),
+                validateSinaiCookieTuple(myMockSinaiCookiesV2Future));
+
+        CompositeFuture.join(validations).onSuccess(result -> {
+            aContext.failNow(LOGGER.getMessage(MessageCodes.AUTH_019));
+        }).onFailure(details -> {
+            aContext.verify(() -> {
+                for (final Future<?> validation : validations) {
+                    assertTrue(validation.failed());
+                    assertEquals(Error.INVALID_COOKIE.ordinal(), ((ServiceException) validation.cause()).failureCode());
+                }
+
+                aContext.completeNow();
+            });
+        });
+    }
+
     /**
      * Helper method logger.
      *
@@ -258,4 +562,15 @@ public class AccessCookieServiceTest extends AbstractServiceTest {
     private Future<Void> validateSinaiCookieTuple(final Tuple aCookieTuple) {
         return myServiceProxy.validateSinaiCookie(aCookieTuple.getString(0), aCookieTuple.getString(1));
     }
+
+    /**
+     * Gets a configuration for an access cookie service that uses the supplied keys.
+     *
+     * @param aSecretKeys A value for {@link Config#SECRET_KEYS}
+     * @return The configuration
+     */
+    private static JsonObject getKeyRingConfig(final String aSecretKeys) {
+        return new JsonObject().put(Config.SECRET_KEYS, aSecretKeys).put(Config.SINAI_COOKIE_SECRET_KEY_PASSWORD,
+                "ThisPasswordIsReallyHardToGuess!");
+    }
 }
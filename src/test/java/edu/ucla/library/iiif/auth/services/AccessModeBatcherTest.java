@@ -0,0 +1,152 @@
+
+package edu.ucla.library.iiif.auth.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+
+/**
+ * Tests the {@link AccessModeBatcher}.
+ */
+@ExtendWith(VertxExtension.class)
+public class AccessModeBatcherTest {
+
+    /**
+     * A test item identifier.
+     */
+    private static final String ID_1 = "ark:/21198/00000000";
+
+    /**
+     * A test item identifier.
+     */
+    private static final String ID_2 = "ark:/21198/11111111";
+
+    /**
+     * A test item identifier that isn't in the mock database.
+     */
+    private static final String UNKNOWN_ID = "ark:/21198/unknown";
+
+    /**
+     * The mock database.
+     */
+    private static final Map<String, Integer> ACCESS_MODES = Map.of(ID_1, 0, ID_2, 2);
+
+    /**
+     * Tests that lookups made within the window are sent as a single query, with each item only once.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    public final void testBatch(final Vertx aVertx, final VertxTestContext aContext) {
+        final List<Collection<String>> queries = new ArrayList<>();
+        final AccessModeBatcher batcher = new AccessModeBatcher(aVertx, 10, 100, ids -> query(queries, ids));
+
+        CompositeFuture.all(batcher.get(ID_1), batcher.get(UNKNOWN_ID), batcher.get(ID_2), batcher.get(ID_1))
+                .onSuccess(lookups -> {
+                    aContext.verify(() -> {
+                        assertEquals(0, lookups.<Integer>resultAt(0));
+                        assertNull(lookups.resultAt(1));
+                        assertEquals(2, lookups.<Integer>resultAt(2));
+                        assertEquals(0, lookups.<Integer>resultAt(3));
+                        assertEquals(List.of(List.of(ID_1, UNKNOWN_ID, ID_2)), queries);
+
+                        aContext.completeNow();
+                    });
+                }).onFailure(aContext::failNow);
+    }
+
+    /**
+     * Tests that a batch is sent as soon as it's full, without waiting for its window to elapse.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    public final void testFullBatch(final Vertx aVertx, final VertxTestContext aContext) {
+        final List<Collection<String>> queries = new ArrayList<>();
+        final AccessModeBatcher batcher = new AccessModeBatcher(aVertx, 60_000, 2, ids -> query(queries, ids));
+        final Future<Integer> lookup1 = batcher.get(ID_1);
+        final Future<Integer> lookup2 = batcher.get(ID_2);
+        final Future<Integer> lookup3 = batcher.get(UNKNOWN_ID);
+
+        CompositeFuture.all(lookup1, lookup2).onSuccess(lookups -> {
+            aContext.verify(() -> {
+                assertEquals(List.of(List.of(ID_1, ID_2)), queries);
+                assertFalse(lookup3.isComplete());
+
+                aContext.completeNow();
+            });
+        }).onFailure(aContext::failNow);
+    }
+
+    /**
+     * Tests that a failed query fails every lookup in the batch.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    public final void testFailure(final Vertx aVertx, final VertxTestContext aContext) {
+        final String message = "Database error";
+        final AccessModeBatcher batcher =
+                new AccessModeBatcher(aVertx, 10, 100, ids -> Future.failedFuture(message));
+
+        CompositeFuture.join(batcher.get(ID_1), batcher.get(ID_2)).onSuccess(lookups -> {
+            aContext.failNow(lookups.toString());
+        }).onFailure(error -> {
+            aContext.verify(() -> {
+                assertEquals(message, error.getMessage());
+
+                aContext.completeNow();
+            });
+        });
+    }
+
+    /**
+     * Tests that nothing is batched when there's no window.
+     *
+     * @param aVertx A Vert.x instance
+     */
+    @Test
+    public final void testDisabled(final Vertx aVertx) {
+        assertFalse(new AccessModeBatcher(aVertx, 0, 100, ids -> Future.succeededFuture(Map.of())).isEnabled());
+    }
+
+    /**
+     * Looks up a batch of items in the mock database.
+     *
+     * @param aQueries A list to which the batch is added
+     * @param aIDs A batch of item identifiers
+     * @return A Future that resolves to the access modes of the items that were found
+     */
+    private static Future<Map<String, Integer>> query(final List<Collection<String>> aQueries,
+            final Collection<String> aIDs) {
+        final Map<String, Integer> accessModes = new HashMap<>();
+
+        aQueries.add(List.copyOf(aIDs));
+
+        for (final String id : aIDs) {
+            if (ACCESS_MODES.containsKey(id)) {
+                accessModes.put(id, ACCESS_MODES.get(id));
+            }
+        }
+
+        return Future.succeededFuture(accessModes);
+    }
+}
@@ -0,0 +1,48 @@
+
+package edu.ucla.library.iiif.auth.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the {@link AccessModeReplica}.
+ */
+public class AccessModeReplicaTest {
+
+    /**
+     * A test item ID.
+     */
+    private static final String ID_1 = "ark:/21198/00000000";
+
+    /**
+     * A test item ID.
+     */
+    private static final String ID_2 = "ark:/21198/11111111";
+
+    /**
+     * Tests that changes are counted until a new snapshot is loaded, which only keeps the ones made during the load.
+     */
+    @Test
+    public final void testChangeCount() {
+        final AccessModeReplica replica = new AccessModeReplica();
+
+        assertEquals(0, replica.getChangeCount());
+        assertTrue(replica.startLoad());
+        replica.finishLoad(new CompactAccessModeStore.Builder().add(ID_1, 0).build());
+
+        replica.put(ID_1, 1);
+        replica.put(ID_2, 2);
+        replica.put(ID_2, 1);
+        assertEquals(2, replica.getChangeCount());
+
+        assertTrue(replica.startLoad());
+        replica.put(ID_2, 0);
+        replica.finishLoad(new CompactAccessModeStore.Builder().add(ID_1, 1).add(ID_2, 1).build());
+
+        assertEquals(1, replica.getChangeCount());
+        assertEquals(1, replica.get(ID_1));
+        assertEquals(0, replica.get(ID_2));
+    }
+}
@@ -0,0 +1,188 @@
+
+package edu.ucla.library.iiif.auth.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Base64;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import edu.ucla.library.iiif.auth.Config;
+import edu.ucla.library.iiif.auth.TokenJsonKeys;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Tests the {@link AccessTokenSigner}.
+ */
+public class AccessTokenSignerTest {
+
+    /**
+     * A test key pair.
+     */
+    private KeyPair myKeyPair;
+
+    /**
+     * Sets up the test.
+     *
+     * @throws GeneralSecurityException If a key pair can't be generated
+     */
+    @BeforeEach
+    public final void setUp() throws GeneralSecurityException {
+        myKeyPair = generateKeyPair();
+    }
+
+    /**
+     * Tests that a signed token can be verified with the public key, and that it can't be once it's been changed.
+     *
+     * @throws GeneralSecurityException If the token can't be signed or verified
+     */
+    @Test
+    public final void testSign() throws GeneralSecurityException {
+        final AccessTokenSigner signer = getSigner(myKeyPair);
+        final JsonObject claims = new JsonObject().put(TokenJsonKeys.CAMPUS_NETWORK, true);
+        final String[] token = signer.sign(claims).split("\\.");
+        final JsonObject header = decode(token[0]);
+
+        assertEquals(3, token.length);
+        assertEquals(AccessTokenSigner.JWS_ALGORITHM, header.getString("alg"));
+        assertEquals(signer.getKeyID(), header.getString("kid"));
+        assertEquals(claims, decode(token[1]));
+        assertTrue(verify(token[0] + "." + token[1], token[2]));
+
+        // Claim to be on the campus network when the signed token says otherwise
+        assertFalse(verify(token[0] + "." + encode(claims.copy().put(TokenJsonKeys.CAMPUS_NETWORK, false)),
+                token[2]));
+    }
+
+    /**
+     * Tests that the published key is the public key.
+     *
+     * @throws GeneralSecurityException If the signer can't be created
+     */
+    @Test
+    public final void testGetJwk() throws GeneralSecurityException {
+        final JsonObject jwk = getSigner(myKeyPair).getJwk();
+        final ECPublicKey publicKey = (ECPublicKey) myKeyPair.getPublic();
+        final byte[] x = Base64.getUrlDecoder().decode(jwk.getString("x"));
+        final byte[] y = Base64.getUrlDecoder().decode(jwk.getString("y"));
+
+        assertEquals("EC", jwk.getString("kty"));
+        assertEquals("P-256", jwk.getString("crv"));
+        assertEquals(publicKey.getW().getAffineX(), new BigInteger(1, x));
+        assertEquals(publicKey.getW().getAffineY(), new BigInteger(1, y));
+        assertEquals(32, x.length);
+        assertEquals(32, y.length);
+        assertEquals(43, jwk.getString("kid").length());
+    }
+
+    /**
+     * Tests that the signer is configured from Base64-encoded keys, and only if there's a signing key.
+     *
+     * @throws GeneralSecurityException If the signer can't be created
+     */
+    @Test
+    public final void testFromConfig() throws GeneralSecurityException {
+        final Base64.Encoder encoder = Base64.getEncoder();
+        final JsonObject config = new JsonObject()
+                .put(Config.ACCESS_TOKEN_SIGNING_KEY, encoder.encodeToString(myKeyPair.getPrivate().getEncoded()))
+                .put(Config.ACCESS_TOKEN_VERIFICATION_KEY, encoder.encodeToString(myKeyPair.getPublic().getEncoded()));
+        final JsonObject incompleteConfig = config.copy();
+
+        incompleteConfig.remove(Config.ACCESS_TOKEN_VERIFICATION_KEY);
+
+        assertNull(AccessTokenSigner.fromConfig(new JsonObject()));
+        assertEquals(getSigner(myKeyPair).getKeyID(), AccessTokenSigner.fromConfig(config).getKeyID());
+        assertThrows(GeneralSecurityException.class, () -> AccessTokenSigner.fromConfig(incompleteConfig));
+    }
+
+    /**
+     * Tests that a private key and a public key that don't belong together are rejected.
+     *
+     * @throws GeneralSecurityException If a key pair can't be generated
+     */
+    @Test
+    public final void testMismatchedKeys() throws GeneralSecurityException {
+        final KeyPair otherKeyPair = generateKeyPair();
+
+        assertThrows(InvalidKeyException.class,
+                () -> new AccessTokenSigner(myKeyPair.getPrivate(), (ECPublicKey) otherKeyPair.getPublic()));
+    }
+
+    /**
+     * Verifies a signature with the test public key.
+     *
+     * @param aSigningInput The signed part of a token
+     * @param aSignature The encoded signature
+     * @return Whether the signature is valid
+     * @throws GeneralSecurityException If the signature can't be checked
+     */
+    private boolean verify(final String aSigningInput, final String aSignature) throws GeneralSecurityException {
+        final Signature verifier = Signature.getInstance(AccessTokenSigner.SIGNATURE_ALGORITHM);
+
+        verifier.initVerify(myKeyPair.getPublic());
+        verifier.update(aSigningInput.getBytes(StandardCharsets.US_ASCII));
+
+        return verifier.verify(Base64.getUrlDecoder().decode(aSignature));
+    }
+
+    /**
+     * Creates a signer for a key pair.
+     *
+     * @param aKeyPair A key pair
+     * @return The signer
+     * @throws GeneralSecurityException If the signer can't be created
+     */
+    private static AccessTokenSigner getSigner(final KeyPair aKeyPair) throws GeneralSecurityException {
+        return new AccessTokenSigner(aKeyPair.getPrivate(), (ECPublicKey) aKeyPair.getPublic());
+    }
+
+    /**
+     * Generates a P-256 key pair.
+     *
+     * @return The key pair
+     * @throws GeneralSecurityException If the key pair can't be generated
+     */
+    private static KeyPair generateKeyPair() throws GeneralSecurityException {
+        final KeyPairGenerator generator = KeyPairGenerator.getInstance(AccessTokenSigner.KEY_ALGORITHM);
+
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+
+        return generator.generateKeyPair();
+    }
+
+    /**
+     * Decodes a part of a token.
+     *
+     * @param aPart An encoded part
+     * @return The decoded JSON
+     */
+    private static JsonObject decode(final String aPart) {
+        return new JsonObject(new String(Base64.getUrlDecoder().decode(aPart), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Encodes a part of a token.
+     *
+     * @param aJsonObject Some JSON
+     * @return The encoded part
+     */
+    private static String encode(final JsonObject aJsonObject) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(aJsonObject.encode().getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,86 @@
+
+package edu.ucla.library.iiif.auth.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the {@link BloomFilter}.
+ */
+public class BloomFilterTest {
+
+    /**
+     * The number of strings to add to the filters under test.
+     */
+    private static final int SIZE = 100_000;
+
+    /**
+     * The false positive rate to size the filters under test for.
+     */
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    /**
+     * Tests that the filter has no false negatives, and that its false positive rate is close to the one it was sized
+     * for, as is its estimate of that rate.
+     */
+    @Test
+    public final void testFalsePositiveRate() {
+        final BloomFilter filter = new BloomFilter(SIZE, FALSE_POSITIVE_RATE);
+        final double falsePositiveRate;
+        int falsePositives = 0;
+
+        for (int index = 0; index < SIZE; index++) {
+            filter.add(getID(index));
+        }
+
+        for (int index = 0; index < SIZE; index++) {
+            assertTrue(filter.mightContain(getID(index)));
+        }
+
+        for (int index = SIZE; index < SIZE * 2; index++) {
+            if (filter.mightContain(getID(index))) {
+                falsePositives += 1;
+            }
+        }
+
+        falsePositiveRate = (double) falsePositives / SIZE;
+
+        assertEquals(FALSE_POSITIVE_RATE, falsePositiveRate, FALSE_POSITIVE_RATE / 2);
+        assertEquals(falsePositiveRate, filter.getFalsePositiveRate(), FALSE_POSITIVE_RATE / 2);
+    }
+
+    /**
+     * Tests that an empty filter contains nothing.
+     */
+    @Test
+    public final void testEmpty() {
+        final BloomFilter filter = new BloomFilter(SIZE, FALSE_POSITIVE_RATE);
+
+        assertFalse(filter.mightContain(getID(0)));
+        assertEquals(0, filter.getFalsePositiveRate());
+    }
+
+    /**
+     * Tests that false positive rates that aren't probabilities are rejected.
+     */
+    @Test
+    public final void testInvalidFalsePositiveRate() {
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(SIZE, 0));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(SIZE, 1));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(SIZE, Double.NaN));
+    }
+
+    /**
+     * Gets a test item identifier.
+     *
+     * @param aIndex The index of the identifier
+     * @return The identifier
+     */
+    private static String getID(final int aIndex) {
+        return "ark:/21198/z" + Integer.toString(aIndex, 32);
+    }
+}
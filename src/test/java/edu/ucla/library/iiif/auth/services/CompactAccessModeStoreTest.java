@@ -0,0 +1,157 @@
+
+package edu.ucla.library.iiif.auth.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import info.freelibrary.util.Logger;
+import info.freelibrary.util.LoggerFactory;
+
+import edu.ucla.library.iiif.auth.MessageCodes;
+
+/**
+ * Tests the {@link CompactAccessModeStore}.
+ */
+public class CompactAccessModeStoreTest {
+
+    /**
+     * The logger used by these tests.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(CompactAccessModeStoreTest.class, MessageCodes.BUNDLE);
+
+    /**
+     * The number of items to put in the store when measuring it.
+     */
+    private static final int ITEM_COUNT = 200_000;
+
+    /**
+     * Tests that every added item can be looked up, and that other items can't.
+     */
+    @Test
+    public final void testGet() {
+        final List<String> ids = List.of("ark:/21198/zz0009gx1v", "ark:/21198/z1k64nvn", "ark:/13030/m5br8stc",
+                "ark:/21198/", "no-slashes", "", "/", "ark:/21198/caf\u00E9", "ark:/21198/\uD83D\uDE00");
+        final CompactAccessModeStore.Builder builder = new CompactAccessModeStore.Builder();
+        final CompactAccessModeStore store;
+
+        for (int index = 0; index < ids.size(); index++) {
+            builder.add(ids.get(index), index % 3);
+        }
+
+        store = builder.build();
+
+        assertEquals(ids.size(), store.size());
+
+        for (int index = 0; index < ids.size(); index++) {
+            assertEquals(index % 3, store.get(ids.get(index)));
+        }
+
+        for (final String id : List.of("ark:/21198/zz0009gx1", "ark:/21198/zz0009gx1vv", "ark:/13030/zz0009gx1v",
+                "ark:/21198", "ark:/21198/cafe", "ark:/21198/\uD83D", "no-slashes/", "//")) {
+            assertEquals(CompactAccessModeStore.ABSENT, store.get(id), id);
+        }
+    }
+
+    /**
+     * Tests that the last access mode added for an item wins.
+     */
+    @Test
+    public final void testDuplicates() {
+        final CompactAccessModeStore store = new CompactAccessModeStore.Builder().add("ark:/21198/zz0009gx1v", 0)
+                .add("ark:/21198/z1k64nvn", 1).add("ark:/21198/zz0009gx1v", 2).build();
+
+        assertEquals(2, store.size());
+        assertEquals(2, store.get("ark:/21198/zz0009gx1v"));
+        assertEquals(1, store.get("ark:/21198/z1k64nvn"));
+    }
+
+    /**
+     * Tests that an empty store can be built and queried.
+     */
+    @Test
+    public final void testEmpty() {
+        final CompactAccessModeStore store = new CompactAccessModeStore.Builder().build();
+
+        assertEquals(0, store.size());
+        assertEquals(CompactAccessModeStore.ABSENT, store.get("ark:/21198/zz0009gx1v"));
+    }
+
+    /**
+     * Tests that access modes that don't fit in two bits are rejected.
+     */
+    @Test
+    public final void testInvalidAccessMode() {
+        final CompactAccessModeStore.Builder builder = new CompactAccessModeStore.Builder();
+
+        assertThrows(IllegalArgumentException.class, () -> builder.add("ark:/21198/zz0009gx1v", 4));
+        assertThrows(IllegalArgumentException.class, () -> builder.add("ark:/21198/zz0009gx1v", -1));
+    }
+
+    /**
+     * Tests that items are still found once the prefix dictionary is full.
+     */
+    @Test
+    public final void testFullPrefixDictionary() {
+        final CompactAccessModeStore.Builder builder = new CompactAccessModeStore.Builder();
+        final int count = CompactAccessModeStore.MAX_PREFIXES + 100;
+        final CompactAccessModeStore store;
+
+        for (int index = 0; index < count; index++) {
+            builder.add("ark:/" + index + "/item", index % 3);
+        }
+
+        store = builder.build();
+
+        for (int index = 0; index < count; index++) {
+            assertEquals(index % 3, store.get("ark:/" + index + "/item"));
+        }
+    }
+
+    /**
+     * Measures the memory used per item and the lookup latency with a realistic set of ARKs, and checks that the
+     * former is well under that of a {@code HashMap<String, Integer>}.
+     */
+    @Test
+    public final void testFootprint() {
+        final CompactAccessModeStore.Builder builder = new CompactAccessModeStore.Builder();
+        final String[] ids = new String[ITEM_COUNT];
+        final CompactAccessModeStore store;
+        final long startTime;
+        final long elapsedTime;
+        long checksum = 0;
+
+        for (int index = 0; index < ITEM_COUNT; index++) {
+            // ARK names like the ones we mint: a shoulder, then base-32 digits
+            ids[index] = "ark:/21198/z" + Long.toString(0x9E3779B97F4A7C15L * (index + 1) & (1L << 40) - 1, 32);
+            builder.add(ids[index], index % 3);
+        }
+
+        store = builder.build();
+
+        // Warm up, then time, a pass over every item
+        for (final String id : ids) {
+            checksum += store.get(id);
+        }
+
+        startTime = System.nanoTime();
+
+        for (final String id : ids) {
+            checksum += store.get(id);
+        }
+
+        elapsedTime = System.nanoTime() - startTime;
+
+        LOGGER.info(MessageCodes.AUTH_030, store.size(), String.format("%.1f", store.bytesPerItem()),
+                elapsedTime / ITEM_COUNT);
+
+        assertEquals(ITEM_COUNT, store.size());
+        assertTrue(checksum >= 0);
+        // These items come to just under 30 bytes each
+        assertTrue(store.bytesPerItem() < 31, Double.toString(store.bytesPerItem()));
+    }
+}
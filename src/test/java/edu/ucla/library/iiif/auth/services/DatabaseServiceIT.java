@@ -3,7 +3,21 @@ package edu.ucla.library.iiif.auth.services;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.csveed.api.CsvClient;
+import org.csveed.api.CsvClientImpl;
+import org.csveed.api.Row;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -13,8 +27,11 @@ import info.freelibrary.util.Logger;
 import info.freelibrary.util.LoggerFactory;
 import info.freelibrary.util.StringUtils;
 
+import edu.ucla.library.iiif.auth.Config;
 import edu.ucla.library.iiif.auth.Error;
 import edu.ucla.library.iiif.auth.MessageCodes;
+import edu.ucla.library.iiif.auth.RequestJsonKeys;
+import edu.ucla.library.iiif.auth.ResponseJsonKeys;
 
 import io.vertx.config.ConfigRetriever;
 import io.vertx.core.CompositeFuture;
@@ -24,6 +41,9 @@ import io.vertx.core.eventbus.MessageConsumer;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.junit5.VertxTestContext;
+import io.vertx.redis.client.Command;
+import io.vertx.redis.client.Redis;
+import io.vertx.redis.client.Request;
 import io.vertx.serviceproxy.ServiceBinder;
 import io.vertx.serviceproxy.ServiceException;
 
@@ -42,11 +62,22 @@ public class DatabaseServiceIT extends AbstractServiceTest {
      */
     private static final String NULL = "null";
 
+    /**
+     * The number of times each item in the CSV fixtures is copied for the throughput test, so that there's enough work
+     * for the timings to mean something.
+     */
+    private static final int CSV_ITEM_COPIES = 20;
+
     /**
      * The service proxy for testing typical client usage.
      */
     private DatabaseService myServiceProxy;
 
+    /**
+     * The application configuration.
+     */
+    private JsonObject myConfig;
+
     /**
      * Only used for event bus unregistration.
      */
@@ -70,6 +101,7 @@ public class DatabaseServiceIT extends AbstractServiceTest {
 
             // Now we can instantiate a proxy to the service
             myServiceProxy = DatabaseService.createProxy(aVertx);
+            myConfig = config;
 
             aContext.completeNow();
         }).onFailure(aContext::failNow);
@@ -161,7 +193,7 @@ public class DatabaseServiceIT extends AbstractServiceTest {
         final String items = StringUtils.format(
                 "[ { \"uid\": \"{}\", \"accessMode\": {} }, { \"uid\": \"{}\", \"accessMode\": {} } ]", id1, expected1,
                 id2, expected2);
-        final Future<Void> setItems = myServiceProxy.setItems(new JsonArray(items));
+        final Future<JsonObject> setItems = myServiceProxy.setItems(new JsonArray(items));
 
         setItems.compose(result -> {
             return CompositeFuture.all(myServiceProxy.getAccessMode(id1), myServiceProxy.getAccessMode(id2));
@@ -172,6 +204,64 @@ public class DatabaseServiceIT extends AbstractServiceTest {
         }).onFailure(aContext::failNow);
     }
 
+    /**
+     * Tests that setting items counts the ones that were inserted, updated, and left unchanged, whether they're set as
+     * a batch or in bulk.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    final void testSetItemsCounts(final Vertx aVertx, final VertxTestContext aContext) {
+        final DatabaseService bulkService =
+                DatabaseService.create(aVertx, myConfig.copy().put(Config.DB_BULK_LOAD_THRESHOLD, 0));
+        final JsonObject expected = new JsonObject().put(ResponseJsonKeys.INSERTED, 1)
+                .put(ResponseJsonKeys.UPDATED, 1).put(ResponseJsonKeys.UNCHANGED, 1);
+        @SuppressWarnings("rawtypes")
+        final List<Future> reimports = new ArrayList<>();
+
+        for (final DatabaseService service : List.of(myServiceProxy, bulkService)) {
+            final String prefix = service == bulkService ? "setItemsCountsBulk" : "setItemsCountsBatch";
+            final JsonArray items = new JsonArray() //
+                    .add(new JsonObject().put(RequestJsonKeys.UID, prefix + 1).put(RequestJsonKeys.ACCESS_MODE, 0))
+                    .add(new JsonObject().put(RequestJsonKeys.UID, prefix + 2).put(RequestJsonKeys.ACCESS_MODE, 0));
+            // One of the items is changed, one is left as it was, and one is new; the new one is listed twice
+            final JsonArray reimportedItems = new JsonArray() //
+                    .add(new JsonObject().put(RequestJsonKeys.UID, prefix + 1).put(RequestJsonKeys.ACCESS_MODE, 1))
+                    .add(new JsonObject().put(RequestJsonKeys.UID, prefix + 2).put(RequestJsonKeys.ACCESS_MODE, 0))
+                    .add(new JsonObject().put(RequestJsonKeys.UID, prefix + 3).put(RequestJsonKeys.ACCESS_MODE, 2))
+                    .add(new JsonObject().put(RequestJsonKeys.UID, prefix + 3).put(RequestJsonKeys.ACCESS_MODE, 2));
+
+            reimports.add(service.setItems(items).compose(result -> service.setItems(reimportedItems)));
+        }
+
+        CompositeFuture.all(reimports).onSuccess(results -> {
+            completeIfExpectedElseFail(List.of(results.<JsonObject>resultAt(0), results.<JsonObject>resultAt(1)),
+                    List.of(expected, expected), aContext);
+        }).onFailure(aContext::failNow).onComplete(result -> bulkService.close());
+    }
+
+    /**
+     * Tests getting the access modes of multiple items at once, including one that isn't in the database.
+     *
+     * @param aContext A test context
+     */
+    @Test
+    final void testGetAccessModes(final VertxTestContext aContext) {
+        final String id1 = "getAccessModes1";
+        final String id2 = "getAccessModes2";
+        final String unknownID = "getAccessModesUnknown";
+        final JsonObject expected = new JsonObject().put(id1, 0).put(id2, 2).putNull(unknownID);
+
+        // Look up the first item beforehand, so that the response combines cached and uncached access modes
+        myServiceProxy.setAccessMode(id1, 0).compose(result -> myServiceProxy.setAccessMode(id2, 2))
+                .compose(result -> myServiceProxy.getAccessMode(id1)).compose(result -> {
+                    return myServiceProxy.getAccessModes(new JsonArray().add(id1).add(unknownID).add(id2));
+                }).onSuccess(accessModes -> {
+                    completeIfExpectedElseFail(accessModes, expected, aContext);
+                }).onFailure(aContext::failNow);
+    }
+
     /**
      * Tests that setting multiple items at once fails if any of the item JSON objects are invalid.
      *
@@ -180,7 +270,7 @@ public class DatabaseServiceIT extends AbstractServiceTest {
     @Test
     final void testSetItemsInvalidItem(final VertxTestContext aContext) {
         final String itemsMissingAccessMode = "[ { \"uid\": \"setItemsInvalidItem\" } ]";
-        final Future<Void> setItems = myServiceProxy.setItems(new JsonArray(itemsMissingAccessMode));
+        final Future<JsonObject> setItems = myServiceProxy.setItems(new JsonArray(itemsMissingAccessMode));
 
         setItems.onFailure(details -> {
             final ServiceException error = (ServiceException) details;
@@ -194,6 +284,399 @@ public class DatabaseServiceIT extends AbstractServiceTest {
         });
     }
 
+    /**
+     * Compares the throughput of setting a large list of items as a batch with that of setting it in bulk, using the
+     * items in the CSV fixtures, and checks that both leave the same access modes behind.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    final void testSetItemsThroughput(final Vertx aVertx, final VertxTestContext aContext) {
+        final DatabaseService batchService =
+                DatabaseService.create(aVertx, myConfig.copy().put(Config.DB_BULK_LOAD_THRESHOLD, Integer.MAX_VALUE));
+        final DatabaseService bulkService =
+                DatabaseService.create(aVertx, myConfig.copy().put(Config.DB_BULK_LOAD_THRESHOLD, 0));
+        final JsonArray batchItems;
+        final JsonArray bulkItems;
+
+        try {
+            batchItems = getCsvItems("batch");
+            bulkItems = getCsvItems("bulk");
+        } catch (final IOException details) {
+            aContext.failNow(details);
+            return;
+        }
+
+        timeSetItems(batchService, batchItems, "batch of upserts").compose(batch -> {
+            return timeSetItems(bulkService, bulkItems, "bulk upsert");
+        }).compose(bulk -> {
+            final JsonArray ids = new JsonArray();
+            final JsonObject expected = new JsonObject();
+
+            // Compare the last item set each way, since it's the one most likely to have been missed
+            for (final JsonArray items : List.of(batchItems, bulkItems)) {
+                final JsonObject item = items.getJsonObject(items.size() - 1);
+
+                ids.add(item.getString(RequestJsonKeys.UID));
+                expected.put(item.getString(RequestJsonKeys.UID), item.getInteger(RequestJsonKeys.ACCESS_MODE));
+            }
+
+            return myServiceProxy.getAccessModes(ids).onSuccess(accessModes -> {
+                completeIfExpectedElseFail(accessModes, expected, aContext);
+            });
+        }).onFailure(aContext::failNow).onComplete(result -> {
+            batchService.close();
+            bulkService.close();
+        });
+    }
+
+    /**
+     * Tests that a change made through one instance of the service is seen by another instance that has already cached
+     * the item's previous access mode.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    final void testGetAccessModeChangedElsewhere(final Vertx aVertx, final VertxTestContext aContext) {
+        final String id = "changedElsewhere";
+        final int expected = 2;
+        final DatabaseService otherService = DatabaseService.create(aVertx, myConfig);
+
+        myServiceProxy.setAccessMode(id, 0).compose(put -> otherService.getAccessMode(id)).compose(cached -> {
+            return myServiceProxy.setAccessMode(id, expected);
+        }).compose(put -> awaitAccessMode(aVertx, otherService, id, expected, 50)).onSuccess(result -> {
+            otherService.close().onComplete(close -> completeIfExpectedElseFail(result, expected, aContext));
+        }).onFailure(aContext::failNow);
+    }
+
+    /**
+     * Tests that concurrent lookups of the same item share a single lookup, and that they all get its result.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    final void testGetAccessModeCoalesced(final Vertx aVertx, final VertxTestContext aContext) {
+        final String id = "coalesced";
+        final int expected = 1;
+        final int lookupCount = 10;
+        final DatabaseService otherService = DatabaseService.create(aVertx, myConfig);
+
+        myServiceProxy.setAccessMode(id, expected).compose(put -> {
+            @SuppressWarnings("rawtypes")
+            final List<Future> lookups = new ArrayList<>();
+
+            // None of these can finish before the last one starts, since they all have to go to the network
+            for (int index = 0; index < lookupCount; index++) {
+                lookups.add(otherService.getAccessMode(id));
+            }
+
+            return CompositeFuture.all(lookups);
+        }).compose(lookups -> {
+            for (int index = 0; index < lookupCount; index++) {
+                if (lookups.<Integer>resultAt(index) != expected) {
+                    return Future.failedFuture(LOGGER.getMessage(MessageCodes.AUTH_007, lookups.resultAt(index),
+                            expected));
+                }
+            }
+
+            return otherService.getMetrics();
+        }).onSuccess(metrics -> {
+            otherService.close().onComplete(close -> {
+                completeIfExpectedElseFail(metrics.getLong(ResponseJsonKeys.COALESCED_LOOKUPS),
+                        (long) lookupCount - 1, aContext);
+            });
+        }).onFailure(aContext::failNow);
+    }
+
+    /**
+     * Tests that once the item filter has loaded, it answers lookups of unknown items, and that items added afterwards
+     * are still found.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    final void testGetAccessModeFiltered(final Vertx aVertx, final VertxTestContext aContext) {
+        final String id = "filtered";
+        final int expected = 2;
+        final JsonObject config = myConfig.copy().put(Config.ITEM_FILTER_ENABLED, true)
+                .put(Config.NOT_FOUND_CACHE_TTL, 0);
+        final DatabaseService otherService = DatabaseService.create(aVertx, config);
+
+        awaitFilteredLookup(aVertx, otherService, 50).compose(filtered -> {
+            return otherService.setAccessMode(id, expected);
+        }).compose(put -> otherService.getAccessMode(id)).onSuccess(result -> {
+            otherService.close().onComplete(close -> completeIfExpectedElseFail(result, expected, aContext));
+        }).onFailure(aContext::failNow);
+    }
+
+    /**
+     * Tests that a lookup whose read from the database is overtaken by a write on another instance doesn't put the old
+     * access mode back in the database cache, where it would be served everywhere until it expired.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    final void testGetAccessModeOvertakenByWrite(final Vertx aVertx, final VertxTestContext aContext) {
+        final String id = "overtakenByWrite";
+        final String key = DatabaseServiceImpl.ACCESS_MODE_KEY_PREFIX + id;
+        final int expected = 1;
+        final Redis dbCache = getDbCacheClient(aVertx);
+        // Without the in-process caches, the database cache is the only place the old access mode could be left
+        final JsonObject config =
+                myConfig.copy().put(Config.ACCESS_MODE_CACHE_TTL, 0).put(Config.NOT_FOUND_CACHE_TTL, 0);
+        final DatabaseServiceImpl slowService = new DatabaseServiceImpl(aVertx, config) {
+
+            @Override
+            Future<Integer> selectAccessMode(final String aID) {
+                // The write lands after the read but before it's cached, and its change notification has time to
+                // remove the item from the database cache again
+                return super.selectAccessMode(aID).compose(accessMode -> {
+                    return myServiceProxy.setAccessMode(aID, expected)
+                            .compose(put -> Future.<Void>future(promise -> {
+                                aVertx.setTimer(100, timerID -> promise.complete());
+                            })).map(accessMode);
+                });
+            }
+        };
+
+        myServiceProxy.setAccessMode(id, 0).compose(put -> dbCache.send(Request.cmd(Command.DEL).arg(key)))
+                .compose(deleted -> slowService.getAccessMode(id))
+                .compose(stale -> Future.<Void>future(promise -> aVertx.setTimer(100, timerID -> promise.complete())))
+                .compose(wait -> dbCache.send(Request.cmd(Command.GET).arg(key))).onSuccess(cached -> {
+                    aContext.verify(() -> {
+                        // The write-through may be gone by now, but it mustn't have been replaced by what was read
+                        if (cached != null) {
+                            assertEquals(expected, cached.toInteger());
+                        }
+
+                        aContext.completeNow();
+                    });
+                }).onFailure(aContext::failNow).onComplete(result -> {
+                    slowService.close();
+                    dbCache.close();
+                });
+    }
+
+    /**
+     * Tests that setting an item removes it from the database cache, even if its access mode doesn't change, so that a
+     * value that failed to be replaced there can't outlive the next write.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    final void testSetAccessModeUncachesItem(final Vertx aVertx, final VertxTestContext aContext) {
+        final String id = "uncachedBySet";
+        final String key = DatabaseServiceImpl.ACCESS_MODE_KEY_PREFIX + id;
+        final Redis dbCache = getDbCacheClient(aVertx);
+
+        myServiceProxy.setAccessMode(id, 1).compose(put -> dbCache.send(Request.cmd(Command.SET).arg(key).arg(0)))
+                .compose(stale -> myServiceProxy.setAccessMode(id, 1))
+                .compose(put -> dbCache.send(Request.cmd(Command.GET).arg(key))).onSuccess(cached -> {
+                    completeIfExpectedElseFail(cached == null ? NULL : cached.toString(), NULL, aContext);
+                }).onFailure(aContext::failNow).onComplete(result -> dbCache.close());
+    }
+
+    /**
+     * Tests that a lookup that an item is set during doesn't leave the old access mode in the in-process cache.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    final void testGetAccessModeSetDuringLookup(final Vertx aVertx, final VertxTestContext aContext) {
+        final String id = "setDuringLookup";
+        final int expected = 2;
+        final AtomicBoolean isDelayed = new AtomicBoolean(true);
+        // Without the database cache, the in-process cache is the only place the old access mode could be left
+        final JsonObject config = myConfig.copy().put(Config.DB_CACHE_TTL, 0);
+        final DatabaseServiceImpl slowService = new DatabaseServiceImpl(aVertx, config) {
+
+            @Override
+            Future<Integer> selectAccessMode(final String aID) {
+                // The first lookup's read is followed by a set before the lookup finishes
+                if (isDelayed.compareAndSet(true, false)) {
+                    return super.selectAccessMode(aID)
+                            .compose(accessMode -> setAccessMode(aID, expected).map(accessMode));
+                }
+                return super.selectAccessMode(aID);
+            }
+        };
+
+        myServiceProxy.setAccessMode(id, 0).compose(put -> slowService.getAccessMode(id))
+                .compose(stale -> slowService.getAccessMode(id)).onSuccess(result -> {
+                    completeIfExpectedElseFail(result, expected, aContext);
+                }).onFailure(aContext::failNow).onComplete(result -> slowService.close());
+    }
+
+    /**
+     * Tests that a lookup that doesn't find an item that's inserted before the lookup finishes doesn't leave the item
+     * in the cache of items that weren't found.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    final void testGetAccessModeInsertedDuringLookup(final Vertx aVertx, final VertxTestContext aContext) {
+        final String id = "insertedDuringLookup";
+        final int expected = 1;
+        final AtomicBoolean isDelayed = new AtomicBoolean(true);
+        final DatabaseServiceImpl slowService = new DatabaseServiceImpl(aVertx, myConfig) {
+
+            @Override
+            Future<Integer> selectAccessMode(final String aID) {
+                // The first lookup's read is followed by an insert before the lookup finishes
+                if (isDelayed.compareAndSet(true, false)) {
+                    return super.selectAccessMode(aID).recover(error -> {
+                        return setAccessMode(aID, expected).compose(put -> Future.<Integer>failedFuture(error));
+                    });
+                }
+                return super.selectAccessMode(aID);
+            }
+        };
+
+        slowService.getAccessMode(id).compose(accessMode -> {
+            return Future.<Integer>failedFuture(LOGGER.getMessage(MessageCodes.AUTH_007, accessMode, NULL));
+        }, notFound -> slowService.getAccessMode(id)).onSuccess(result -> {
+            completeIfExpectedElseFail(result, expected, aContext);
+        }).onFailure(aContext::failNow).onComplete(result -> slowService.close());
+    }
+
+    /**
+     * Looks up an unknown item until the lookup is answered by the item filter or we run out of attempts.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aService A database service with the item filter enabled
+     * @param aAttempts The number of attempts remaining
+     * @return A Future that succeeds once a lookup has been answered by the item filter
+     */
+    private Future<Void> awaitFilteredLookup(final Vertx aVertx, final DatabaseService aService, final int aAttempts) {
+        return aService.getAccessMode("filteredUnknown").compose(accessMode -> {
+            return Future.<JsonObject>failedFuture(LOGGER.getMessage(MessageCodes.AUTH_007, accessMode, NULL));
+        }, error -> aService.getMetrics()).compose(metrics -> {
+            if (metrics.getLong(ResponseJsonKeys.FILTERED_LOOKUPS, 0L) > 0) {
+                return Future.succeededFuture();
+            }
+
+            if (aAttempts <= 1) {
+                return Future.failedFuture(metrics.encode());
+            }
+
+            return Future.<Void>future(promise -> aVertx.setTimer(100, timerID -> promise.complete()))
+                    .compose(wait -> awaitFilteredLookup(aVertx, aService, aAttempts - 1));
+        });
+    }
+
+    /**
+     * Sets a list of items and logs how long it took.
+     *
+     * @param aService A database service
+     * @param aItems A list of items
+     * @param aMethod A description of the way the service sets them
+     * @return A Future that resolves to the numbers of items that were inserted, updated, and left unchanged once the
+     *         items have been set
+     */
+    private static Future<JsonObject> timeSetItems(final DatabaseService aService, final JsonArray aItems,
+            final String aMethod) {
+        final long start = System.nanoTime();
+
+        return aService.setItems(aItems).onSuccess(result -> {
+            final long millis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+            LOGGER.info(MessageCodes.AUTH_048, aItems.size(), aMethod, millis, aItems.size() * 1000L / millis);
+        });
+    }
+
+    /**
+     * Gets the items in the CSV fixtures, each copied {@link #CSV_ITEM_COPIES} times under a distinct ID.
+     *
+     * @param aPrefix A prefix for the IDs, so that different tests don't set the same items
+     * @return A list of items
+     * @throws IOException If the CSV fixtures can't be read
+     */
+    private static JsonArray getCsvItems(final String aPrefix) throws IOException {
+        final JsonArray items = new JsonArray();
+        final List<Path> csvPaths;
+
+        try (Stream<Path> paths = Files.walk(Path.of("src/test/resources/csv/"))) {
+            csvPaths = paths.filter(path -> path.toFile().isFile()).collect(Collectors.toList());
+        }
+
+        for (final Path csvPath : csvPaths) {
+            try (Reader reader = Files.newBufferedReader(csvPath, StandardCharsets.UTF_8)) {
+                final CsvClient<Row> client = new CsvClientImpl<Row>(reader).setSeparator(',').setUseHeader(true);
+
+                for (final Row row : client.readRows()) {
+                    final int accessMode = getAccessMode(row.get("Visibility"));
+
+                    for (int copy = 0; copy < CSV_ITEM_COPIES; copy++) {
+                        items.add(new JsonObject().put(RequestJsonKeys.UID, aPrefix + copy + ":" + row.get("Item ARK"))
+                                .put(RequestJsonKeys.ACCESS_MODE, accessMode));
+                    }
+                }
+            }
+        }
+
+        return items;
+    }
+
+    /**
+     * Gets the access mode that corresponds to a Visibility field value.
+     *
+     * @param aVisibility A Visibility field value
+     * @return The access mode
+     */
+    private static int getAccessMode(final String aVisibility) {
+        switch (aVisibility) {
+            case "open":
+                return 0;
+            case "sinai":
+                return 2;
+            default:
+                return 1;
+        }
+    }
+
+    /**
+     * Polls a service for an item's access mode until it has the expected value or we run out of attempts.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aService A database service
+     * @param aID An item identifier
+     * @param aExpected The expected access mode
+     * @param aAttempts The number of attempts remaining
+     * @return A Future that resolves to the last access mode that was read
+     */
+    private Future<Integer> awaitAccessMode(final Vertx aVertx, final DatabaseService aService, final String aID,
+            final int aExpected, final int aAttempts) {
+        return aService.getAccessMode(aID).compose(accessMode -> {
+            if (accessMode == aExpected || aAttempts <= 1) {
+                return Future.succeededFuture(accessMode);
+            }
+
+            return Future.<Void>future(promise -> aVertx.setTimer(100, timerID -> promise.complete()))
+                    .compose(wait -> awaitAccessMode(aVertx, aService, aID, aExpected, aAttempts - 1));
+        });
+    }
+
+    /**
+     * Creates a client of the database cache that the services under test use.
+     *
+     * @param aVertx A Vert.x instance
+     * @return A database cache client
+     */
+    private Redis getDbCacheClient(final Vertx aVertx) {
+        final String host = myConfig.getString(Config.DB_CACHE_HOST, "localhost");
+        final int port = myConfig.getInteger(Config.DB_CACHE_PORT, 6379);
+
+        return Redis.createClient(aVertx, StringUtils.format("redis://{}:{}", host, port));
+    }
+
     /**
      * Helper method logger.
      *
@@ -0,0 +1,219 @@
+
+package edu.ucla.library.iiif.auth.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import info.freelibrary.util.Logger;
+import info.freelibrary.util.LoggerFactory;
+
+import edu.ucla.library.iiif.auth.MessageCodes;
+
+import io.vertx.config.ConfigRetriever;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.junit5.VertxTestContext;
+import io.vertx.serviceproxy.ServiceBinder;
+
+/**
+ * Compares the latency of calls to the services that are made through service proxies with that of direct calls, for
+ * the calls behind the <code>/access/{id}</code> and <code>/token</code> endpoints.
+ */
+public class DirectServiceCallIT extends AbstractServiceTest {
+
+    /**
+     * The logger used by these tests.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(DirectServiceCallIT.class, MessageCodes.BUNDLE);
+
+    /**
+     * The number of calls that are made before timing starts.
+     */
+    private static final int WARM_UP_CALLS = 1_000;
+
+    /**
+     * The number of calls that are timed.
+     */
+    private static final int TIMED_CALLS = 5_000;
+
+    /**
+     * A test item identifier.
+     */
+    private static final String ID = "ark:/21198/direct";
+
+    /**
+     * A test client IP address.
+     */
+    private static final String CLIENT_IP_ADDRESS = "127.0.0.1";
+
+    /**
+     * The database service.
+     */
+    private DatabaseServiceImpl myDatabaseService;
+
+    /**
+     * The access cookie service.
+     */
+    private AccessCookieService myAccessCookieService;
+
+    /**
+     * The services' event bus registrations.
+     */
+    private Set<MessageConsumer<?>> myEventBusServices;
+
+    /**
+     * Sets up the test.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @BeforeEach
+    public final void setUp(final Vertx aVertx, final VertxTestContext aContext) {
+        ConfigRetriever.create(aVertx).getConfig().compose(config -> {
+            final ServiceBinder binder = new ServiceBinder(aVertx);
+
+            try {
+                myAccessCookieService = AccessCookieService.create(config);
+            } catch (final GeneralSecurityException details) {
+                return Future.failedFuture(details);
+            }
+
+            myDatabaseService = new DatabaseServiceImpl(aVertx, config);
+            myEventBusServices = Set.of(
+                    binder.setAddress(AccessCookieService.ADDRESS).register(AccessCookieService.class,
+                            myAccessCookieService),
+                    binder.setAddress(DatabaseService.ADDRESS).register(DatabaseService.class, myDatabaseService));
+
+            return myDatabaseService.ready().compose(unused -> myDatabaseService.setAccessMode(ID, 0));
+        }).onSuccess(unused -> aContext.completeNow()).onFailure(aContext::failNow);
+    }
+
+    /**
+     * Tears down the test.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @AfterEach
+    public final void tearDown(final Vertx aVertx, final VertxTestContext aContext) {
+        @SuppressWarnings("rawtypes")
+        final List<Future> unregistrations = new ArrayList<>();
+
+        myEventBusServices.forEach(service -> unregistrations.add(service.unregister()));
+
+        CompositeFuture.all(unregistrations).compose(unused -> myDatabaseService.close())
+                .onSuccess(unused -> aContext.completeNow()).onFailure(aContext::failNow);
+    }
+
+    /**
+     * Compares the latency of access mode lookups, which are what <code>/access/{id}</code> makes.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    public final void testGetAccessMode(final Vertx aVertx, final VertxTestContext aContext) {
+        final DatabaseService proxy = DatabaseService.createProxy(aVertx);
+
+        compare("getAccessMode", () -> proxy.getAccessMode(ID), () -> myDatabaseService.getAccessMode(ID))
+                .onSuccess(unused -> aContext.completeNow()).onFailure(aContext::failNow);
+    }
+
+    /**
+     * Compares the latency of access cookie decryption, which is what <code>/token</code> does.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    public final void testDecryptCookie(final Vertx aVertx, final VertxTestContext aContext) {
+        final AccessCookieService proxy = AccessCookieService.createProxy(aVertx);
+
+        myAccessCookieService.generateCookie(CLIENT_IP_ADDRESS, true).compose(cookie -> {
+            return compare("decryptCookie", () -> proxy.decryptCookie(cookie, CLIENT_IP_ADDRESS),
+                    () -> myAccessCookieService.decryptCookie(cookie, CLIENT_IP_ADDRESS));
+        }).onSuccess(unused -> aContext.completeNow()).onFailure(aContext::failNow);
+    }
+
+    /**
+     * Times calls made through a service proxy and calls made directly, checks that both get the same result, and logs
+     * the average latency of each.
+     *
+     * @param aName The name of the service method
+     * @param aProxyCall A call through a service proxy
+     * @param aDirectCall The same call, made directly
+     * @return A Future that succeeds once both kinds of call have been timed
+     */
+    private static Future<Void> compare(final String aName, final Supplier<Future<?>> aProxyCall,
+            final Supplier<Future<?>> aDirectCall) {
+        return CompositeFuture.all(aProxyCall.get(), aDirectCall.get()).compose(results -> {
+            assertEquals(results.resultAt(0), results.resultAt(1));
+
+            return time(aProxyCall).compose(proxyTime -> time(aDirectCall).map(directTime -> {
+                LOGGER.info(MessageCodes.AUTH_033, aName, proxyTime / 1_000.0 / TIMED_CALLS,
+                        directTime / 1_000.0 / TIMED_CALLS);
+                return null;
+            }));
+        });
+    }
+
+    /**
+     * Makes a call repeatedly, one after another, and times the calls after the warm-up ones.
+     *
+     * @param aCall A service call
+     * @return A Future that resolves to the number of nanoseconds that the timed calls took
+     */
+    private static Future<Long> time(final Supplier<Future<?>> aCall) {
+        final Promise<Void> warmUp = Promise.promise();
+
+        repeat(aCall, WARM_UP_CALLS, warmUp);
+
+        return warmUp.future().compose(unused -> {
+            final Promise<Void> timedCalls = Promise.promise();
+            final long start = System.nanoTime();
+
+            repeat(aCall, TIMED_CALLS, timedCalls);
+
+            return timedCalls.future().map(done -> System.nanoTime() - start);
+        });
+    }
+
+    /**
+     * Makes a call repeatedly, starting each call once the previous one has completed.
+     *
+     * @param aCall A service call
+     * @param aCount The number of calls to make
+     * @param aPromise A promise that is completed after the last call
+     */
+    private static void repeat(final Supplier<Future<?>> aCall, final int aCount, final Promise<Void> aPromise) {
+        // Loop over calls that complete immediately, so that direct calls don't grow the stack
+        for (int remaining = aCount; remaining > 0; remaining--) {
+            final Future<?> call = aCall.get();
+            final int next = remaining - 1;
+
+            if (!call.isComplete()) {
+                call.onSuccess(result -> repeat(aCall, next, aPromise)).onFailure(aPromise::fail);
+                return;
+            }
+
+            if (call.failed()) {
+                aPromise.fail(call.cause());
+                return;
+            }
+        }
+
+        aPromise.complete();
+    }
+}
@@ -0,0 +1,56 @@
+
+package edu.ucla.library.iiif.auth.services;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the {@link ItemVersions}.
+ */
+public class ItemVersionsTest {
+
+    /**
+     * A test item ID.
+     */
+    private static final String ID_1 = "ark:/21198/00000000";
+
+    /**
+     * A test item ID.
+     */
+    private static final String ID_2 = "ark:/21198/11111111";
+
+    /**
+     * Tests that an item's version only changes when it's incremented.
+     */
+    @Test
+    public final void testIncrement() {
+        final ItemVersions versions = new ItemVersions();
+        final long version = versions.get(ID_1);
+
+        assertTrue(versions.isCurrent(ID_1, version));
+
+        versions.incrementAll(List.of(ID_1));
+
+        assertFalse(versions.isCurrent(ID_1, version));
+        assertTrue(versions.isCurrent(ID_1, versions.get(ID_1)));
+    }
+
+    /**
+     * Tests that incrementing every version changes the version of every item.
+     */
+    @Test
+    public final void testIncrementAll() {
+        final ItemVersions versions = new ItemVersions();
+        final long version1 = versions.get(ID_1);
+        final long version2 = versions.get(ID_2);
+
+        versions.incrementAll();
+
+        assertFalse(versions.isCurrent(ID_1, version1));
+        assertFalse(versions.isCurrent(ID_2, version2));
+    }
+}
@@ -0,0 +1,107 @@
+
+package edu.ucla.library.iiif.auth.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import edu.ucla.library.iiif.auth.Error;
+import edu.ucla.library.iiif.auth.RequestJsonKeys;
+import edu.ucla.library.iiif.auth.ResponseJsonKeys;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.serviceproxy.ServiceException;
+import io.vertx.sqlclient.Tuple;
+
+/**
+ * Tests the {@link ItemsDecoder}.
+ */
+public class ItemsDecoderTest {
+
+    /**
+     * A test item ID.
+     */
+    private static final String TEST_ID = "ark:/21198/decoder";
+
+    /**
+     * Tests that well-formed items are decoded into tuples, in order.
+     */
+    @Test
+    public final void testDecode() {
+        final JsonArray items = new JsonArray() //
+                .add(getItem(TEST_ID + 0, 0)) //
+                .add(getItem(TEST_ID + 1, 2)) //
+                .add(new JsonArray("[ { \"uid\": \"" + TEST_ID + 2 + "\", \"accessMode\": 1 } ]").getValue(0));
+        final List<Tuple> tuples = ItemsDecoder.decode(items);
+
+        assertEquals(3, tuples.size());
+
+        for (int index = 0; index < tuples.size(); index++) {
+            assertEquals(TEST_ID + index, tuples.get(index).getString(0));
+        }
+
+        assertEquals(0, tuples.get(0).getInteger(1));
+        assertEquals(2, tuples.get(1).getInteger(1));
+        assertEquals(1, tuples.get(2).getInteger(1));
+        assertEquals(0, ItemsDecoder.decode(new JsonArray()).size());
+    }
+
+    /**
+     * Tests that each malformed item is reported by its position.
+     */
+    @Test
+    public final void testDecodeMalformed() {
+        final JsonArray items = new JsonArray() //
+                .add(getItem(TEST_ID, 0)) //
+                .add(new JsonObject().put(RequestJsonKeys.UID, TEST_ID)) //
+                .add(new JsonObject().put(RequestJsonKeys.ACCESS_MODE, 0)) //
+                .add(getItem(TEST_ID, 0).put(RequestJsonKeys.UID, 1)) //
+                .add(getItem(TEST_ID, 3)) //
+                .add(getItem(TEST_ID, 0).put(RequestJsonKeys.ACCESS_MODE, 1.5)) //
+                .add(getItem(TEST_ID, 0).put(RequestJsonKeys.ACCESS_MODE, "1")) //
+                .add(getItem(TEST_ID, 0).put("extra", true)) //
+                .add(getItem(TEST_ID, 0).putNull(RequestJsonKeys.UID)) //
+                .add(TEST_ID) //
+                .add(getItem(TEST_ID, 1));
+        final ServiceException error = assertThrows(ServiceException.class, () -> ItemsDecoder.decode(items));
+        final JsonArray errors = error.getDebugInfo().getJsonArray(ResponseJsonKeys.ERRORS);
+
+        assertEquals(Error.MALFORMED_INPUT_DATA.ordinal(), error.failureCode());
+        assertEquals(9, errors.size());
+
+        for (int index = 0; index < errors.size(); index++) {
+            // Only the first and last items are well-formed
+            assertEquals(index + 1, errors.getJsonObject(index).getInteger(ResponseJsonKeys.INDEX));
+        }
+    }
+
+    /**
+     * Tests that no more than the maximum number of malformed items are reported.
+     */
+    @Test
+    public final void testDecodeMaxErrors() {
+        final JsonArray items = new JsonArray();
+
+        for (int index = 0; index < ItemsDecoder.MAX_ERRORS * 2; index++) {
+            items.add(getItem(TEST_ID, -1));
+        }
+
+        assertEquals(ItemsDecoder.MAX_ERRORS, assertThrows(ServiceException.class, () -> ItemsDecoder.decode(items))
+                .getDebugInfo().getJsonArray(ResponseJsonKeys.ERRORS).size());
+    }
+
+    /**
+     * Creates an item.
+     *
+     * @param aID The item's ID
+     * @param anAccessMode The item's access mode
+     * @return The item
+     */
+    private static JsonObject getItem(final String aID, final int anAccessMode) {
+        return new JsonObject().put(RequestJsonKeys.UID, aID).put(RequestJsonKeys.ACCESS_MODE, anAccessMode);
+    }
+}
@@ -0,0 +1,240 @@
+
+package edu.ucla.library.iiif.auth.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import info.freelibrary.util.StringUtils;
+
+import edu.ucla.library.iiif.auth.Error;
+import edu.ucla.library.iiif.auth.RequestJsonKeys;
+import edu.ucla.library.iiif.auth.ResponseJsonKeys;
+import edu.ucla.library.iiif.auth.services.ItemsJobQueue.Status;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import io.vertx.serviceproxy.ServiceException;
+
+/**
+ * Tests the {@link ItemsJobQueue}.
+ */
+@ExtendWith(VertxExtension.class)
+public class ItemsJobQueueTest {
+
+    /**
+     * The number of items in a test job.
+     */
+    private static final int ITEM_COUNT = 25;
+
+    /**
+     * The number of items that a test job sets at once.
+     */
+    private static final int CHUNK_SIZE = 10;
+
+    /**
+     * The number of seconds that a finished test job is remembered for.
+     */
+    private static final long RETENTION = 60;
+
+    /**
+     * Tests that a job sets its items in chunks and reports its progress.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    public final void testJob(final Vertx aVertx, final VertxTestContext aContext) {
+        final List<Integer> chunkSizes = new ArrayList<>();
+        final ItemsJobQueue queue = new ItemsJobQueue(aVertx, 1, CHUNK_SIZE, RETENTION, chunk -> {
+            chunkSizes.add(chunk.size());
+            return Future.succeededFuture(getCounts(chunk.size()));
+        });
+        final String id = queue.submit(getItems(ITEM_COUNT));
+
+        awaitFinished(aVertx, queue, id).onSuccess(status -> {
+            aContext.verify(() -> {
+                assertEquals(id, status.getString(ResponseJsonKeys.ID));
+                assertEquals(Status.SUCCEEDED.name(), status.getString(ResponseJsonKeys.STATUS));
+                assertEquals(ITEM_COUNT, status.getInteger(ResponseJsonKeys.TOTAL));
+                assertEquals(ITEM_COUNT, status.getInteger(ResponseJsonKeys.PROCESSED));
+                // Each of the three chunks has one updated item and two unchanged ones
+                assertEquals(ITEM_COUNT - 6, status.getInteger(ResponseJsonKeys.CHANGED));
+                assertEquals(ITEM_COUNT - 9, status.getInteger(ResponseJsonKeys.INSERTED));
+                assertEquals(3, status.getInteger(ResponseJsonKeys.UPDATED));
+                assertEquals(6, status.getInteger(ResponseJsonKeys.UNCHANGED));
+                assertEquals(0, status.getInteger(ResponseJsonKeys.FAILED));
+                assertEquals(new JsonArray(), status.getJsonArray(ResponseJsonKeys.ERRORS));
+                assertEquals(List.of(10, 10, 5), chunkSizes);
+
+                aContext.completeNow();
+            });
+        }).onFailure(aContext::failNow);
+    }
+
+    /**
+     * Tests that a chunk that can't be set is recorded as an error, and doesn't stop the job.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    public final void testFailedChunk(final Vertx aVertx, final VertxTestContext aContext) {
+        final String message = "Malformed item";
+        final List<Integer> chunkSizes = new ArrayList<>();
+        final ItemsJobQueue queue = new ItemsJobQueue(aVertx, 1, CHUNK_SIZE, RETENTION, chunk -> {
+            chunkSizes.add(chunk.size());
+
+            // The second chunk fails
+            if (chunkSizes.size() == 2) {
+                return Future.failedFuture(new ServiceException(Error.MALFORMED_INPUT_DATA.ordinal(), message));
+            }
+            return Future.succeededFuture(getCounts(chunk.size()));
+        });
+        final String id = queue.submit(getItems(ITEM_COUNT));
+
+        awaitFinished(aVertx, queue, id).onSuccess(status -> {
+            aContext.verify(() -> {
+                final JsonObject error = new JsonObject().put(ResponseJsonKeys.FROM, 10).put(ResponseJsonKeys.TO, 19)
+                        .put(ResponseJsonKeys.ERROR, Error.MALFORMED_INPUT_DATA.name())
+                        .put(ResponseJsonKeys.MESSAGE, message);
+
+                assertEquals(Status.FAILED.name(), status.getString(ResponseJsonKeys.STATUS));
+                assertEquals(ITEM_COUNT, status.getInteger(ResponseJsonKeys.PROCESSED));
+                assertEquals(ITEM_COUNT - CHUNK_SIZE - 4, status.getInteger(ResponseJsonKeys.CHANGED));
+                assertEquals(CHUNK_SIZE, status.getInteger(ResponseJsonKeys.FAILED));
+                assertEquals(new JsonArray().add(error),
+                        new JsonArray(status.getJsonArray(ResponseJsonKeys.ERRORS).encode()));
+                assertEquals(List.of(10, 10, 5), chunkSizes);
+
+                aContext.completeNow();
+            });
+        }).onFailure(aContext::failNow);
+    }
+
+    /**
+     * Tests that no more than the maximum number of jobs run at once.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    public final void testConcurrency(final Vertx aVertx, final VertxTestContext aContext) {
+        final List<Promise<JsonObject>> chunks = new CopyOnWriteArrayList<>();
+        final ItemsJobQueue queue = new ItemsJobQueue(aVertx, 1, CHUNK_SIZE, RETENTION, chunk -> {
+            final Promise<JsonObject> promise = Promise.promise();
+
+            chunks.add(promise);
+            return promise.future();
+        });
+        final String first = queue.submit(getItems(CHUNK_SIZE));
+        final String second = queue.submit(getItems(CHUNK_SIZE));
+
+        aContext.verify(() -> {
+            assertEquals(Status.RUNNING.name(), queue.getStatus(first).getString(ResponseJsonKeys.STATUS));
+            assertEquals(Status.QUEUED.name(), queue.getStatus(second).getString(ResponseJsonKeys.STATUS));
+            assertEquals(1, chunks.size());
+        });
+
+        chunks.get(0).complete(getCounts(CHUNK_SIZE));
+
+        // The second job starts setting its items once the first has finished
+        await(aVertx, () -> chunks.size() == 2).onSuccess(unused -> {
+            aContext.verify(() -> {
+                assertEquals(Status.SUCCEEDED.name(), queue.getStatus(first).getString(ResponseJsonKeys.STATUS));
+                assertEquals(Status.RUNNING.name(), queue.getStatus(second).getString(ResponseJsonKeys.STATUS));
+
+                aContext.completeNow();
+            });
+        }).onFailure(aContext::failNow);
+    }
+
+    /**
+     * Tests that there's no status for a job that doesn't exist.
+     *
+     * @param aVertx A Vert.x instance
+     */
+    @Test
+    public final void testUnknownJob(final Vertx aVertx) {
+        assertNull(new ItemsJobQueue(aVertx, 1, CHUNK_SIZE, RETENTION, chunk -> Future.succeededFuture(getCounts(0)))
+                .getStatus("unknown"));
+    }
+
+    /**
+     * Creates a list of items to set.
+     *
+     * @param aCount The number of items
+     * @return The items
+     */
+    private static JsonArray getItems(final int aCount) {
+        final JsonArray items = new JsonArray();
+
+        for (int index = 0; index < aCount; index++) {
+            items.add(new JsonObject().put(RequestJsonKeys.UID, StringUtils.format("ark:/21198/{}", index))
+                    .put(RequestJsonKeys.ACCESS_MODE, 0));
+        }
+
+        return items;
+    }
+
+    /**
+     * Creates the result of setting a chunk of items, of which one is updated, two are left unchanged, and the rest are
+     * inserted.
+     *
+     * @param aCount The number of items in the chunk
+     * @return The numbers of items that were inserted, updated, and left unchanged
+     */
+    private static JsonObject getCounts(final int aCount) {
+        final int updated = Math.min(1, aCount);
+        final int unchanged = Math.min(2, aCount - updated);
+
+        return new JsonObject().put(ResponseJsonKeys.INSERTED, aCount - updated - unchanged)
+                .put(ResponseJsonKeys.UPDATED, updated).put(ResponseJsonKeys.UNCHANGED, unchanged);
+    }
+
+    /**
+     * Waits for a job to finish.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aQueue The queue that the job was submitted to
+     * @param aID The ID of the job
+     * @return A Future that resolves to the job's final status
+     */
+    private static Future<JsonObject> awaitFinished(final Vertx aVertx, final ItemsJobQueue aQueue,
+            final String aID) {
+        return await(aVertx, () -> aQueue.getStatus(aID).containsKey(ResponseJsonKeys.FINISHED))
+                .map(unused -> aQueue.getStatus(aID));
+    }
+
+    /**
+     * Waits for a condition to hold.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aCondition The condition
+     * @return A Future that resolves once the condition holds
+     */
+    private static Future<Void> await(final Vertx aVertx, final BooleanSupplier aCondition) {
+        final Promise<Void> promise = Promise.promise();
+
+        aVertx.setPeriodic(10, timerID -> {
+            if (aCondition.getAsBoolean()) {
+                aVertx.cancelTimer(timerID);
+                promise.complete();
+            }
+        });
+
+        return promise.future();
+    }
+}
@@ -0,0 +1,98 @@
+
+package edu.ucla.library.iiif.auth.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the {@link LocalCache}.
+ */
+public class LocalCacheTest {
+
+    /**
+     * A test key.
+     */
+    private static final String KEY_1 = "ark:/21198/00000000";
+
+    /**
+     * A test key.
+     */
+    private static final String KEY_2 = "ark:/21198/11111111";
+
+    /**
+     * A test key.
+     */
+    private static final String KEY_3 = "ark:/21198/22222222";
+
+    /**
+     * Tests that a cached value can be retrieved until it expires.
+     */
+    @Test
+    public final void testExpiry() {
+        final AtomicLong clock = new AtomicLong();
+        final LocalCache<Integer> cache = new LocalCache<>(10, 100, clock::get);
+
+        cache.put(KEY_1, 1);
+        clock.set(99);
+        assertEquals(1, cache.get(KEY_1));
+
+        clock.set(100);
+        assertNull(cache.get(KEY_1));
+        assertEquals(0, cache.size());
+    }
+
+    /**
+     * Tests that the least recently used value is evicted when the cache is full.
+     */
+    @Test
+    public final void testEviction() {
+        final LocalCache<Integer> cache = new LocalCache<>(2, 60);
+
+        cache.put(KEY_1, 0);
+        cache.put(KEY_2, 1);
+
+        // Touch the first key so that the second is now the least recently used
+        cache.get(KEY_1);
+        cache.put(KEY_3, 2);
+
+        assertEquals(0, cache.get(KEY_1));
+        assertNull(cache.get(KEY_2));
+        assertEquals(2, cache.get(KEY_3));
+    }
+
+    /**
+     * Tests that cached values can be invalidated.
+     */
+    @Test
+    public final void testInvalidate() {
+        final LocalCache<Integer> cache = new LocalCache<>(10, 60);
+
+        cache.put(KEY_1, 0);
+        cache.put(KEY_2, 1);
+        cache.put(KEY_3, 2);
+
+        cache.invalidate(KEY_1);
+        cache.invalidateAll(List.of(KEY_2, KEY_3));
+
+        assertEquals(0, cache.size());
+    }
+
+    /**
+     * Tests that a cache with no capacity stores nothing.
+     */
+    @Test
+    public final void testDisabled() {
+        final LocalCache<Integer> cache = new LocalCache<>(0, 60);
+
+        cache.put(KEY_1, 0);
+
+        assertFalse(cache.isEnabled());
+        assertNull(cache.get(KEY_1));
+    }
+}
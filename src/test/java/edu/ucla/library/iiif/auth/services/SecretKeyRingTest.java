@@ -0,0 +1,142 @@
+
+package edu.ucla.library.iiif.auth.services;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.security.GeneralSecurityException;
+import java.security.spec.InvalidKeySpecException;
+import java.util.Base64;
+
+import org.junit.jupiter.api.Test;
+
+import edu.ucla.library.iiif.auth.Config;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Tests the {@link SecretKeyRing}.
+ */
+public class SecretKeyRingTest {
+
+    /**
+     * A test password.
+     */
+    private static final String PASSWORD = "password";
+
+    /**
+     * A test salt.
+     */
+    private static final String SALT = "salt";
+
+    /**
+     * A test 256-bit key.
+     */
+    private static final byte[] KEY_1 = new byte[32];
+
+    /**
+     * A test 128-bit key.
+     */
+    private static final byte[] KEY_2 = new byte[16];
+
+    static {
+        KEY_1[0] = 1;
+        KEY_2[0] = 2;
+    }
+
+    /**
+     * Tests that the first configured key is the active one by default, and that every configured key is available.
+     *
+     * @throws GeneralSecurityException If the key ring can't be created
+     */
+    @Test
+    public final void testConfiguredKeys() throws GeneralSecurityException {
+        final SecretKeyRing keyRing = SecretKeyRing.fromConfig(new JsonObject().put(Config.SECRET_KEYS,
+                "2:" + encode(KEY_2) + ", 1:" + encode(KEY_1)));
+
+        assertEquals(2, keyRing.getActiveKeyID());
+        assertArrayEquals(KEY_2, keyRing.getActiveKey().getEncoded());
+        assertArrayEquals(KEY_1, keyRing.getKey(1).getEncoded());
+        assertNull(keyRing.getKey(SecretKeyRing.LEGACY_KEY_ID));
+        assertNull(keyRing.getKey(-1));
+    }
+
+    /**
+     * Tests that the configured active key ID is used.
+     *
+     * @throws GeneralSecurityException If the key ring can't be created
+     */
+    @Test
+    public final void testActiveKeyID() throws GeneralSecurityException {
+        final SecretKeyRing keyRing = SecretKeyRing.fromConfig(new JsonObject()
+                .put(Config.SECRET_KEYS, "2:" + encode(KEY_2) + ",1:" + encode(KEY_1)).put(Config.SECRET_KEY_ID, 1));
+
+        assertEquals(1, keyRing.getActiveKeyID());
+        assertArrayEquals(KEY_1, keyRing.getActiveKey().getEncoded());
+    }
+
+    /**
+     * Tests that a key derived from a password gets the legacy key ID, and that the same key can be configured as raw
+     * key material instead.
+     *
+     * @throws GeneralSecurityException If the key ring can't be created
+     */
+    @Test
+    public final void testDerivedKey() throws GeneralSecurityException {
+        final JsonObject config = new JsonObject().put(Config.SECRET_KEY_PASSWORD, PASSWORD)
+                .put(Config.SECRET_KEY_SALT, SALT);
+        final SecretKeyRing derived = SecretKeyRing.fromConfig(config);
+        final byte[] keyMaterial = derived.getActiveKey().getEncoded();
+        final SecretKeyRing preDerived = SecretKeyRing.fromConfig(
+                new JsonObject().put(Config.SECRET_KEYS, "0:" + encode(keyMaterial)).put(Config.SECRET_KEY_ID, 0));
+
+        assertEquals(SecretKeyRing.LEGACY_KEY_ID, derived.getActiveKeyID());
+        assertEquals(32, keyMaterial.length);
+        assertArrayEquals(keyMaterial, preDerived.getKey(SecretKeyRing.LEGACY_KEY_ID).getEncoded());
+    }
+
+    /**
+     * Tests that a derived key stays available for decryption when configured keys are added.
+     *
+     * @throws GeneralSecurityException If the key ring can't be created
+     */
+    @Test
+    public final void testDerivedAndConfiguredKeys() throws GeneralSecurityException {
+        final JsonObject config = new JsonObject().put(Config.SECRET_KEY_PASSWORD, PASSWORD)
+                .put(Config.SECRET_KEY_SALT, SALT).put(Config.SECRET_KEYS, "1:" + encode(KEY_1));
+        final SecretKeyRing keyRing = SecretKeyRing.fromConfig(config);
+
+        assertEquals(1, keyRing.getActiveKeyID());
+        assertArrayEquals(SecretKeyRing.derive(PASSWORD, SALT).getEncoded(),
+                keyRing.getKey(SecretKeyRing.LEGACY_KEY_ID).getEncoded());
+    }
+
+    /**
+     * Tests that misconfigured keys are rejected.
+     */
+    @Test
+    public final void testInvalidKeys() {
+        for (final String secretKeys : new String[] { encode(KEY_1), "x:" + encode(KEY_1), "1:not Base64",
+            "1:" + encode(new byte[20]), "256:" + encode(KEY_1), "1:" + encode(KEY_1) + ",1:" + encode(KEY_2) }) {
+            assertThrows(InvalidKeySpecException.class,
+                    () -> SecretKeyRing.fromConfig(new JsonObject().put(Config.SECRET_KEYS, secretKeys)));
+        }
+
+        // There is no key with the active key ID
+        assertThrows(InvalidKeySpecException.class, () -> SecretKeyRing.fromConfig(
+                new JsonObject().put(Config.SECRET_KEYS, "1:" + encode(KEY_1)).put(Config.SECRET_KEY_ID, 2)));
+        assertThrows(InvalidKeySpecException.class, () -> SecretKeyRing.fromConfig(new JsonObject()));
+    }
+
+    /**
+     * Encodes key material the way it's configured.
+     *
+     * @param aKeyMaterial Key material
+     * @return The Base64-encoded key material
+     */
+    private static String encode(final byte[] aKeyMaterial) {
+        return Base64.getEncoder().encodeToString(aKeyMaterial);
+    }
+}
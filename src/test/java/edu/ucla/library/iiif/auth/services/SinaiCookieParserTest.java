@@ -0,0 +1,144 @@
+
+package edu.ucla.library.iiif.auth.services;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the {@link SinaiCookieParser}.
+ */
+public class SinaiCookieParserTest {
+
+    /**
+     * The prefix of the test cookies.
+     */
+    private static final String PREFIX = "Authenticated";
+
+    /**
+     * Tests hex decoding, in either case.
+     */
+    @Test
+    public final void testDecodeHex() {
+        final byte[] buffer = new byte[4];
+
+        assertEquals(3, SinaiCookieParser.decodeHex("00aBFf", buffer));
+        assertArrayEquals(new byte[] { 0x00, (byte) 0xab, (byte) 0xff, 0x00 }, buffer);
+        assertEquals(0, SinaiCookieParser.decodeHex("", buffer));
+    }
+
+    /**
+     * Tests that strings that aren't hex, or that don't fit in the buffer, aren't decoded.
+     */
+    @Test
+    public final void testDecodeInvalidHex() {
+        final byte[] buffer = new byte[4];
+
+        assertEquals(-1, SinaiCookieParser.decodeHex("abc", buffer));
+        assertEquals(-1, SinaiCookieParser.decodeHex("0g", buffer));
+        assertEquals(-1, SinaiCookieParser.decodeHex("0011223344", buffer));
+    }
+
+    /**
+     * Tests that the prefix must be followed by a space.
+     */
+    @Test
+    public final void testHasPrefix() {
+        final byte[] prefix = PREFIX.getBytes(StandardCharsets.UTF_8);
+
+        assertTrue(hasPrefix(PREFIX + " Fri, 15 Oct 2021", prefix));
+        assertFalse(hasPrefix(PREFIX + "Fri, 15 Oct 2021", prefix));
+        assertFalse(hasPrefix("Unauthenticated Fri, 15 Oct 2021", prefix));
+        assertFalse(hasPrefix(PREFIX, prefix));
+    }
+
+    /**
+     * Tests that dates are parsed the same way that {@link DateTimeFormatter} parses them, over several centuries.
+     */
+    @Test
+    public final void testParseDate() {
+        final DateTimeFormatter formatter =
+                DateTimeFormatter.ofPattern(AccessCookieServiceImpl.SINAI_COOKIE_DATE_FORMAT, Locale.ENGLISH);
+
+        for (LocalDate date = LocalDate.of(1800, 1, 1); date.getYear() < 2300; date = date.plusDays(1)) {
+            assertEquals(date.toEpochDay(), parseDate(date.format(formatter)), date.toString());
+        }
+    }
+
+    /**
+     * Tests that malformed and impossible dates aren't parsed.
+     */
+    @Test
+    public final void testParseInvalidDate() {
+        for (final String date : new String[] { "Thu, 15 Oct 2021", "Mon, 29 Feb 2021", "Sat, 31 Apr 2021",
+            "Fri, 00 Oct 2021", "Fri, 15 oct 2021", "Fri, 15 Oct 21", "Fri,15 Oct 2021 ", "Fri, 1a Oct 2021",
+            "Fri, 15 Oct 2021 " }) {
+            assertEquals(SinaiCookieParser.INVALID_DATE, parseDate(date), date);
+        }
+    }
+
+    /**
+     * Tests that a binary cookie's header fills whole AES blocks and is compared along with the cookie's length.
+     */
+    @Test
+    public final void testHasHeader() {
+        final byte[] header = SinaiCookieParser.createHeader(PREFIX.getBytes(StandardCharsets.UTF_8));
+        final byte[] cookie = new byte[64];
+        final int length = header.length + SinaiCookieParser.TIMESTAMP_LENGTH;
+
+        System.arraycopy(header, 0, cookie, 0, header.length);
+
+        assertEquals(16, header.length);
+        assertEquals(SinaiCookieParser.VERSION_2, header[0]);
+        assertEquals(32, SinaiCookieParser.createHeader(new byte[15]).length);
+        assertTrue(SinaiCookieParser.hasHeader(cookie, length, header));
+        assertFalse(SinaiCookieParser.hasHeader(cookie, length + 1, header));
+
+        cookie[header.length - 1] = 1;
+        assertFalse(SinaiCookieParser.hasHeader(cookie, length, header));
+    }
+
+    /**
+     * Tests that a binary cookie's issue time is read as a big-endian number.
+     */
+    @Test
+    public final void testParseTimestamp() {
+        final byte[] cookie = { 9, 0, 0, 0, 0, 0x61, 0x69, (byte) 0xC6, (byte) 0x80 };
+
+        assertEquals(1_634_322_048L, SinaiCookieParser.parseTimestamp(cookie, 1));
+    }
+
+    /**
+     * Checks whether a cookie has a prefix.
+     *
+     * @param aCookie A decrypted cookie
+     * @param aPrefix A prefix
+     * @return Whether the cookie has the prefix
+     */
+    private static boolean hasPrefix(final String aCookie, final byte[] aPrefix) {
+        final byte[] cookie = aCookie.getBytes(StandardCharsets.UTF_8);
+
+        return SinaiCookieParser.hasPrefix(cookie, cookie.length, aPrefix);
+    }
+
+    /**
+     * Parses a date that follows a prefix, the way it would be in a decrypted cookie.
+     *
+     * @param aDate A date
+     * @return The epoch day, or {@link SinaiCookieParser#INVALID_DATE}
+     */
+    private static long parseDate(final String aDate) {
+        final byte[] cookie = (PREFIX + ' ' + aDate).getBytes(StandardCharsets.UTF_8);
+        final int offset = PREFIX.length() + 1;
+
+        return SinaiCookieParser.parseDate(cookie, offset, cookie.length - offset);
+    }
+}
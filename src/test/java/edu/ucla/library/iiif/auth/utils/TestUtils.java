@@ -3,7 +3,10 @@ package edu.ucla.library.iiif.auth.utils;
 
 import static info.freelibrary.util.Constants.SPACE;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 
@@ -62,23 +65,60 @@ public final class TestUtils {
                 aLocalDate.format(DateTimeFormatter.ofPattern(AccessCookieServiceImpl.SINAI_COOKIE_DATE_FORMAT));
         final String clearText = String.join(SPACE, clearTextPrefix, clearTextSuffix);
 
+        return encryptMockSinaiCookie(aConfig, clearText.getBytes(), clearText);
+    }
+
+    /**
+     * Gets a pair of binary (version 2) Sinai cookies, which carry the exact time that they were issued.
+     *
+     * @param aConfig The application configuration
+     * @param aIssueTime The issue time to put inside the cookie
+     * @return A tuple of size 2 whose first element is a {@link CookieNames#SINAI_CIPHERTEXT} cookie and whose second
+     *         is a {@link CookieNames#SINAI_IV} cookie
+     * @throws Exception If there is an issue generating the cookies
+     */
+    public static Tuple getMockSinaiCookiesV2(final JsonObject aConfig, final Instant aIssueTime) throws Exception {
+        final byte[] prefix = aConfig.getString(Config.SINAI_COOKIE_VALID_PREFIX).getBytes(StandardCharsets.UTF_8);
+        final int blockSize = 16;
+        final int headerLength = (1 + prefix.length + blockSize - 1) / blockSize * blockSize;
+        final ByteBuffer clearText = ByteBuffer.allocate(headerLength + Long.BYTES);
+
+        // The version, the prefix, zeros to the end of the block, and the issue time in seconds
+        clearText.put((byte) 2).put(prefix).position(headerLength);
+        clearText.putLong(aIssueTime.getEpochSecond());
+
+        return encryptMockSinaiCookie(aConfig, clearText.array(), aIssueTime.toString());
+    }
+
+    /**
+     * Encrypts a Sinai cookie the way the Sinai application does.
+     *
+     * @param aConfig The application configuration
+     * @param aClearText The value of the cookie
+     * @param aDescription A description of the value of the cookie, for logging
+     * @return A tuple of size 2 whose first element is a {@link CookieNames#SINAI_CIPHERTEXT} cookie and whose second
+     *         is a {@link CookieNames#SINAI_IV} cookie
+     * @throws Exception If there is an issue generating the cookies
+     */
+    private static Tuple encryptMockSinaiCookie(final JsonObject aConfig, final byte[] aClearText,
+            final String aDescription) throws Exception {
         final Cipher cipher = Cipher.getInstance(AccessCookieServiceImpl.CIPHER_TRANSFORMATION);
         final SecretKey key = new SecretKeySpec(aConfig.getString(Config.SINAI_COOKIE_SECRET_KEY_PASSWORD).getBytes(),
                 AccessCookieServiceImpl.KEY_ALGORITHM);
 
         final byte[] cipherText;
-        final String sinaiAuthenticated3Day;
+        final String sinaiAuthenticated;
         final String initializationVector;
 
         cipher.init(Cipher.ENCRYPT_MODE, key, new SecureRandom());
 
-        cipherText = cipher.doFinal(clearText.getBytes());
-        sinaiAuthenticated3Day = Hex.encodeHexString(cipherText);
+        cipherText = cipher.doFinal(aClearText);
+        sinaiAuthenticated = Hex.encodeHexString(cipherText);
         initializationVector = Hex.encodeHexString(cipher.getIV());
 
-        LOGGER.debug(MessageCodes.AUTH_020, CookieNames.SINAI_CIPHERTEXT, sinaiAuthenticated3Day, CookieNames.SINAI_IV,
-                initializationVector, clearText);
+        LOGGER.debug(MessageCodes.AUTH_020, CookieNames.SINAI_CIPHERTEXT, sinaiAuthenticated, CookieNames.SINAI_IV,
+                initializationVector, aDescription);
 
-        return Tuple.of(sinaiAuthenticated3Day, initializationVector);
+        return Tuple.of(sinaiAuthenticated, initializationVector);
     }
 }
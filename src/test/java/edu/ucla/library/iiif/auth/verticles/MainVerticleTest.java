@@ -20,16 +20,17 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import info.freelibrary.util.Logger;
 import info.freelibrary.util.LoggerFactory;
 
+import edu.ucla.library.iiif.auth.Config;
 import edu.ucla.library.iiif.auth.MessageCodes;
 import edu.ucla.library.iiif.auth.services.AccessCookieService;
 import edu.ucla.library.iiif.auth.services.DatabaseService;
 
+import io.vertx.config.ConfigRetriever;
 import io.vertx.core.CompositeFuture;
 import io.vertx.core.Future;
 import io.vertx.core.Verticle;
 import io.vertx.core.Vertx;
 import io.vertx.core.eventbus.MessageConsumer;
-import io.vertx.core.http.HttpServer;
 import io.vertx.ext.web.client.WebClient;
 import io.vertx.junit5.VertxExtension;
 import io.vertx.junit5.VertxTestContext;
@@ -93,38 +94,58 @@ public class MainVerticleTest {
 
             aContext.verify(() -> {
                 assertNotEquals(services, null);
-                assertTrue(addresses.containsAll(Set.of(AccessCookieService.ADDRESS, DatabaseService.ADDRESS)));
+                assertTrue(addresses.contains(DatabaseService.ADDRESS));
                 services.forEach(service -> assertTrue(service.isRegistered()));
-
-                aContext.completeNow();
             });
         } catch (final AssertionError | IllegalAccessException | NoSuchFieldException details) {
             aContext.failNow(details);
+            return;
         }
+
+        // The access cookie service is registered by worker verticles, so check that it answers calls
+        AccessCookieService.createProxy(aVertx).generateCookie("127.0.0.1", false).onSuccess(cookie -> {
+            aContext.completeNow();
+        }).onFailure(aContext::failNow);
     }
 
     /**
-     * Test that the HTTP server is listening.
+     * Tests that the HTTP server verticles are deployed.
      *
      * @param aVertx A Vert.x instance
      * @param aContext A test context
      */
     @Test
-    public final void testServerIsListening(final Vertx aVertx, final VertxTestContext aContext) {
+    public final void testHttpServersAreDeployed(final Vertx aVertx, final VertxTestContext aContext) {
         try {
-            final HttpServer server = getServer((MainVerticle) myVerticle);
+            final String deploymentID = getHttpServerDeploymentID((MainVerticle) myVerticle);
 
-            assertNotEquals(server, null);
+            aContext.verify(() -> {
+                assertNotEquals(deploymentID, null);
+                assertTrue(aVertx.deploymentIDs().contains(deploymentID));
 
-            // Just see if we can get a response, even if it's a 4xx or 5xx
-            WebClient.create(aVertx).get(server.actualPort(), "0.0.0.0", SLASH).send().onSuccess(result -> {
                 aContext.completeNow();
-            }).onFailure(aContext::failNow);
+            });
         } catch (final AssertionError | IllegalAccessException | NoSuchFieldException details) {
             aContext.failNow(details);
         }
     }
 
+    /**
+     * Test that the HTTP server is listening.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    public final void testServerIsListening(final Vertx aVertx, final VertxTestContext aContext) {
+        ConfigRetriever.create(aVertx).getConfig().compose(config -> {
+            final int port = config.getInteger(Config.HTTP_PORT, HttpServerVerticle.DEFAULT_PORT);
+
+            // Just see if we can get a response, even if it's a 4xx or 5xx
+            return WebClient.create(aVertx).get(port, "0.0.0.0", SLASH).send();
+        }).onSuccess(result -> aContext.completeNow()).onFailure(aContext::failNow);
+    }
+
     /**
      * Gets a {@link MainVerticle}'s event bus services via reflection.
      *
@@ -144,18 +165,19 @@ public class MainVerticleTest {
     }
 
     /**
-     * Gets a {@link MainVerticle}'s HTTP server via reflection.
+     * Gets the deployment ID of a {@link MainVerticle}'s HTTP server verticles via reflection.
      *
      * @param aMainVerticle A verticle instance
-     * @return The HTTP server
+     * @return The deployment ID
      * @throws IllegalAccessException An exception for illegal access
      * @throws NoSuchFieldException An exception for a field that does not exist
      */
-    private HttpServer getServer(final MainVerticle aMainVerticle) throws IllegalAccessException, NoSuchFieldException {
-        final Field server = myVerticle.getClass().getDeclaredField("myServer");
+    private String getHttpServerDeploymentID(final MainVerticle aMainVerticle)
+            throws IllegalAccessException, NoSuchFieldException {
+        final Field deploymentID = aMainVerticle.getClass().getDeclaredField("myHttpServerDeploymentID");
 
-        server.setAccessible(true);
+        deploymentID.setAccessible(true);
 
-        return (HttpServer) server.get(aMainVerticle);
+        return (String) deploymentID.get(aMainVerticle);
     }
 }
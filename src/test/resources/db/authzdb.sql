@@ -69,6 +69,29 @@ COPY public.items (uid, access_mode) FROM stdin;
 ALTER TABLE ONLY public.items
     ADD CONSTRAINT items_pkey PRIMARY KEY (uid);
 
+--
+-- Name: notify_item_change(); Type: FUNCTION; Schema: public; Owner: postgres
+--
+
+CREATE FUNCTION public.notify_item_change() RETURNS trigger
+    LANGUAGE plpgsql
+    AS $$
+BEGIN
+    IF TG_OP = 'INSERT' OR OLD.access_mode IS DISTINCT FROM NEW.access_mode THEN
+        PERFORM pg_notify('items_changed', json_build_object('uid', NEW.uid, 'accessMode', NEW.access_mode)::text);
+    END IF;
+    RETURN NULL;
+END;
+$$;
+
+ALTER FUNCTION public.notify_item_change() OWNER TO postgres;
+
+--
+-- Name: items items_changed; Type: TRIGGER; Schema: public; Owner: postgres
+--
+
+CREATE TRIGGER items_changed AFTER INSERT OR UPDATE ON public.items FOR EACH ROW EXECUTE FUNCTION public.notify_item_change();
+
 --
 -- Name: TABLE items; Type: ACL; Schema: public; Owner: postgres
 --